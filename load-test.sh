@@ -0,0 +1,137 @@
+#!/bin/bash
+
+# Feicur 端到端压测脚本
+# 以本地飞书MCP桩服务（FakeFeishuMcpServer）替代真实飞书，监听 N 个合成文档，
+# 统计吞吐、变更观测延迟与端到端延迟分位数，以及 Feicur 进程的 CPU 和堆内存
+#
+# 用法: ./load-test.sh [文档数] [持续秒数] [每秒变更数]
+# 前置: 已通过 ./mvnw package -DskipTests 构建 jar（桩服务在测试代码中，脚本会编译测试类并生成其 classpath）
+#
+# 桩服务参数（环境变量）:
+#   STUB_COMMENTS=20 STUB_USERS=50 STUB_LATENCY_MS=50 STUB_LATENCY_JITTER_MS=20
+#   STUB_ERROR_RATE=0.0 STUB_RATE_LIMIT_RATE=0.0
+# 其他: PORT=17777  EXTRA_ARGS="--feicur.poll.interval=2000 ..."（追加给 Feicur 的参数）
+
+DOCS=${1:-100}
+DURATION=${2:-60}
+CHURN=${3:-10}
+PORT=${PORT:-17777}
+
+JAR=$(pwd)/target/mcp-starter-default-client-0.0.1-SNAPSHOT.jar
+WORK_DIR=$(pwd)/target/load-test
+STUB_MAIN=org.springframework.ai.mcp.samples.client.loadtest.FakeFeishuMcpServer
+
+if [ ! -f "$JAR" ]; then
+    echo "❌ 未找到 $JAR，请先执行 ./mvnw package -DskipTests"
+    exit 1
+fi
+
+# 桩服务不打包进应用 jar，从测试类和依赖 classpath 启动
+STUB_CP_FILE=$(pwd)/target/stub-classpath.txt
+if ! ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile="$STUB_CP_FILE"; then
+    echo "❌ 编译桩服务失败"
+    exit 1
+fi
+STUB_CP="$(pwd)/target/test-classes:$(pwd)/target/classes:$(cat "$STUB_CP_FILE")"
+
+rm -rf "$WORK_DIR"
+mkdir -p "$WORK_DIR"
+
+# 生成 MCP 服务配置：连接名为 feishu，工具名与真实服务一致
+cat > "$WORK_DIR/mcp-servers.json" <<JSON
+{
+  "mcpServers": {
+    "feishu": {
+      "command": "java",
+      "args": [
+        "-cp", "$STUB_CP",
+        "-Dstub.comments=${STUB_COMMENTS:-20}",
+        "-Dstub.users=${STUB_USERS:-50}",
+        "-Dstub.churn-per-second=$CHURN",
+        "-Dstub.latency-ms=${STUB_LATENCY_MS:-50}",
+        "-Dstub.latency-jitter-ms=${STUB_LATENCY_JITTER_MS:-20}",
+        "-Dstub.error-rate=${STUB_ERROR_RATE:-0.0}",
+        "-Dstub.rate-limit-rate=${STUB_RATE_LIMIT_RATE:-0.0}",
+        "-Dstub.report-file=$WORK_DIR/stub-report.json",
+        "$STUB_MAIN"
+      ],
+      "env": {
+      }
+    }
+  }
+}
+JSON
+
+# 压测的是 Feicur 自身的容量：放开按飞书配额设置的限流，关闭空闲自动停止和注册表持久化
+FEICUR_ARGS="--server.port=$PORT \
+    --spring.ai.mcp.client.stdio.servers-configuration=file:$WORK_DIR/mcp-servers.json \
+    --feicur.idle.limit=2147483647 \
+    --feicur.watch.registry.enabled=false \
+    --feicur.ledger.file=$WORK_DIR/ledger.bin \
+    --feicur.rate.app-permits-per-second=1000000 --feicur.rate.app-burst=1000000 \
+    --feicur.rate.endpoints.comment-list.permits-per-second=1000000 --feicur.rate.endpoints.comment-list.burst=1000000 \
+    --feicur.rate.endpoints.comment-reply.permits-per-second=1000000 --feicur.rate.endpoints.comment-reply.burst=1000000 \
+    --feicur.rate.endpoints.comment-patch.permits-per-second=1000000 --feicur.rate.endpoints.comment-patch.burst=1000000 \
+    $EXTRA_ARGS"
+
+echo "🚀 启动 Feicur: docs=$DOCS duration=${DURATION}s churn=${CHURN}/s port=$PORT"
+java -jar "$JAR" $FEICUR_ARGS > "$WORK_DIR/feicur.log" 2>&1 &
+FEICUR_PID=$!
+trap 'kill $FEICUR_PID 2>/dev/null' EXIT
+
+# 等待 MCP 客户端就绪
+for ((i = 0; i < 120; i++)); do
+    code=$(curl -s -o /dev/null -w "%{http_code}" "http://localhost:$PORT/ready")
+    if [ "$code" = "200" ]; then
+        break
+    fi
+    if ! kill -0 $FEICUR_PID 2>/dev/null; then
+        echo "❌ Feicur 启动失败，日志: $WORK_DIR/feicur.log"
+        exit 1
+    fi
+    sleep 0.5
+done
+if [ "$code" != "200" ]; then
+    echo "❌ 等待 /ready 超时，日志: $WORK_DIR/feicur.log"
+    exit 1
+fi
+
+# 批量注册合成文档
+TOKENS=$(seq -f "load-doc-%g" 0 $((DOCS - 1)) | sed 's/.*/"&"/' | paste -sd, -)
+curl -s -X POST "http://localhost:$PORT/watches" -H 'Content-Type: application/json' \
+    -d "{\"tokens\":[$TOKENS]}" > "$WORK_DIR/register.json"
+echo "📋 已注册 $DOCS 个文档"
+
+# 每秒采样 CPU、RSS 以及（jstat 可用时）堆使用量
+echo "time,cpu_percent,rss_kb,heap_used_kb" > "$WORK_DIR/samples.csv"
+for ((i = 1; i <= DURATION; i++)); do
+    sleep 1
+    read -r cpu rss < <(ps -o %cpu=,rss= -p $FEICUR_PID)
+    heap=""
+    if command -v jstat > /dev/null; then
+        heap=$(jstat -gc $FEICUR_PID | awk 'NR == 2 { printf "%d", $3 + $4 + $6 + $8 }')
+    fi
+    echo "$i,$cpu,$rss,$heap" >> "$WORK_DIR/samples.csv"
+done
+
+curl -s "http://localhost:$PORT/status" > "$WORK_DIR/status.json"
+
+# 正常停止 Feicur，桩服务随 stdin 关闭退出并写出最终报告
+kill $FEICUR_PID
+wait $FEICUR_PID 2>/dev/null
+sleep 1
+
+echo ""
+echo "📊 桩服务报告（$WORK_DIR/stub-report.json）:"
+cat "$WORK_DIR/stub-report.json" 2>/dev/null || echo "⚠️  未生成桩服务报告"
+echo ""
+awk -F, 'NR > 1 && $2 != "" {
+        cpu += $2; n++
+        if ($2 > maxCpu) maxCpu = $2
+        if ($3 > maxRss) maxRss = $3
+        if ($4 > maxHeap) maxHeap = $4
+    }
+    END {
+        if (n > 0) printf "💻 Feicur CPU avg=%.1f%% max=%.1f%%  RSS max=%dMB  heap used max=%dMB\n", cpu / n, maxCpu, maxRss / 1024, maxHeap / 1024
+    }' "$WORK_DIR/samples.csv"
+echo "📁 详细数据: $WORK_DIR（samples.csv / status.json / feicur.log）"
@@ -89,6 +89,7 @@ public class Application {
 		log.info("  🔗 启动监听: http://localhost:7777/watch?url=<飞书文档URL>");
 		log.info("  📊 查看状态: http://localhost:7777/status");
 		log.info("  ❤️  健康检查: http://localhost:7777/health");
+		log.info("  🚦 就绪检查: http://localhost:7777/ready");
 		log.info("");
 		log.info("💡 使用方式:");
 		log.info("  在飞书文档地址前加上: http://localhost:7777/watch?url=");
@@ -96,6 +97,8 @@ public class Application {
 		log.info("");
 		log.info("🔧 API管理:");
 		log.info("  停止监听: curl -X DELETE http://localhost:7777/watch/<token>");
+		log.info("  批量监听: curl -X POST http://localhost:7777/watches -H 'Content-Type: application/json' -d '{\"urls\":[...],\"tokens\":[...]}'");
+		log.info("  监听列表: curl http://localhost:7777/watches?page=0&size=50");
 		log.info("");
 		log.info("⏸️  按 Ctrl+C 停止服务");
 		
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.mcp.samples.client.executor.CommandCancelledException;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.mcp.samples.client.resilience.DocResilienceRegistry;
+import org.springframework.ai.mcp.samples.client.resilience.FeishuRateGovernor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 代理工具调用的配额与隔离
+ * 模型调用的MCP工具和轮询一样消耗租户的飞书配额、受租户舱壁和文档级断路器约束（不占用轮询的文档级舱壁）：
+ * 每次逻辑调用先拿前台配额和文档许可，对冲请求与首次请求共用文档许可，但需另外拿到后台配额
+ */
+@Component
+@RequiredArgsConstructor
+class AgentToolGovernor {
+
+    private final FeishuRateGovernor rateGovernor;
+    private final DocResilienceRegistry docResilienceRegistry;
+
+    /**
+     * 开始一次逻辑调用（首次请求及其对冲请求）
+     */
+    GovernedCall begin(UserCommand command) {
+        return new GovernedCall(command);
+    }
+
+    /**
+     * 一次逻辑调用的许可：第一个开始执行的请求获取，调用结束时通过finish释放
+     */
+    class GovernedCall {
+
+        private final UserCommand command;
+        private volatile DocResilienceRegistry.DocPermit permit;
+        private boolean finished;
+
+        private GovernedCall(UserCommand command) {
+            this.command = command;
+        }
+
+        /**
+         * 包装实际调用：获取许可后执行，响应为飞书频率限制错误时通知限流器
+         */
+        Supplier<String> wrap(Supplier<String> call) {
+            return () -> {
+                acquire();
+                String result = call.get();
+                if (FeishuRateGovernor.isRateLimitError(result)) {
+                    rateGovernor.onRateLimited(command.getTenantId(), FeishuRateGovernor.ENDPOINT_AGENT_TOOL);
+                }
+                return result;
+            };
+        }
+
+        /**
+         * 对冲许可：首次请求已拿到文档许可、且租户还有后台配额时才允许对冲
+         */
+        boolean hedgePermit() {
+            return permit != null &&
+                    rateGovernor.tryAcquireHedge(command.getTenantId(), FeishuRateGovernor.ENDPOINT_AGENT_TOOL);
+        }
+
+        /**
+         * 逻辑调用结束：归还文档许可并记录结果；取消不计入断路器
+         */
+        void finish(Throwable error) {
+            DocResilienceRegistry.DocPermit acquired;
+            synchronized (this) {
+                finished = true;
+                acquired = permit;
+            }
+            if (acquired == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException || cause instanceof CommandCancelledException) {
+                acquired.cancel();
+            } else {
+                acquired.release(cause);
+            }
+        }
+
+        private void acquire() {
+            if (permit != null) {
+                return;
+            }
+            rateGovernor.acquire(command.getTenantId(), FeishuRateGovernor.ENDPOINT_AGENT_TOOL,
+                    FeishuRateGovernor.Priority.FOREGROUND);
+            DocResilienceRegistry.DocPermit acquired = docResilienceRegistry.acquireForDoc(command.getTenantId(),
+                    command.getDocToken());
+            synchronized (this) {
+                if (!finished) {
+                    permit = acquired;
+                    return;
+                }
+            }
+            // 等待许可期间调用已超时或被取消
+            acquired.cancel();
+            throw new CancellationException("Tool call finished before permits were acquired");
+        }
+    }
+}
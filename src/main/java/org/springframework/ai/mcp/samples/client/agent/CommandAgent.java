@@ -0,0 +1,331 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.mcp.samples.client.anchor.QuoteAnchorIndex;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.edit.BlockPatchApplier;
+import org.springframework.ai.mcp.samples.client.executor.CommandCancelledException;
+import org.springframework.ai.mcp.samples.client.executor.CommandHandle;
+import org.springframework.ai.mcp.samples.client.executor.CommandTimeoutException;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.mcp.samples.client.resilience.HedgedCallExecutor;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * 指令执行Agent
+ * 把评论指令交给模型，模型通过飞书MCP工具读取和修改文档，返回的总结作为执行结果回写到评论。
+ * 模型调用在agent线程池中执行，指令线程按截止时间等待，超时或指令被取消时中断模型调用；
+ * 工具调用同样受截止时间约束，只读工具可启用对冲请求。
+ * 请求按“系统提示词 → 工具定义（按名称排序）→ 本次指令”组织，选中相同工具子集的指令前缀逐字节一致，
+ * 可以命中模型服务商的提示词前缀缓存；指令相关的内容只出现在最后的用户消息中。
+ * 默认使用流式响应，工具调用的参数一完整就立即发起（见StreamingToolLoop），与模型生成重叠。
+ * 相同指令在文档仍处于上次执行后的版本时命中结果缓存，只回复缓存的总结，不调用模型也不再写文档
+ */
+@Component
+@Slf4j
+public class CommandAgent {
+
+    static final String SYSTEM_PROMPT = """
+            你是Feicur，一个在飞书文档中工作的助手。用户在文档评论中给出指令，你需要使用提供的飞书工具读取文档、
+            按指令修改评论所引用的内容。只修改与指令相关的部分，不要改动其他内容。
+            如果用户消息中给出了评论引用所在的文档块，直接按块ID读取和修改这些块，不要读取整篇文档。
+            修改文本块时使用feicur_apply_block_edits工具提交修改后的块内容，只有实际变化的块会被写入。
+            完成后用一两句话总结你做了什么修改；如果无法完成，说明原因。
+            """;
+
+    private final ObjectProvider<ChatClient.Builder> chatClientBuilderProvider;
+    private final TenantRegistry tenantRegistry;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final AsyncTaskExecutor agentExecutor;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final ResultCache resultCache;
+    private final FeishuApi feishuApi;
+    private final ToolSelector toolSelector;
+    private final QuoteAnchorIndex quoteAnchorIndex;
+    private final BlockPatchApplier blockPatchApplier;
+    private final AgentToolGovernor agentToolGovernor;
+
+    @Value("${feicur.agent.enabled:false}")
+    private boolean enabled;
+
+    @Value("${feicur.agent.streaming:true}")
+    private boolean streaming;
+
+    @Value("${feicur.agent.max-tool-rounds:10}")
+    private int maxToolRounds;
+
+    @Value("${feicur.agent.fast-model:}")
+    private String fastModel;
+
+    @Value("${feicur.hedge.read-tool-pattern:.*(List|Get|Query|Search|Batch[Gg]et).*}")
+    private String readToolPattern;
+
+    private volatile ChatClient chatClient;
+    private volatile Pattern readToolRegex;
+
+    public CommandAgent(ObjectProvider<ChatClient.Builder> chatClientBuilderProvider,
+                        TenantRegistry tenantRegistry,
+                        HedgedCallExecutor hedgedCallExecutor,
+                        @Qualifier("agentExecutor") AsyncTaskExecutor agentExecutor,
+                        PromptCacheMetrics promptCacheMetrics,
+                        ResultCache resultCache,
+                        FeishuApi feishuApi,
+                        ToolSelector toolSelector,
+                        QuoteAnchorIndex quoteAnchorIndex,
+                        BlockPatchApplier blockPatchApplier,
+                        AgentToolGovernor agentToolGovernor) {
+        this.chatClientBuilderProvider = chatClientBuilderProvider;
+        this.tenantRegistry = tenantRegistry;
+        this.hedgedCallExecutor = hedgedCallExecutor;
+        this.agentExecutor = agentExecutor;
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.resultCache = resultCache;
+        this.feishuApi = feishuApi;
+        this.toolSelector = toolSelector;
+        this.quoteAnchorIndex = quoteAnchorIndex;
+        this.blockPatchApplier = blockPatchApplier;
+        this.agentToolGovernor = agentToolGovernor;
+    }
+
+    /**
+     * 是否启用模型执行（未启用时指令只打印，保持MVP行为）
+     */
+    public boolean isEnabled() {
+        return enabled && chatClientBuilderProvider.getIfAvailable() != null;
+    }
+
+    /**
+     * 执行指令，返回模型的执行总结
+     *
+     * @throws CommandTimeoutException 超过截止时间
+     * @throws CommandCancelledException 指令被取消
+     */
+    public String execute(UserCommand command, CommandHandle handle) {
+        handle.checkActive();
+        ToolCallback[] tools = guardedTools(command, handle);
+        
+        Long revision = resultCache.isEnabled() || quoteAnchorIndex.isEnabled() ?
+                currentRevision(command.getDocToken()) : null;
+        if (revision != null && resultCache.isEnabled()) {
+            String cached = resultCache.lookup(command, revision);
+            if (cached != null) {
+                // 文档仍是上次执行相同指令后的版本，修改已在文档中，只回复总结
+                log.info("Result cache hit for doc {} revision {}, replying cached summary",
+                        command.getDocToken(), revision);
+                return cached;
+            }
+        }
+        
+        List<DocBlock> anchored = revision != null && quoteAnchorIndex.isEnabled() ?
+                locateQuote(command, revision) : List.of();
+        String summary = callModel(command, handle, tools, anchored);
+        if (resultCache.isEnabled()) {
+            // 以执行后的版本号缓存：只有文档停留在包含本次修改的版本时，相同指令才命中
+            Long executed = currentRevision(command.getDocToken());
+            if (executed != null) {
+                resultCache.put(command, executed, summary);
+            }
+        }
+        return summary;
+    }
+    
+    /**
+     * 调用模型执行指令，最多等到截止时间；只提供与指令相关的工具
+     */
+    private String callModel(UserCommand command, CommandHandle handle, ToolCallback[] allTools,
+                             List<DocBlock> anchored) {
+        ToolCallback[] tools = toolSelector.select(command, allTools);
+        long prefixHash = prefixHash(tools);
+        Future<String> future = agentExecutor.submit(() -> {
+            String model = modelFor(command);
+            if (streaming) {
+                return new StreamingToolLoop(getChatClient(), handle, tools, model, promptCacheMetrics, prefixHash,
+                        maxToolRounds)
+                        .run(SYSTEM_PROMPT, renderCommand(command, anchored));
+            }
+            var request = getChatClient().prompt()
+                    .system(SYSTEM_PROMPT)
+                    .user(renderCommand(command, anchored))
+                    .toolCallbacks(tools);
+            if (model != null) {
+                request = request.options(ToolCallingChatOptions.builder().model(model).build());
+            }
+            ChatResponse response = request.call().chatResponse();
+            promptCacheMetrics.recordResponse(prefixHash, response);
+            return response != null && response.getResult() != null ?
+                    response.getResult().getOutput().getText() : null;
+        });
+        handle.setRunning(future);
+
+        try {
+            return future.get(command.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CommandTimeoutException("Model call did not finish before deadline " + command.getDeadline());
+        } catch (CancellationException e) {
+            throw new CommandCancelledException("Command cancelled: " + handle.getCancelReason());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CommandCancelledException("Command execution interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            handle.setRunning(null);
+        }
+    }
+
+    /**
+     * 分诊为简单的指令使用更快的模型，返回null表示使用默认模型
+     */
+    private String modelFor(UserCommand command) {
+        return command.getComplexity() == UserCommand.Complexity.SIMPLE && StringUtils.hasText(fastModel) ?
+                fastModel : null;
+    }
+
+    /**
+     * 指令渲染为用户消息
+     */
+    static String renderCommand(UserCommand command, List<DocBlock> anchored) {
+        RawComment comment = command.getSourceComment();
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("文档token: ").append(command.getDocToken()).append('\n');
+        prompt.append("指令类型: ").append(command.getCommandType()).append('\n');
+        if (comment != null) {
+            prompt.append("评论ID: ").append(comment.getCommentId()).append('\n');
+            if (comment.getPosition() != null) {
+                prompt.append("评论引用的原文: ").append(comment.getPosition()).append('\n');
+            }
+        }
+        if (!anchored.isEmpty()) {
+            prompt.append("评论引用所在的文档块（含前后相邻块）:\n");
+            for (DocBlock block : anchored) {
+                prompt.append("- [").append(block.getBlockId()).append("] ")
+                      .append(block.getText() != null ? block.getText() : "").append('\n');
+            }
+        }
+        prompt.append("评论内容: ").append(command.getContent() != null ? command.getContent() : "");
+        return prompt.toString();
+    }
+    
+    /**
+     * 定位评论引用所在的块，失败时返回空列表（模型自行读取文档）
+     */
+    private List<DocBlock> locateQuote(UserCommand command, long revision) {
+        RawComment comment = command.getSourceComment();
+        if (comment == null || comment.getPosition() == null) {
+            return List.of();
+        }
+        try {
+            return quoteAnchorIndex.locate(command.getDocToken(), revision, comment.getPosition());
+        } catch (RuntimeException e) {
+            log.debug("Unable to locate quote in doc {}: {}", command.getDocToken(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 文档当前版本号，获取失败时返回null（不使用结果缓存、不定位引用）
+     */
+    private Long currentRevision(String docToken) {
+        try {
+            return feishuApi.getDocumentRevision(docToken);
+        } catch (RuntimeException e) {
+            log.debug("Unable to read revision of doc {}, bypassing result cache and quote anchoring: {}", docToken, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 包装工具回调（指令所属租户的MCP工具和块修改工具）；按名称排序，保证工具定义在请求中的顺序稳定
+     */
+    private ToolCallback[] guardedTools(UserCommand command, CommandHandle handle) {
+        Pattern readOnly = getReadToolRegex();
+        ToolCallback[] callbacks = tenantRegistry.toolCallbacks(command.getTenantId());
+        ToolCallback localTool = null;
+        if (blockPatchApplier.isEnabled()) {
+            localTool = blockPatchApplier.toolCallback();
+            callbacks = Arrays.copyOf(callbacks, callbacks.length + 1);
+            callbacks[callbacks.length - 1] = localTool;
+        } else {
+            callbacks = callbacks.clone();
+        }
+        Arrays.sort(callbacks, Comparator.comparing(callback -> callback.getToolDefinition().name()));
+        ToolCallback[] guarded = new ToolCallback[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            boolean isRead = readOnly.matcher(callbacks[i].getToolDefinition().name()).matches();
+            // 本地块修改工具内部的飞书调用已各自获取配额，只治理MCP工具
+            AgentToolGovernor governor = callbacks[i] == localTool ? null : agentToolGovernor;
+            guarded[i] = new GuardedToolCallback(callbacks[i], handle, hedgedCallExecutor, governor, isRead);
+        }
+        return guarded;
+    }
+
+    /**
+     * 稳定前缀的指纹：系统提示词和全部工具定义
+     */
+    private long prefixHash(ToolCallback[] tools) {
+        long hash = SYSTEM_PROMPT.hashCode();
+        for (ToolCallback tool : tools) {
+            hash = 31 * hash + tool.getToolDefinition().name().hashCode();
+            hash = 31 * hash + tool.getToolDefinition().description().hashCode();
+            hash = 31 * hash + tool.getToolDefinition().inputSchema().hashCode();
+        }
+        return hash;
+    }
+    
+    private ChatClient getChatClient() {
+        if (chatClient == null) {
+            synchronized (this) {
+                if (chatClient == null) {
+                    chatClient = chatClientBuilderProvider.getObject().build();
+                }
+            }
+        }
+        return chatClient;
+    }
+
+    private Pattern getReadToolRegex() {
+        if (readToolRegex == null) {
+            readToolRegex = Pattern.compile(readToolPattern);
+        }
+        return readToolRegex;
+    }
+}
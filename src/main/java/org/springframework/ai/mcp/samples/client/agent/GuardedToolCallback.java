@@ -0,0 +1,166 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.samples.client.executor.CommandCancelledException;
+import org.springframework.ai.mcp.samples.client.executor.CommandHandle;
+import org.springframework.ai.mcp.samples.client.executor.CommandTimeoutException;
+import org.springframework.ai.mcp.samples.client.llm.RoutingChatModel;
+import org.springframework.ai.mcp.samples.client.resilience.HedgedCallExecutor;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 指令执行期间提供给模型的工具回调
+ * 每次调用前检查指令是否已取消或超时，调用最多等到指令截止时间；只读工具可启用对冲请求。
+ * MCP工具调用经AgentToolGovernor获取租户配额和文档级断路器/舱壁许可；本地工具内部的飞书调用各自获取配额，不再重复治理
+ */
+class GuardedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final CommandHandle handle;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final AgentToolGovernor governor;
+    private final boolean readOnly;
+
+    /**
+     * @param governor 配额与隔离；为null时不治理（本地工具）
+     */
+    GuardedToolCallback(ToolCallback delegate, CommandHandle handle, HedgedCallExecutor hedgedCallExecutor,
+                        AgentToolGovernor governor, boolean readOnly) {
+        this.delegate = delegate;
+        this.handle = handle;
+        this.hedgedCallExecutor = hedgedCallExecutor;
+        this.governor = governor;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        handle.checkActive();
+        // 同步调用来自服务商内部的工具循环：此后模型请求出错不能再换路由重发
+        RoutingChatModel.markToolInvoked();
+        String name = getToolDefinition().name();
+        AgentToolGovernor.GovernedCall governed = governor != null ? governor.begin(handle.getCommand()) : null;
+        Throwable error = null;
+        try {
+            return hedgedCallExecutor.call(name, governed(governed, tracked(delegated(toolInput, toolContext))),
+                    handle.getCommand().remainingMillis(), hedgePermit(governed));
+        } catch (TimeoutException e) {
+            error = e;
+            throw new CommandTimeoutException("Tool " + name + " did not finish before the command deadline");
+        } catch (InterruptedException e) {
+            error = new CancellationException(e.getMessage());
+            Thread.currentThread().interrupt();
+            throw new CommandCancelledException("Tool " + name + " interrupted: " + handle.getCancelReason());
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (governed != null) {
+                governed.finish(error);
+            }
+        }
+    }
+
+    /**
+     * 异步调用，供流式执行在模型继续生成时提前发起工具调用
+     * 取消返回的Future会中断执行中的只读调用（已开始的写调用不中断）；超过指令截止时间时以TimeoutException完成
+     */
+    CompletableFuture<String> callAsync(String toolInput) {
+        try {
+            handle.checkActive();
+            AgentToolGovernor.GovernedCall governed = governor != null ? governor.begin(handle.getCommand()) : null;
+            CompletableFuture<String> future = hedgedCallExecutor.callAsync(getToolDefinition().name(),
+                    governed(governed, tracked(delegated(toolInput, null))), handle.getCommand().remainingMillis(),
+                    hedgePermit(governed));
+            if (governed != null) {
+                future.whenComplete((result, e) -> governed.finish(e));
+            }
+            return future;
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private static Supplier<String> governed(AgentToolGovernor.GovernedCall governed, Supplier<String> call) {
+        return governed != null ? governed.wrap(call) : call;
+    }
+
+    /**
+     * 写工具的实际调用登记到指令句柄：指令超时或失败时据此等待仍在执行的写调用，并判断文档是否已被修改
+     */
+    private Supplier<String> tracked(Supplier<String> call) {
+        if (readOnly) {
+            return call;
+        }
+        return () -> {
+            handle.writeStarted();
+            boolean applied = false;
+            try {
+                String result = call.get();
+                applied = true;
+                return result;
+            } finally {
+                handle.writeFinished(applied);
+            }
+        };
+    }
+
+    /**
+     * 只读工具才对冲；MCP工具的对冲请求需要拿到后台配额
+     */
+    private BooleanSupplier hedgePermit(AgentToolGovernor.GovernedCall governed) {
+        if (!readOnly) {
+            return null;
+        }
+        return governed != null ? governed::hedgePermit : () -> true;
+    }
+
+    /**
+     * 实际调用
+     */
+    private Supplier<String> delegated(String toolInput, ToolContext toolContext) {
+        return () -> toolContext != null ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 提示词前缀缓存统计
+ * 从模型响应的原始usage中读取缓存命中的输入token数（OpenAI: prompt_tokens_details.cached_tokens，
+ * Anthropic: cache_read_input_tokens），并按稳定前缀（系统提示词+工具定义）分别统计——
+ * 不同指令可能使用不同的工具子集，每个前缀各自在服务商侧缓存，新出现的前缀首次调用必然无法命中缓存。
+ * 按前缀的统计最多保留max-prefixes个，超出时淘汰最久未使用的前缀
+ */
+@Component
+@Slf4j
+public class PromptCacheMetrics {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${feicur.agent.prompt-cache.max-prefixes:32}")
+    private int maxPrefixes = 32;
+
+    private final Counters total = new Counters();
+    private final AtomicLong newPrefixes = new AtomicLong();
+
+    private final Map<Long, Counters> prefixes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Counters> eldest) {
+            return size() > maxPrefixes;
+        }
+    };
+
+    /**
+     * 记录一次模型响应的token用量
+     *
+     * @param prefixHash 本次请求的稳定前缀哈希
+     */
+    public void recordResponse(long prefixHash, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        long prompt = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long cached = 0;
+        long written = 0;
+        Object nativeUsage = usage.getNativeUsage();
+        if (nativeUsage != null) {
+            try {
+                JsonNode node = objectMapper.valueToTree(nativeUsage);
+                cached = node.path("prompt_tokens_details").path("cached_tokens").asLong(0) +
+                         node.path("cache_read_input_tokens").asLong(0);
+                written = node.path("cache_creation_input_tokens").asLong(0);
+            } catch (IllegalArgumentException e) {
+                log.debug("Unable to read native usage {}: {}", nativeUsage.getClass().getName(), e.getMessage());
+            }
+        }
+        total.record(prompt, cached, written);
+        prefixCounters(prefixHash).record(prompt, cached, written);
+    }
+
+    private Counters prefixCounters(long prefixHash) {
+        synchronized (prefixes) {
+            Counters counters = prefixes.get(prefixHash);
+            if (counters == null) {
+                counters = new Counters();
+                prefixes.put(prefixHash, counters);
+                newPrefixes.incrementAndGet();
+                log.debug("New prompt prefix {} (tool set or system prompt), provider cache is cold for it",
+                        Long.toHexString(prefixHash));
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * 获取缓存统计：总计，以及按调用次数排序的各前缀统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = total.toMap();
+        stats.put("newPrefixes", newPrefixes.get());
+        List<Map<String, Object>> byPrefix = new ArrayList<>();
+        synchronized (prefixes) {
+            for (Map.Entry<Long, Counters> entry : prefixes.entrySet()) {
+                Map<String, Object> prefix = entry.getValue().toMap();
+                prefix.put("prefix", Long.toHexString(entry.getKey()));
+                byPrefix.add(prefix);
+            }
+        }
+        byPrefix.sort(Comparator.comparingLong((Map<String, Object> prefix) -> (Long) prefix.get("calls")).reversed());
+        stats.put("prefixes", byPrefix);
+        return stats;
+    }
+
+    /**
+     * 一组调用的token计数
+     */
+    private static class Counters {
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong cachedTokens = new AtomicLong();
+        private final AtomicLong cacheWriteTokens = new AtomicLong();
+
+        void record(long prompt, long cached, long written) {
+            calls.incrementAndGet();
+            promptTokens.addAndGet(prompt);
+            if (cached > 0) {
+                cacheHits.incrementAndGet();
+                cachedTokens.addAndGet(cached);
+            }
+            cacheWriteTokens.addAndGet(written);
+        }
+
+        Map<String, Object> toMap() {
+            long total = calls.get();
+            long prompt = promptTokens.get();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("calls", total);
+            stats.put("cacheHits", cacheHits.get());
+            stats.put("hitRate", total == 0 ? 0.0 : Math.round(cacheHits.get() * 1000.0 / total) / 1000.0);
+            stats.put("promptTokens", prompt);
+            stats.put("cachedTokens", cachedTokens.get());
+            stats.put("cachedTokenRatio", prompt == 0 ? 0.0 : Math.round(cachedTokens.get() * 1000.0 / prompt) / 1000.0);
+            stats.put("cacheWriteTokens", cacheWriteTokens.get());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指令结果缓存
+ * 以“文档 + 规范化后的指令 + 评论引用位置（RawComment.position）+ 执行后的文档版本号”为键，缓存执行总结。
+ * 同一段内容上粘贴到其他评论的相同指令，如果文档仍停留在上次执行后的版本，说明修改已经在文档中，
+ * 命中时只回复缓存的总结，不调用模型、也不重复写文档。
+ * 按最近使用淘汰；观察到文档版本变化时，该文档其他版本的缓存全部失效
+ */
+@Component
+@Slf4j
+public class ResultCache {
+
+    @Value("${feicur.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.result-cache.max-entries:500}")
+    private int maxEntries;
+
+    private final Map<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> latestRevisions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * 缓存键
+     */
+    record Key(String docToken, String instruction, String position, long revision) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找文档当前版本上的缓存总结，同时按版本号使该文档其他版本的缓存失效
+     *
+     * @param revision 执行前读到的文档版本号
+     */
+    public String lookup(UserCommand command, long revision) {
+        observeRevision(command.getDocToken(), revision);
+        String summary;
+        synchronized (entries) {
+            summary = entries.get(keyOf(command, revision));
+        }
+        if (summary == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return summary;
+    }
+
+    /**
+     * 缓存执行总结
+     *
+     * @param revision 执行后的文档版本号（已包含本次执行的修改）
+     */
+    public void put(UserCommand command, long revision, String summary) {
+        observeRevision(command.getDocToken(), revision);
+        synchronized (entries) {
+            entries.put(keyOf(command, revision), summary);
+            Iterator<Key> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 记录文档的最新版本号，版本变化时删除该文档其他版本的缓存
+     */
+    public void observeRevision(String docToken, long revision) {
+        Long previous = latestRevisions.put(docToken, revision);
+        if (previous == null || previous == revision) {
+            return;
+        }
+        synchronized (entries) {
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                Key key = keys.next();
+                if (key.docToken().equals(docToken) && key.revision() != revision) {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 规范化指令：统一全半角、大小写，合并空白，去掉结尾标点
+     */
+    static String normalize(String instruction) {
+        if (instruction == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(instruction, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+        return normalized.replaceAll("[\\p{Punct}。！？，、；：…]+$", "");
+    }
+
+    private static Key keyOf(UserCommand command, long revision) {
+        String position = command.getSourceComment() != null ?
+                Objects.requireNonNullElse(command.getSourceComment().getPosition(), "") : "";
+        return new Key(command.getDocToken(), normalize(command.getContent()), position, revision);
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("enabled", enabled);
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("trackedDocs", latestRevisions.size());
+        return stats;
+    }
+}
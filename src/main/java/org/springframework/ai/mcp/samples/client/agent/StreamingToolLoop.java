@@ -0,0 +1,222 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.mcp.samples.client.api.DocumentConflictException;
+import org.springframework.ai.mcp.samples.client.executor.CommandCancelledException;
+import org.springframework.ai.mcp.samples.client.executor.CommandHandle;
+import org.springframework.ai.mcp.samples.client.executor.CommandTimeoutException;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流式执行模型与工具调用的循环
+ * 关闭框架内部的工具执行，自行消费流式响应：每个工具调用的参数一完整就立即发起，不等整轮响应结束。
+ * 只读工具并发执行；写工具按模型给出的顺序串行执行。
+ * 流中断时取消尚未完成的只读调用、不再发起新的写调用，并等待已开始的写调用结束，
+ * 保证报告的结果与文档上实际发生的修改一致
+ */
+@Slf4j
+class StreamingToolLoop {
+
+    private final ChatClient chatClient;
+    private final CommandHandle handle;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final long prefixHash;
+    private final Map<String, GuardedToolCallback> toolsByName = new HashMap<>();
+    private final ToolCallingChatOptions options;
+    private final int maxRounds;
+
+    /**
+     * @param model 使用的模型，null表示默认模型
+     * @param prefixHash 稳定前缀哈希，用于按前缀统计缓存命中
+     */
+    StreamingToolLoop(ChatClient chatClient, CommandHandle handle, ToolCallback[] tools, String model,
+                      PromptCacheMetrics promptCacheMetrics, long prefixHash, int maxRounds) {
+        this.chatClient = chatClient;
+        this.handle = handle;
+        this.promptCacheMetrics = promptCacheMetrics;
+        this.prefixHash = prefixHash;
+        this.maxRounds = maxRounds;
+        for (ToolCallback tool : tools) {
+            toolsByName.put(tool.getToolDefinition().name(), (GuardedToolCallback) tool);
+        }
+        this.options = ToolCallingChatOptions.builder()
+                .toolCallbacks(tools)
+                .internalToolExecutionEnabled(false)
+                .model(model)
+                .build();
+    }
+
+    /**
+     * 执行到模型不再请求工具调用为止，返回模型最后的文本输出
+     */
+    String run(String systemPrompt, String userMessage) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new SystemMessage(systemPrompt));
+        messages.add(new UserMessage(userMessage));
+
+        for (int round = 1; round <= maxRounds; round++) {
+            handle.checkActive();
+            handle.reportProgress("第" + round + "轮：模型生成中");
+            Round current = new Round();
+            try {
+                chatClient.prompt()
+                        .messages(messages)
+                        .options(options)
+                        .stream()
+                        .chatResponse()
+                        .doOnNext(current::onResponse)
+                        .blockLast();
+                promptCacheMetrics.recordResponse(prefixHash, current.lastResponse);
+                if (current.dispatched.isEmpty()) {
+                    handle.reportProgress("完成");
+                    return current.text.toString();
+                }
+                handle.reportProgress("第" + round + "轮：等待" + current.dispatched.size() + "个工具调用");
+                List<ToolResponseMessage.ToolResponse> responses = current.awaitResults();
+                messages.add(new AssistantMessage(current.text.toString(), Map.of(), current.toolCalls));
+                messages.add(new ToolResponseMessage(responses));
+            } catch (RuntimeException e) {
+                current.abort();
+                throw e;
+            }
+        }
+        throw new IllegalStateException("Model did not finish within " + maxRounds + " tool rounds");
+    }
+
+    /**
+     * 一轮模型响应及其发起的工具调用
+     */
+    private class Round {
+        private final StringBuilder text = new StringBuilder();
+        private final List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        private final List<CompletableFuture<String>> dispatched = new ArrayList<>();
+        private final Set<String> dispatchedKeys = new HashSet<>();
+        private CompletableFuture<?> writeChain = CompletableFuture.completedFuture(null);
+        private volatile boolean aborted = false;
+        private ChatResponse lastResponse;
+
+        void onResponse(ChatResponse response) {
+            lastResponse = response;
+            for (Generation generation : response.getResults()) {
+                AssistantMessage output = generation.getOutput();
+                if (output.getText() != null) {
+                    text.append(output.getText());
+                }
+                for (AssistantMessage.ToolCall toolCall : output.getToolCalls()) {
+                    String key = toolCall.id() != null && !toolCall.id().isEmpty() ? toolCall.id() :
+                            toolCall.name() + ":" + toolCall.arguments();
+                    if (dispatchedKeys.add(key)) {
+                        dispatch(toolCall);
+                    }
+                }
+            }
+        }
+
+        private void dispatch(AssistantMessage.ToolCall toolCall) {
+            toolCalls.add(toolCall);
+            GuardedToolCallback tool = toolsByName.get(toolCall.name());
+            CompletableFuture<String> future;
+            if (tool == null) {
+                future = CompletableFuture.completedFuture("Error: unknown tool " + toolCall.name());
+            } else if (tool.isReadOnly()) {
+                future = tool.callAsync(toolCall.arguments());
+            } else {
+                // 写调用串行：前一个写调用结束（无论成败）后才开始，中断后不再开始新的写调用
+                future = writeChain.handle((ignored, error) -> null).thenCompose(ignored -> aborted ?
+                        CompletableFuture.failedFuture(new CommandCancelledException("Stream aborted")) :
+                        tool.callAsync(toolCall.arguments()));
+                writeChain = future;
+            }
+            dispatched.add(future);
+            handle.reportProgress("调用工具 " + toolCall.name());
+            log.debug("Dispatched tool call {} for doc {}", toolCall.name(), handle.getCommand().getDocToken());
+        }
+
+        /**
+         * 按发起顺序收集工具结果；普通工具错误作为结果返回给模型，取消、超时和文档修改冲突则终止执行
+         */
+        List<ToolResponseMessage.ToolResponse> awaitResults() {
+            List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>();
+            for (int i = 0; i < dispatched.size(); i++) {
+                AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+                String result;
+                try {
+                    result = dispatched.get(i).get(handle.getCommand().remainingMillis(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    throw new CommandTimeoutException("Tool " + toolCall.name() + " did not finish before the command deadline");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CommandCancelledException("Tool " + toolCall.name() + " interrupted: " + handle.getCancelReason());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof CommandCancelledException || cause instanceof CommandTimeoutException ||
+                        cause instanceof DocumentConflictException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof TimeoutException) {
+                        throw new CommandTimeoutException("Tool " + toolCall.name() + " did not finish before the command deadline");
+                    }
+                    result = "Error: " + (cause != null ? cause.getMessage() : e.getMessage());
+                }
+                responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), result));
+            }
+            return responses;
+        }
+
+        /**
+         * 中断：取消未完成的只读调用，不再开始新的写调用，等待已开始的写调用结束
+         */
+        void abort() {
+            aborted = true;
+            for (int i = 0; i < dispatched.size(); i++) {
+                GuardedToolCallback tool = toolsByName.get(toolCalls.get(i).name());
+                if (tool != null && tool.isReadOnly()) {
+                    dispatched.get(i).cancel(true);
+                }
+            }
+            // 指令被取消时本线程已被中断，先清除中断标记再等待写调用结束
+            boolean interrupted = Thread.interrupted();
+            try {
+                writeChain.handle((ignored, error) -> null)
+                        .get(Math.max(handle.getCommand().remainingMillis(), 1000), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                log.warn("In-flight write tool call for doc {} did not settle after abort",
+                        handle.getCommand().getDocToken());
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
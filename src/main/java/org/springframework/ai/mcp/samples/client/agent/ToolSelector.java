@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按相关性为每条指令挑选工具
+ * 飞书MCP服务器提供几十个工具，全部工具定义都放进请求会拉长提示词、增加延迟并提高误调用概率。
+ * 工具名（按驼峰拆分）、描述和参数名建立一次TF-IDF索引，指令内容与引用原文按同样方式分词后打分，
+ * 只把得分最高的top-k个工具和常驻工具（读写文档正文所需）交给模型；没有任何工具得分时退回全部工具
+ * （全部工具的前缀在这类指令间保持一致，仍可命中提示词前缀缓存）
+ */
+@Component
+@Slf4j
+public class ToolSelector {
+
+    private static final Pattern LATIN_WORD = Pattern.compile("[a-z0-9]+");
+    private static final Pattern CAMEL_BOUNDARY = Pattern.compile("(?<=[a-z0-9])(?=[A-Z])|[_\\-./\\s]+");
+
+    /**
+     * 指令类型对应的关键词，只在评论得分相同的工具之间决定先后，不参与是否退回全部工具的判断
+     */
+    private static final Map<String, List<String>> TYPE_KEYWORDS = Map.of(
+            "ADD_REQUIREMENT", List.of("block", "document", "create", "update", "patch"),
+            "UPDATE_REQUIREMENT", List.of("block", "document", "update", "patch"),
+            "REOPEN_REQUIREMENT", List.of("block", "document", "update", "patch"));
+
+    @Value("${feicur.agent.tool-top-k:12}")
+    private int topK;
+
+    @Value("${feicur.agent.core-tool-pattern:.*(docxV1(Document|DocumentBlock|DocumentBlockChildren)(Get|RawContent|List|Patch|BatchUpdate|Create)|feicur_apply_block_edits).*}")
+    private String coreToolPattern;
+
+    private volatile Index index;
+    private volatile Pattern coreToolRegex;
+
+    private final AtomicLong selections = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong selectedTools = new AtomicLong();
+
+    /**
+     * 挑选与指令相关的工具，保持输入中的相对顺序
+     */
+    public ToolCallback[] select(UserCommand command, ToolCallback[] tools) {
+        if (topK <= 0 || tools.length <= topK) {
+            return tools;
+        }
+        Index current = indexFor(tools);
+        Set<String> query = termCounts(queryText(command)).keySet();
+        Set<String> typeTerms = new HashSet<>(TYPE_KEYWORDS.getOrDefault(command.getCommandType(), List.of()));
+
+        double[] scores = new double[tools.length];
+        double[] tieBreaks = new double[tools.length];
+        for (int i = 0; i < tools.length; i++) {
+            scores[i] = current.score(i, query);
+            tieBreaks[i] = current.score(i, typeTerms);
+        }
+        Integer[] order = new Integer[tools.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ?
+                Double.compare(scores[b], scores[a]) : Double.compare(tieBreaks[b], tieBreaks[a]));
+
+        selections.incrementAndGet();
+        if (scores[order[0]] <= 0) {
+            fallbacks.incrementAndGet();
+            selectedTools.addAndGet(tools.length);
+            return tools;
+        }
+
+        boolean[] keep = new boolean[tools.length];
+        Pattern core = getCoreToolRegex();
+        for (int i = 0; i < tools.length; i++) {
+            keep[i] = core.matcher(tools[i].getToolDefinition().name()).matches();
+        }
+        for (int rank = 0; rank < topK && scores[order[rank]] > 0; rank++) {
+            keep[order[rank]] = true;
+        }
+        List<ToolCallback> selected = new ArrayList<>();
+        for (int i = 0; i < tools.length; i++) {
+            if (keep[i]) {
+                selected.add(tools[i]);
+            }
+        }
+        selectedTools.addAndGet(selected.size());
+        log.debug("Selected {} of {} tools for {} on doc {}",
+                selected.size(), tools.length, command.getCommandType(), command.getDocToken());
+        return selected.toArray(new ToolCallback[0]);
+    }
+
+    private static String queryText(UserCommand command) {
+        StringBuilder text = new StringBuilder();
+        if (command.getContent() != null) {
+            text.append(command.getContent());
+        }
+        if (command.getSourceComment() != null && command.getSourceComment().getPosition() != null) {
+            text.append(' ').append(command.getSourceComment().getPosition());
+        }
+        return text.toString();
+    }
+
+    /**
+     * 工具集合变化（MCP服务器重连、新服务器就绪）时重建索引
+     */
+    private Index indexFor(ToolCallback[] tools) {
+        Index current = index;
+        if (current == null || !current.matches(tools)) {
+            current = new Index(tools);
+            index = current;
+            log.info("Indexed {} tools for relevance-based selection", tools.length);
+        }
+        return current;
+    }
+
+    /**
+     * 分词：拉丁字母按单词（驼峰拆分后小写），中文按相邻两字
+     */
+    static Map<String, Integer> termCounts(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return counts;
+        }
+        for (String part : CAMEL_BOUNDARY.split(text)) {
+            Matcher words = LATIN_WORD.matcher(part.toLowerCase(Locale.ROOT));
+            while (words.find()) {
+                if (words.group().length() > 1) {
+                    counts.merge(words.group(), 1, Integer::sum);
+                }
+            }
+        }
+        char previous = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean cjk = Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+            if (cjk && previous != 0) {
+                counts.merge(new String(new char[] {previous, c}), 1, Integer::sum);
+            }
+            previous = cjk ? c : 0;
+        }
+        return counts;
+    }
+
+    /**
+     * 工具文档的TF-IDF索引
+     */
+    private static final class Index {
+        private final String[] names;
+        private final List<Map<String, Integer>> documents = new ArrayList<>();
+        private final Map<String, Double> idf = new HashMap<>();
+
+        Index(ToolCallback[] tools) {
+            names = new String[tools.length];
+            Map<String, Integer> documentFrequency = new HashMap<>();
+            for (int i = 0; i < tools.length; i++) {
+                names[i] = tools[i].getToolDefinition().name();
+                Map<String, Integer> terms = termCounts(names[i] + " " +
+                        tools[i].getToolDefinition().description() + " " +
+                        schemaPropertyNames(tools[i].getToolDefinition().inputSchema()));
+                documents.add(terms);
+                terms.keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+            }
+            documentFrequency.forEach((term, df) -> idf.put(term, Math.log(1.0 + (double) tools.length / df)));
+        }
+
+        boolean matches(ToolCallback[] tools) {
+            if (tools.length != names.length) {
+                return false;
+            }
+            for (int i = 0; i < tools.length; i++) {
+                if (!names[i].equals(tools[i].getToolDefinition().name())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double score(int tool, Set<String> queryTerms) {
+            Map<String, Integer> terms = documents.get(tool);
+            double score = 0;
+            for (String term : queryTerms) {
+                Integer tf = terms.get(term);
+                if (tf != null) {
+                    score += (1 + Math.log(tf)) * idf.get(term);
+                }
+            }
+            return score;
+        }
+
+        private static String schemaPropertyNames(String schema) {
+            // 参数名以 "name": 形式出现，只取键名，忽略类型等通用词
+            StringBuilder keys = new StringBuilder();
+            Matcher matcher = Pattern.compile("\"([A-Za-z_][A-Za-z0-9_]*)\"\\s*:").matcher(schema == null ? "" : schema);
+            while (matcher.find()) {
+                String key = matcher.group(1);
+                if (!key.equals("type") && !key.equals("properties") && !key.equals("description") &&
+                        !key.equals("required") && !key.equals("items")) {
+                    keys.append(key).append(' ');
+                }
+            }
+            return keys.toString();
+        }
+    }
+
+    private Pattern getCoreToolRegex() {
+        if (coreToolRegex == null) {
+            coreToolRegex = Pattern.compile(coreToolPattern);
+        }
+        return coreToolRegex;
+    }
+
+    /**
+     * 获取统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long total = selections.get();
+        Index current = index;
+        stats.put("topK", topK);
+        stats.put("indexedTools", current != null ? current.names.length : 0);
+        stats.put("selections", total);
+        stats.put("fallbacks", fallbacks.get());
+        stats.put("avgSelected", total == 0 ? 0.0 : Math.round(selectedTools.get() * 10.0 / total) / 10.0);
+        return stats;
+    }
+}
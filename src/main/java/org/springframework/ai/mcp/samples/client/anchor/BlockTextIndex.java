@@ -0,0 +1,211 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.anchor;
+
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+
+import java.util.*;
+
+/**
+ * 单个文档的块文本索引
+ * 以连续4个字符（精确编码为long，无哈希冲突）为键建立倒排表，查找引用原文时取原文中最稀有的片段，
+ * 只在包含该片段的少数块中做子串校验。文档更新时只对文本变化的块增删倒排项
+ */
+class BlockTextIndex {
+
+    static final int SHINGLE = 4;
+
+    private final List<String> order = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Map<String, DocBlock> blocks = new HashMap<>();
+    private final Map<Long, Set<String>> postings = new HashMap<>();
+
+    /**
+     * 用最新的块列表更新索引，返回文本发生变化的块数
+     */
+    synchronized int update(List<DocBlock> latest) {
+        Map<String, DocBlock> incoming = new HashMap<>();
+        for (DocBlock block : latest) {
+            incoming.put(block.getBlockId(), block);
+        }
+        int changed = 0;
+        for (Iterator<Map.Entry<String, DocBlock>> it = blocks.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, DocBlock> entry = it.next();
+            DocBlock next = incoming.get(entry.getKey());
+            if (next == null || !Objects.equals(next.getText(), entry.getValue().getText())) {
+                removePostings(entry.getKey(), entry.getValue().getText());
+                it.remove();
+                changed++;
+            }
+        }
+        for (DocBlock block : latest) {
+            if (!blocks.containsKey(block.getBlockId())) {
+                blocks.put(block.getBlockId(), block);
+                addPostings(block.getBlockId(), block.getText());
+                changed++;
+            } else {
+                blocks.put(block.getBlockId(), block);
+            }
+        }
+        order.clear();
+        positions.clear();
+        for (DocBlock block : latest) {
+            positions.put(block.getBlockId(), order.size());
+            order.add(block.getBlockId());
+        }
+        return changed;
+    }
+
+    /**
+     * 定位引用原文所在的块（按文档顺序）；跨块的引用按行拆分后分别定位，找不到时返回空列表
+     */
+    synchronized List<String> resolve(String quote) {
+        if (quote == null || quote.isBlank()) {
+            return List.of();
+        }
+        String whole = findBlock(quote.strip(), -1);
+        if (whole != null) {
+            return List.of(whole);
+        }
+        List<String> found = new ArrayList<>();
+        int after = -1;
+        for (String line : quote.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String blockId = findBlock(line.strip(), after);
+            if (blockId == null) {
+                return List.of();
+            }
+            if (!found.contains(blockId)) {
+                found.add(blockId);
+            }
+            after = positions.get(blockId);
+        }
+        return found;
+    }
+
+    /**
+     * 在块列表中取指定块及其前后各context个块
+     */
+    synchronized List<DocBlock> withContext(List<String> blockIds, int context) {
+        SortedSet<Integer> selected = new TreeSet<>();
+        for (String blockId : blockIds) {
+            Integer position = positions.get(blockId);
+            if (position == null) {
+                continue;
+            }
+            for (int i = Math.max(0, position - context); i <= Math.min(order.size() - 1, position + context); i++) {
+                selected.add(i);
+            }
+        }
+        List<DocBlock> result = new ArrayList<>();
+        for (int position : selected) {
+            result.add(blocks.get(order.get(position)));
+        }
+        return result;
+    }
+
+    /**
+     * 索引中的全部块（文档顺序）
+     */
+    synchronized List<DocBlock> blocks() {
+        List<DocBlock> result = new ArrayList<>(order.size());
+        for (String blockId : order) {
+            result.add(blocks.get(blockId));
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return blocks.size();
+    }
+
+    /**
+     * 查找包含text的块，优先返回位置在after之后的第一个
+     */
+    private String findBlock(String text, int after) {
+        Collection<String> candidates;
+        if (text.length() < SHINGLE) {
+            candidates = order;
+        } else {
+            candidates = rarestPosting(text);
+            if (candidates.isEmpty()) {
+                return null;
+            }
+        }
+        String best = null;
+        int bestPosition = Integer.MAX_VALUE;
+        for (String blockId : candidates) {
+            DocBlock block = blocks.get(blockId);
+            if (block == null || block.getText() == null || !block.getText().contains(text)) {
+                continue;
+            }
+            int position = positions.getOrDefault(blockId, Integer.MAX_VALUE);
+            // 位于after之后的块优先，其次是文档中最靠前的块
+            int rank = position > after ? position : position + order.size();
+            if (rank < bestPosition) {
+                bestPosition = rank;
+                best = blockId;
+            }
+        }
+        return best;
+    }
+
+    private Set<String> rarestPosting(String text) {
+        Set<String> rarest = null;
+        for (int i = 0; i + SHINGLE <= text.length(); i++) {
+            Set<String> posting = postings.get(shingle(text, i));
+            if (posting == null) {
+                return Set.of();
+            }
+            if (rarest == null || posting.size() < rarest.size()) {
+                rarest = posting;
+            }
+        }
+        return rarest == null ? Set.of() : rarest;
+    }
+
+    private void addPostings(String blockId, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i + SHINGLE <= text.length(); i++) {
+            postings.computeIfAbsent(shingle(text, i), k -> new HashSet<>(2)).add(blockId);
+        }
+    }
+
+    private void removePostings(String blockId, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i + SHINGLE <= text.length(); i++) {
+            long key = shingle(text, i);
+            Set<String> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(blockId);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private static long shingle(String text, int start) {
+        return ((long) text.charAt(start) << 48) | ((long) text.charAt(start + 1) << 32) |
+               ((long) text.charAt(start + 2) << 16) | text.charAt(start + 3);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.anchor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 评论引用原文到文档块的定位索引
+ * 每个文档维护一份块文本索引，文档版本号变化时重新拉取块列表并只更新文本变化的块；块修改写入的内容直接更新索引，不重新拉取；
+ * Agent据此只把引用所在的块和少量上下文交给模型，而不是整篇文档
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuoteAnchorIndex {
+
+    private final FeishuApi feishuApi;
+
+    @Value("${feicur.anchor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.anchor.context-blocks:1}")
+    private int contextBlocks;
+
+    @Value("${feicur.anchor.max-docs:200}")
+    private int maxDocs;
+
+    private final Map<String, DocIndex> indexes = new ConcurrentHashMap<>();
+
+    private final AtomicLong resolved = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong writesApplied = new AtomicLong();
+    private final AtomicLong resolveNanos = new AtomicLong();
+
+    private static final class DocIndex {
+        private final BlockTextIndex index = new BlockTextIndex();
+        private volatile long revision = Long.MIN_VALUE;
+        private volatile long lastUsed = System.currentTimeMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 定位引用原文所在的块并附带前后context-blocks个块；无法定位时返回空列表（由模型自行读取文档）
+     *
+     * @param revision 文档当前版本号，版本与索引不一致时先刷新索引
+     */
+    public List<DocBlock> locate(String docToken, long revision, String quote) {
+        if (!enabled || quote == null || quote.isBlank()) {
+            return List.of();
+        }
+        DocIndex doc = refreshed(docToken, revision);
+
+        long start = System.nanoTime();
+        List<String> blockIds = doc.index.resolve(quote);
+        resolveNanos.addAndGet(System.nanoTime() - start);
+        if (blockIds.isEmpty()) {
+            unresolved.incrementAndGet();
+            return List.of();
+        }
+        resolved.incrementAndGet();
+        return doc.index.withContext(blockIds, contextBlocks);
+    }
+
+    /**
+     * 文档在指定版本的全部块（文档顺序），供块修改比较差异；索引版本不一致时先刷新，未启用索引时直接拉取
+     */
+    public List<DocBlock> blocks(String docToken, long revision) {
+        if (!enabled) {
+            return feishuApi.listDocumentBlocks(docToken);
+        }
+        DocIndex doc = refreshed(docToken, revision);
+        synchronized (doc) {
+            return doc.index.blocks();
+        }
+    }
+
+    /**
+     * 记录块修改刚写入的内容：索引仍停在写入前的版本时直接用写入后的块更新索引并推进版本号，
+     * 之后在该版本上定位不再重新拉取块列表。索引已不在写入前的版本、或写入后的内容或版本未知时作废索引版本，下次使用时重新拉取
+     *
+     * @param baseRevision 修改所基于的版本
+     * @param revision 写入后的版本，未知时为null
+     * @param latest 写入后的全部块（文档顺序），未知时为null
+     */
+    public void recordWrite(String docToken, long baseRevision, Long revision, List<DocBlock> latest) {
+        DocIndex doc = indexes.get(docToken);
+        if (doc == null) {
+            return;
+        }
+        synchronized (doc) {
+            if (doc.revision == baseRevision && revision != null && latest != null) {
+                int changed = doc.index.update(latest);
+                doc.revision = revision;
+                writesApplied.incrementAndGet();
+                log.debug("Applied own write to block index for doc {}: revision {} -> {}, {} changed",
+                        docToken, baseRevision, revision, changed);
+            } else {
+                doc.revision = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * 取文档的索引，版本与索引不一致时重新拉取块列表并只更新文本变化的块
+     */
+    private DocIndex refreshed(String docToken, long revision) {
+        if (!indexes.containsKey(docToken)) {
+            evictIfFull();
+        }
+        DocIndex doc = indexes.computeIfAbsent(docToken, k -> new DocIndex());
+        doc.lastUsed = System.currentTimeMillis();
+        synchronized (doc) {
+            if (doc.revision != revision) {
+                List<DocBlock> blocks = feishuApi.listDocumentBlocks(docToken);
+                int changed = doc.index.update(blocks);
+                doc.revision = revision;
+                refreshes.incrementAndGet();
+                log.debug("Refreshed block index for doc {} at revision {}: {} blocks, {} changed",
+                        docToken, revision, blocks.size(), changed);
+            }
+        }
+        return doc;
+    }
+
+    /**
+     * 停止监听的文档不再需要索引
+     */
+    public void remove(String docToken) {
+        indexes.remove(docToken);
+    }
+
+    private void evictIfFull() {
+        if (indexes.size() < maxDocs) {
+            return;
+        }
+        indexes.entrySet().stream()
+                .min((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed))
+                .ifPresent(eldest -> indexes.remove(eldest.getKey()));
+    }
+
+    /**
+     * 获取索引统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long lookups = resolved.get() + unresolved.get();
+        stats.put("enabled", enabled);
+        stats.put("docs", indexes.size());
+        stats.put("blocks", indexes.values().stream().mapToInt(doc -> doc.index.size()).sum());
+        stats.put("resolved", resolved.get());
+        stats.put("unresolved", unresolved.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("writesApplied", writesApplied.get());
+        stats.put("avgResolveMicros", lookups == 0 ? 0 : resolveNanos.get() / lookups / 1000);
+        return stats;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.api;
+
+/**
+ * 文档在修改计算出来之后已被修改：飞书拒绝了基于旧版本号的写入
+ * 不作为工具错误交给模型重试，而是让整个指令失败，避免基于过期内容继续修改
+ */
+public class DocumentConflictException extends RuntimeException {
+
+    private final String docToken;
+
+    public DocumentConflictException(String docToken, String message) {
+        super("Document " + docToken + " changed while applying edits: " + message);
+        this.docToken = docToken;
+    }
+
+    public String getDocToken() {
+        return docToken;
+    }
+}
@@ -15,12 +15,23 @@
  */
 package org.springframework.ai.mcp.samples.client.api;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.metrics.PipelineMetrics;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
 import org.springframework.ai.mcp.samples.client.model.RawComment;
-import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.mcp.samples.client.model.SpaceEntry;
+import org.springframework.ai.mcp.samples.client.resilience.AsyncRetryExecutor;
+import org.springframework.ai.mcp.samples.client.resilience.DocResilienceRegistry;
+import org.springframework.ai.mcp.samples.client.resilience.FeishuRateGovernor;
+import org.springframework.ai.mcp.samples.client.resilience.HedgedCallExecutor;
+import org.springframework.ai.mcp.samples.client.resilience.RateLimitedException;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
 import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
@@ -30,6 +41,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 /**
  * 飞书API调用封装
@@ -39,23 +54,145 @@ import java.util.*;
 @Slf4j
 public class FeishuApi {
     
-    private final ToolCallbackProvider toolCallbackProvider;
+    /**
+     * 写入失败响应中表示文档版本不符的错误
+     */
+    private static final Pattern REVISION_ERROR = Pattern.compile("(?i)revision");
+    
+    private final TenantRegistry tenantRegistry;
+    private final DocResilienceRegistry docResilienceRegistry;
+    private final FeishuRateGovernor rateGovernor;
+    private final AsyncRetryExecutor asyncRetryExecutor;
+    private final StringInterner stringInterner;
+    private final PipelineMetrics pipelineMetrics;
+    private final HedgedCallExecutor hedgedCallExecutor;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    /**
+     * 非docx文档的类型（评论接口的file_type），未登记的文档按docx处理
+     */
+    private final Map<String, String> fileTypes = new ConcurrentHashMap<>();
+    
+    @Value("${feicur.feishu.read-timeout:30000}")
+    private long readTimeout;
+    
+    @Value("${feicur.writeback.reply-tool:spring_ai_mcp_client_feishu_driveV1FileCommentReplyCreate}")
+    private String replyToolName;
+    
+    @Value("${feicur.writeback.resolve-tool:spring_ai_mcp_client_feishu_driveV1FileCommentPatch}")
+    private String resolveToolName;
+    
+    @Value("${feicur.feishu.document-tool:spring_ai_mcp_client_feishu_docxV1DocumentGet}")
+    private String documentToolName;
+    
+    @Value("${feicur.feishu.block-list-tool:spring_ai_mcp_client_feishu_docxV1DocumentBlockList}")
+    private String blockListToolName;
+    
+    @Value("${feicur.feishu.block-batch-update-tool:spring_ai_mcp_client_feishu_docxV1DocumentBlockBatchUpdate}")
+    private String blockBatchUpdateToolName;
+    
+    @Value("${feicur.feishu.block-children-create-tool:spring_ai_mcp_client_feishu_docxV1DocumentBlockChildrenCreate}")
+    private String blockChildrenCreateToolName;
+    
+    @Value("${feicur.feishu.block-children-delete-tool:spring_ai_mcp_client_feishu_docxV1DocumentBlockChildrenBatchDelete}")
+    private String blockChildrenDeleteToolName;
+    
+    @Value("${feicur.feishu.wiki-node-list-tool:spring_ai_mcp_client_feishu_wikiV2SpaceNodeList}")
+    private String wikiNodeListToolName;
+    
+    @Value("${feicur.feishu.folder-list-tool:spring_ai_mcp_client_feishu_driveV1FileList}")
+    private String folderListToolName;
+    
+    /**
+     * 知识空间或文件夹列表的一页
+     *
+     * @param nextPageToken 下一页的page_token，没有更多时为null
+     */
+    public record SpacePage(List<SpaceEntry> entries, String nextPageToken) {
+    }
+    
+    /**
+     * 插入块的结果
+     *
+     * @param blockIds 新块的ID（按插入顺序），响应中没有时为空列表
+     * @param revision 写入后的文档版本号，响应中没有时为null
+     */
+    public record CreatedBlocks(List<String> blockIds, Long revision) {
+    }
+    
+    /**
+     * 登记文档类型（docx、doc、sheet等），评论的读取、回复和解决都使用该类型
+     */
+    public void registerFileType(String token, String fileType) {
+        if (fileType == null || "docx".equals(fileType)) {
+            fileTypes.remove(token);
+        } else {
+            fileTypes.put(token, fileType);
+        }
+    }
+    
+    /**
+     * 文档类型，未登记时为docx
+     */
+    public String fileTypeOf(String token) {
+        return fileTypes.getOrDefault(token, "docx");
+    }
+    
     /**
      * 获取文档评论列表
+     * 每个文档使用独立的断路器和舱壁（DocResilienceRegistry），单个文档故障不会影响其他文档；
+     * 断路器打开、舱壁已满或配额不足时直接抛出异常，不再重试
      */
     @Retryable(
         value = {Exception.class},
+        exclude = {CallNotPermittedException.class, BulkheadFullException.class, RateLimitedException.class},
         maxAttempts = 3,
         backoff = @Backoff(delay = 1000, multiplier = 2)
     )
-    @CircuitBreaker(name = "feishu-api", fallbackMethod = "listCommentsFallback")
     public List<RawComment> listComments(String token) {
+        return fetchCommentsGuarded(token);
+    }
+    
+    /**
+     * 异步获取文档评论列表
+     * 在feishu-io线程池中执行，失败后按带抖动的退避重新调度，重试等待期间不占用任何线程
+     */
+    public CompletableFuture<List<RawComment>> listCommentsAsync(String token) {
+        return asyncRetryExecutor.submit("listComments(" + token + ")", () -> fetchCommentsGuarded(token));
+    }
+    
+    /**
+     * 在限流、断路器和舱壁保护下获取评论（单次尝试）
+     */
+    private List<RawComment> fetchCommentsGuarded(String token) {
         log.debug("Fetching comments for doc: {}", token);
+        // 轮询属于后台请求，配额紧张时让位于前台写操作
+        FeicurEvents.ListCommentsEvent event = new FeicurEvents.ListCommentsEvent();
+        event.begin();
+        try {
+            rateGovernor.acquire(tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_COMMENT_LIST,
+                    FeishuRateGovernor.Priority.BACKGROUND);
+            List<RawComment> comments = docResilienceRegistry.executeForDoc(tenantRegistry.tenantOf(token), token,
+                    () -> fetchComments(token));
+            event.comments = comments.size();
+            event.success = true;
+            return comments;
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            log.warn("Fetching comments for doc {} rejected: {}", token, e.getMessage());
+            throw e;
+        } finally {
+            event.docToken = token;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 调用MCP工具获取评论
+     */
+    private List<RawComment> fetchComments(String token) {
         try {
             // 查找正确的飞书评论工具
-            ToolCallback feishuTool = findFeishuCommentsToolCallback();
+            ToolCallback feishuTool = findFeishuCommentsToolCallback(token);
             if (feishuTool == null) {
                 log.warn("No mcp_feishu_driveV1FileCommentList tool found, returning empty list");
                 return Collections.emptyList();
@@ -65,43 +202,492 @@ public class FeishuApi {
             var request = Map.of(
                 "path", Map.of("file_token", token),
                 "params", Map.of(
-                    "file_type", "docx",
+                    "file_type", fileTypeOf(token),
                     "page_size", 50,
                     "user_id_type", "open_id"
                 ),
                 "useUAT", true
             );
-            var response = feishuTool.call(objectMapper.writeValueAsString(request));
+            var response = callReadTool(feishuTool, objectMapper.writeValueAsString(request),
+                    tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_COMMENT_LIST);
             
             log.debug("MCP tool response: {}", response);
-            return parseCommentsResponse(response);
+            if (FeishuRateGovernor.isRateLimitError(response)) {
+                throw rateLimited(FeishuRateGovernor.ENDPOINT_COMMENT_LIST, token, response);
+            }
+            FeicurEvents.ParseCommentsEvent parseEvent = new FeicurEvents.ParseCommentsEvent();
+            parseEvent.begin();
+            long parseStart = System.nanoTime();
+            List<RawComment> comments = parseCommentsResponse(response);
+            pipelineMetrics.record(PipelineMetrics.STAGE_PARSE, System.nanoTime() - parseStart);
+            parseEvent.end();
+            if (parseEvent.shouldCommit()) {
+                parseEvent.docToken = token;
+                parseEvent.responseLength = response != null ? response.length() : 0;
+                parseEvent.comments = comments.size();
+                parseEvent.commit();
+            }
+            return comments;
             
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize request for doc: {}", token, e);
             throw new RuntimeException("JSON processing error", e);
+        } catch (RateLimitedException e) {
+            throw e;
         } catch (Exception e) {
+            if (FeishuRateGovernor.isRateLimitError(e.getMessage())) {
+                throw rateLimited(FeishuRateGovernor.ENDPOINT_COMMENT_LIST, token, e.getMessage());
+            }
             log.error("Failed to fetch comments for doc: {}", token, e);
             throw e;
         }
     }
     
     /**
-     * 断路器降级方法
+     * 调用只读工具：启用对冲时，慢调用会在hedge-delay后并发发起一次相同请求，先返回的结果生效；
+     * 首次请求的配额由调用方获取，对冲请求需另外拿到该接口的后台配额，拿不到时不对冲
+     */
+    private String callReadTool(ToolCallback tool, String payload, String tenantId, String endpoint) {
+        if (!hedgedCallExecutor.isHedgeEnabled()) {
+            return tool.call(payload);
+        }
+        try {
+            return hedgedCallExecutor.call(tool.getToolDefinition().name(), () -> tool.call(payload), readTimeout,
+                    () -> rateGovernor.tryAcquireHedge(tenantId, endpoint));
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("MCP tool " + tool.getToolDefinition().name() +
+                    " did not respond within " + readTimeout + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + tool.getToolDefinition().name(), e);
+        }
+    }
+    
+    /**
+     * 飞书返回频率限制错误：通知文档所属租户的限流器冷却
+     */
+    private RateLimitedException rateLimited(String endpoint, String token, String detail) {
+        rateGovernor.onRateLimited(tenantRegistry.tenantOf(token), endpoint);
+        return new RateLimitedException(endpoint,
+                "Feishu rate limit hit on " + endpoint + " for doc " + token + ": " + detail);
+    }
+    
+    /**
+     * 获取文档当前版本号（docx文档的revision_id）
+     * 文档工具不可用或响应无法解析时返回null，调用方应视为版本未知
+     */
+    public Long getDocumentRevision(String token) {
+        ToolCallback tool = findToolCallback(token, documentToolName);
+        if (tool == null) {
+            return null;
+        }
+        try {
+            rateGovernor.acquire(tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_DOCUMENT_GET,
+                    FeishuRateGovernor.Priority.FOREGROUND);
+            var request = Map.of(
+                "path", Map.of("document_id", token),
+                "useUAT", true
+            );
+            String response = callReadTool(tool, objectMapper.writeValueAsString(request),
+                    tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_DOCUMENT_GET);
+            if (FeishuRateGovernor.isRateLimitError(response)) {
+                throw rateLimited(FeishuRateGovernor.ENDPOINT_DOCUMENT_GET, token, response);
+            }
+            JsonNode body = extractSuccessBody(response);
+            JsonNode revision = body == null ? null : body.path("document").get("revision_id");
+            return revision != null && revision.canConvertToLong() ? revision.asLong() : null;
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to read revision of doc {}: {}", token, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 分页获取文档的全部块（按文档顺序）
+     * 文档块工具不可用时返回空列表
+     */
+    public List<DocBlock> listDocumentBlocks(String token) {
+        ToolCallback tool = findToolCallback(token, blockListToolName);
+        if (tool == null) {
+            return Collections.emptyList();
+        }
+        List<DocBlock> blocks = new ArrayList<>();
+        String pageToken = null;
+        try {
+            do {
+                rateGovernor.acquire(tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_BLOCK_LIST,
+                        FeishuRateGovernor.Priority.FOREGROUND);
+                Map<String, Object> params = new HashMap<>();
+                params.put("page_size", 500);
+                params.put("document_revision_id", -1);
+                if (pageToken != null) {
+                    params.put("page_token", pageToken);
+                }
+                var request = Map.of(
+                    "path", Map.of("document_id", token),
+                    "params", params,
+                    "useUAT", true
+                );
+                String response = callReadTool(tool, objectMapper.writeValueAsString(request),
+                        tenantRegistry.tenantOf(token), FeishuRateGovernor.ENDPOINT_BLOCK_LIST);
+                if (FeishuRateGovernor.isRateLimitError(response)) {
+                    throw rateLimited(FeishuRateGovernor.ENDPOINT_BLOCK_LIST, token, response);
+                }
+                JsonNode body = extractSuccessBody(response);
+                if (body == null) {
+                    throw new IllegalStateException("Unexpected block list response for doc " + token + ": " + response);
+                }
+                for (JsonNode item : body.path("items")) {
+                    blocks.add(new DocBlock(
+                        getStringValue(item, "block_id"),
+                        getStringValue(item, "parent_id"),
+                        item.path("block_type").asInt(),
+                        extractBlockText(item),
+                        extractBlockElements(item)
+                    ));
+                }
+                pageToken = body.path("has_more").asBoolean(false) ? getStringValue(body, "page_token") : null;
+            } while (pageToken != null);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON processing error", e);
+        }
+        return blocks;
+    }
+    
+    /**
+     * 批量替换文本块的文本元素（一次调用最多200个块）
+     *
+     * @param revision 修改所基于的文档版本，文档已不在该版本时抛出DocumentConflictException；为null时基于最新版本
+     * @param elements 块ID到新的elements
+     * @return 写入后的文档版本号，响应中没有时为null
+     */
+    public Long batchUpdateBlockElements(String token, Long revision, Map<String, JsonNode> elements) {
+        List<Map<String, Object>> requests = new ArrayList<>();
+        elements.forEach((blockId, blockElements) -> requests.add(Map.of(
+            "block_id", blockId,
+            "update_text_elements", Map.of("elements", blockElements)
+        )));
+        var request = Map.of(
+            "path", Map.of("document_id", token),
+            "params", Map.of("document_revision_id", revisionParam(revision)),
+            "data", Map.of("requests", requests),
+            "useUAT", true
+        );
+        return revisionOf(callWriteTool(blockBatchUpdateToolName, FeishuRateGovernor.ENDPOINT_BLOCK_WRITE, token, request));
+    }
+    
+    /**
+     * 在父块的index位置插入一组文本块
+     *
+     * @param revision 修改所基于的文档版本，文档已不在该版本时抛出DocumentConflictException；为null时基于最新版本
+     */
+    public CreatedBlocks createTextBlocks(String token, Long revision, String parentId, int index, List<String> texts) {
+        List<Map<String, Object>> children = new ArrayList<>();
+        for (String text : texts) {
+            children.add(Map.of(
+                "block_type", 2,
+                "text", Map.of("elements", textElements(text))
+            ));
+        }
+        var request = Map.of(
+            "path", Map.of("document_id", token, "block_id", parentId),
+            "params", Map.of("document_revision_id", revisionParam(revision)),
+            "data", Map.of("index", index, "children", children),
+            "useUAT", true
+        );
+        JsonNode body = callWriteTool(blockChildrenCreateToolName, FeishuRateGovernor.ENDPOINT_BLOCK_WRITE, token, request);
+        List<String> blockIds = new ArrayList<>();
+        if (body != null) {
+            for (JsonNode child : body.path("children")) {
+                blockIds.add(getStringValue(child, "block_id"));
+            }
+        }
+        return new CreatedBlocks(blockIds, revisionOf(body));
+    }
+    
+    /**
+     * 删除父块下[startIndex, endIndex)范围内的子块
+     *
+     * @param revision 修改所基于的文档版本，文档已不在该版本时抛出DocumentConflictException；为null时基于最新版本
+     * @return 写入后的文档版本号，响应中没有时为null
+     */
+    public Long deleteBlockChildren(String token, Long revision, String parentId, int startIndex, int endIndex) {
+        var request = Map.of(
+            "path", Map.of("document_id", token, "block_id", parentId),
+            "params", Map.of("document_revision_id", revisionParam(revision)),
+            "data", Map.of("start_index", startIndex, "end_index", endIndex),
+            "useUAT", true
+        );
+        return revisionOf(callWriteTool(blockChildrenDeleteToolName, FeishuRateGovernor.ENDPOINT_BLOCK_WRITE, token, request));
+    }
+    
+    private static long revisionParam(Long revision) {
+        return revision != null ? revision : -1;
+    }
+    
+    private static Long revisionOf(JsonNode body) {
+        JsonNode revision = body == null ? null : body.get("document_revision_id");
+        return revision != null && revision.canConvertToLong() ? revision.asLong() : null;
+    }
+    
+    private static List<Map<String, Object>> textElements(String text) {
+        return List.of(Map.of("text_run", Map.of("content", text)));
+    }
+    
+    /**
+     * 提取块内容对象（text、heading1、bullet等）的elements，没有时返回null
+     */
+    private JsonNode extractBlockElements(JsonNode block) {
+        for (Iterator<JsonNode> it = block.elements(); it.hasNext(); ) {
+            JsonNode elements = it.next().get("elements");
+            if (elements != null && elements.isArray()) {
+                return elements;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 提取块内文本：块内容对象（text、heading1、bullet等）的elements中的文本
+     */
+    private String extractBlockText(JsonNode block) {
+        StringBuilder text = new StringBuilder();
+        block.fields().forEachRemaining(field -> {
+            JsonNode elements = field.getValue().path("elements");
+            for (JsonNode element : elements) {
+                if (element.has("text_run")) {
+                    text.append(element.path("text_run").path("content").asText(""));
+                } else if (element.has("equation")) {
+                    text.append(element.path("equation").path("content").asText(""));
+                }
+            }
+        });
+        return text.toString();
+    }
+    
+    /**
+     * 解析MCP工具返回的 [{"text": "Success: {...}"}] 格式，非Success时返回null
+     */
+    private JsonNode extractSuccessBody(String response) throws JsonProcessingException {
+        if (response == null || response.isBlank()) {
+            return null;
+        }
+        JsonNode jsonNode = objectMapper.readTree(response);
+        if (!jsonNode.isArray() || jsonNode.isEmpty() || !jsonNode.get(0).has("text")) {
+            return null;
+        }
+        String textContent = jsonNode.get(0).get("text").asText();
+        if (!textContent.startsWith("Success: ")) {
+            return null;
+        }
+        return objectMapper.readTree(textContent.substring("Success: ".length()));
+    }
+    
+    /**
+     * 列出知识空间中某个节点的直接子节点（一页，后台请求）
+     *
+     * @param parentNodeToken 父节点token，为null时列出空间根节点
+     */
+    public SpacePage listWikiNodes(String tenantId, String spaceId, String parentNodeToken, String pageToken) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("page_size", 50);
+        if (parentNodeToken != null) {
+            params.put("parent_node_token", parentNodeToken);
+        }
+        if (pageToken != null) {
+            params.put("page_token", pageToken);
+        }
+        var request = Map.of(
+            "path", Map.of("space_id", spaceId),
+            "params", params,
+            "useUAT", true
+        );
+        JsonNode body = callListTool(tenantId, wikiNodeListToolName, spaceId, request);
+        List<SpaceEntry> entries = new ArrayList<>();
+        for (JsonNode item : body.path("items")) {
+            entries.add(new SpaceEntry(
+                getStringValue(item, "obj_token"),
+                getStringValue(item, "obj_type"),
+                getStringValue(item, "title"),
+                parseUnixTimestamp(item, "obj_edit_time", "node_create_time"),
+                item.path("has_child").asBoolean(false) ? getStringValue(item, "node_token") : null
+            ));
+        }
+        return new SpacePage(entries, body.path("has_more").asBoolean(false) ? getStringValue(body, "page_token") : null);
+    }
+    
+    /**
+     * 列出云空间文件夹中的文件和子文件夹（一页，后台请求）
+     */
+    public SpacePage listFolderFiles(String tenantId, String folderToken, String pageToken) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("folder_token", folderToken);
+        params.put("page_size", 200);
+        if (pageToken != null) {
+            params.put("page_token", pageToken);
+        }
+        var request = Map.of(
+            "params", params,
+            "useUAT", true
+        );
+        JsonNode body = callListTool(tenantId, folderListToolName, folderToken, request);
+        List<SpaceEntry> entries = new ArrayList<>();
+        for (JsonNode item : body.path("files")) {
+            String token = getStringValue(item, "token");
+            String type = getStringValue(item, "type");
+            entries.add(new SpaceEntry(
+                token,
+                type,
+                getStringValue(item, "name"),
+                parseUnixTimestamp(item, "modified_time"),
+                "folder".equals(type) ? token : null
+            ));
+        }
+        return new SpacePage(entries,
+                body.path("has_more").asBoolean(false) ? getStringValue(body, "next_page_token") : null);
+    }
+    
+    /**
+     * 调用列表工具：按租户的后台优先级限流，受租户舱壁保护，响应非Success时抛出异常
+     */
+    private JsonNode callListTool(String tenantId, String toolName, String token, Map<String, Object> request) {
+        ToolCallback tool = findTenantToolCallback(tenantId, toolName);
+        if (tool == null) {
+            throw new IllegalStateException("MCP tool not available: " + toolName);
+        }
+        rateGovernor.acquire(tenantId, FeishuRateGovernor.ENDPOINT_SPACE_LIST,
+                FeishuRateGovernor.Priority.BACKGROUND);
+        try {
+            String payload = objectMapper.writeValueAsString(request);
+            String response = docResilienceRegistry.executeGlobal(tenantId,
+                    () -> callReadTool(tool, payload, tenantId, FeishuRateGovernor.ENDPOINT_SPACE_LIST));
+            if (FeishuRateGovernor.isRateLimitError(response)) {
+                rateGovernor.onRateLimited(tenantId, FeishuRateGovernor.ENDPOINT_SPACE_LIST);
+                throw new RateLimitedException(FeishuRateGovernor.ENDPOINT_SPACE_LIST,
+                        "Feishu rate limit hit on " + toolName + " for " + token + ": " + response);
+            }
+            JsonNode body = extractSuccessBody(response);
+            if (body == null) {
+                throw new IllegalStateException("Unexpected " + toolName + " response for " + token + ": " + response);
+            }
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON processing error", e);
+        }
+    }
+    
+    /**
+     * 文档所属租户的评论工具是否已可用（MCP客户端后台初始化完成后才可用）
+     */
+    public boolean isCommentToolAvailable(String token) {
+        return findFeishuCommentsToolCallback(token) != null;
+    }
+    
+    /**
+     * 回复评论（前台写操作）
+     */
+    public void replyComment(String token, String commentId, String text) {
+        var request = Map.of(
+            "path", Map.of("file_token", token, "comment_id", commentId),
+            "params", Map.of("file_type", fileTypeOf(token)),
+            "data", Map.of("content", Map.of("elements", List.of(Map.of(
+                "type", "text_run",
+                "text_run", Map.of("text", text)
+            )))),
+            "useUAT", true
+        );
+        callWriteTool(replyToolName, FeishuRateGovernor.ENDPOINT_COMMENT_REPLY, token, request);
+    }
+    
+    /**
+     * 将评论标记为已解决（前台写操作）
+     */
+    public void resolveComment(String token, String commentId) {
+        var request = Map.of(
+            "path", Map.of("file_token", token, "comment_id", commentId),
+            "params", Map.of("file_type", fileTypeOf(token)),
+            "data", Map.of("is_solved", true),
+            "useUAT", true
+        );
+        callWriteTool(resolveToolName, FeishuRateGovernor.ENDPOINT_COMMENT_PATCH, token, request);
+    }
+    
+    /**
+     * 调用写操作工具：前台优先级限流，受租户舱壁保护，响应非Success时抛出异常
+     *
+     * @return 响应体，无法解析时为null
+     */
+    private JsonNode callWriteTool(String toolName, String endpoint, String token, Map<String, Object> request) {
+        String tenant = tenantRegistry.tenantOf(token);
+        rateGovernor.acquire(tenant, endpoint, FeishuRateGovernor.Priority.FOREGROUND);
+        ToolCallback tool = findToolCallback(token, toolName);
+        if (tool == null) {
+            throw new IllegalStateException("MCP tool not available: " + toolName);
+        }
+        
+        String response;
+        try {
+            String payload = objectMapper.writeValueAsString(request);
+            response = docResilienceRegistry.executeGlobal(tenant, () -> tool.call(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("JSON processing error", e);
+        } catch (RuntimeException e) {
+            if (FeishuRateGovernor.isRateLimitError(e.getMessage())) {
+                throw rateLimited(endpoint, token, e.getMessage());
+            }
+            if (isRevisionConflict(e.getMessage())) {
+                throw new DocumentConflictException(token, e.getMessage());
+            }
+            throw e;
+        }
+        
+        log.debug("MCP write tool {} response: {}", toolName, response);
+        if (FeishuRateGovernor.isRateLimitError(response)) {
+            throw rateLimited(endpoint, token, response);
+        }
+        if (isRevisionConflict(response)) {
+            throw new DocumentConflictException(token, response);
+        }
+        if (response == null || !response.contains("Success")) {
+            throw new IllegalStateException("MCP tool " + toolName + " failed for doc " + token + ": " + response);
+        }
+        try {
+            return extractSuccessBody(response);
+        } catch (JsonProcessingException e) {
+            log.debug("Unparseable response from MCP write tool {}: {}", toolName, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 写入失败是否因为文档版本已变化（飞书拒绝基于旧document_revision_id的修改）
      */
-    public List<RawComment> listCommentsFallback(String token, Exception ex) {
-        log.warn("Circuit breaker activated for doc: {}, returning empty list. Error: {}", 
-                token, ex.getMessage());
-        return Collections.emptyList();
+    private static boolean isRevisionConflict(String response) {
+        return response != null && !response.contains("Success") && REVISION_ERROR.matcher(response).find();
     }
     
     /**
      * 查找飞书评论工具回调
      */
-    private ToolCallback findFeishuCommentsToolCallback() {
-        ToolCallback[] callbacks = toolCallbackProvider.getToolCallbacks();
+    private ToolCallback findFeishuCommentsToolCallback(String token) {
+        return findToolCallback(token, "spring_ai_mcp_client_feishu_driveV1FileCommentList");
+    }
+    
+    /**
+     * 在文档所属租户的工具中按名称查找工具回调
+     */
+    private ToolCallback findToolCallback(String token, String name) {
+        return findTenantToolCallback(tenantRegistry.tenantOf(token), name);
+    }
+    
+    /**
+     * 在指定租户的工具中按名称查找工具回调
+     */
+    private ToolCallback findTenantToolCallback(String tenantId, String name) {
+        ToolCallback[] callbacks = tenantRegistry.toolCallbacks(tenantId);
         for (ToolCallback callback : callbacks) {
             String toolName = callback.getToolDefinition().name();
-            if ("spring_ai_mcp_client_feishu_driveV1FileCommentList".equals(toolName)) {
+            if (name.equals(toolName)) {
                 return callback;
             }
         }
@@ -206,14 +792,14 @@ public class FeishuApi {
         try {
             RawComment comment = new RawComment();
             
-            // 基础字段
-            comment.setCommentId(getStringValue(commentNode, "comment_id"));
-            comment.setAuthorId(getStringValue(commentNode, "user_id"));
-            comment.setPosition(getStringValue(commentNode, "quote")); // 使用 quote 作为位置信息
+            // 基础字段（每次轮询都重复出现，驻留后快照间共享同一实例；本次解析出的副本仍会分配，随后很快被回收）
+            comment.setCommentId(stringInterner.intern(getStringValue(commentNode, "comment_id")));
+            comment.setAuthorId(stringInterner.intern(getStringValue(commentNode, "user_id")));
+            comment.setPosition(stringInterner.intern(getStringValue(commentNode, "quote"))); // 使用 quote 作为位置信息
             
             // 从 reply_list 中提取评论内容
             String content = extractCommentContent(commentNode);
-            comment.setContent(content);
+            comment.setContent(stringInterner.intern(content));
             
             // 时间字段解析 - 飞书返回的是 Unix 时间戳（秒）
             comment.setCreateTime(parseUnixTimestamp(commentNode, "create_time"));
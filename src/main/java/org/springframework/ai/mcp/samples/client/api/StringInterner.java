@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 字符串驻留池（弱引用、有界）
+ * 评论ID、用户open_id、引用原文和评论内容在每次轮询中重复出现，解析出的字符串替换为池中的同一实例，
+ * 快照只保留一份；不再被任何快照引用的字符串可被GC回收。池按分段加锁，单段超过上限时整段清空。
+ * 注意驻留发生在Jackson已经创建字符串之后，减少的是长期保留的重复实例（老年代占用），不减少解析时的分配量
+ */
+@Component
+public class StringInterner {
+
+    private static final int STRIPES = 32;
+
+    private final Map<String, WeakReference<String>>[] stripes;
+    private final int maxEntriesPerStripe;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public StringInterner(@Value("${feicur.intern.max-entries:200000}") int maxEntries) {
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new WeakHashMap<>();
+        }
+        this.maxEntriesPerStripe = Math.max(16, maxEntries / STRIPES);
+    }
+
+    /**
+     * 返回与value相等的池中实例；池中没有时放入value本身
+     */
+    public String intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        Map<String, WeakReference<String>> stripe = stripes[(value.hashCode() & 0x7fffffff) % STRIPES];
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.get(value);
+            String existing = ref != null ? ref.get() : null;
+            if (existing != null) {
+                hits.incrementAndGet();
+                return existing;
+            }
+            if (stripe.size() >= maxEntriesPerStripe) {
+                // 超过上限时整段清空：已被快照引用的实例不受影响，只是之后不再共享
+                stripe.clear();
+                resets.incrementAndGet();
+            }
+            stripe.put(value, new WeakReference<>(value));
+            misses.incrementAndGet();
+            return value;
+        }
+    }
+
+    /**
+     * 获取驻留池统计
+     */
+    public Map<String, Object> getStats() {
+        int size = 0;
+        for (Map<String, WeakReference<String>> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        long total = hits.get() + misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", total == 0 ? 0.0 : Math.round(hits.get() * 1000.0 / total) / 1000.0);
+        stats.put("resets", resets.get());
+        return stats;
+    }
+}
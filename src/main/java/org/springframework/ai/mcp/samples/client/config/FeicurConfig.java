@@ -15,6 +15,10 @@
  */
 package org.springframework.ai.mcp.samples.client.config;
 
+import org.springframework.ai.mcp.samples.client.executor.ExecutorPools;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.annotation.EnableRetry;
@@ -23,10 +27,12 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Feicur应用配置类
+ * 每个处理阶段使用独立的线程池：文档轮询、评论事件处理、指令分发与执行、结果回写、飞书I/O、工具调用和模型调用，
+ * 一个阶段变慢只会占满自己的线程池。各线程池的统计见 /status 的 executors 字段，可通过 /executors 接口在运行时调整大小
  */
 @Configuration
 @EnableRetry
@@ -35,34 +41,212 @@ import java.util.concurrent.Executor;
 public class FeicurConfig {
     
     /**
-     * 任务调度器配置
-     * 用于@Scheduled定时任务
+     * 定时任务调度器
+     * 用于@Scheduled维护任务（回写合并、状态持久化、统计输出）以及重试退避、对冲请求的计时
      */
     @Bean
-    public ThreadPoolTaskScheduler taskScheduler() {
+    public ThreadPoolTaskScheduler taskScheduler(ExecutorPools executorPools,
+                                                 @Value("${feicur.executor.scheduled.pool-size:2}") int poolSize) {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(5); // 限制并发 DocWatcher 数量
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        executorPools.instrument("scheduled", scheduler);
+        scheduler.initialize();
+        return scheduler;
+    }
+    
+    /**
+     * 文档轮询调度器
+     * 只运行各文档的定时轮询任务，轮询本身的MCP调用在feishu-io线程池中执行
+     */
+    @Bean
+    public ThreadPoolTaskScheduler pollScheduler(ExecutorPools executorPools,
+                                                 @Value("${feicur.executor.poll.pool-size:5}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
         scheduler.setThreadNamePrefix("doc-watcher-");
         scheduler.setWaitForTasksToCompleteOnShutdown(true);
         scheduler.setAwaitTerminationSeconds(30);
+        executorPools.instrument("poll", scheduler);
+        scheduler.initialize();
+        return scheduler;
+    }
+    
+    /**
+     * 指令分发调度器
+     * 单线程从指令队列取指令交给指令执行线程池，等待队列时不占用其他定时任务的线程
+     */
+    @Bean
+    public ThreadPoolTaskScheduler commandDispatchScheduler(ExecutorPools executorPools) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("command-dispatch-");
+        executorPools.instrument("command-dispatch", scheduler);
+        scheduler.initialize();
+        return scheduler;
+    }
+    
+    /**
+     * 空间发现调度器
+     * 单线程执行知识空间/文件夹的列表请求和文档分层，慢的列表请求不占用其他定时任务的线程
+     */
+    @Bean
+    public ThreadPoolTaskScheduler discoveryScheduler(ExecutorPools executorPools) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("discovery-");
+        executorPools.instrument("discovery", scheduler);
         scheduler.initialize();
         return scheduler;
     }
     
     /**
-     * 异步任务执行器配置
-     * 用于@Async异步方法
+     * 评论事件处理执行器
+     * 用于@Async("asyncExecutor")异步方法；队列满时由发布事件的线程直接处理，不丢弃评论事件
      */
     @Bean
-    public Executor asyncExecutor() {
+    public ThreadPoolTaskExecutor asyncExecutor(ExecutorPools executorPools,
+                                                @Value("${feicur.executor.events.core-size:5}") int coreSize,
+                                                @Value("${feicur.executor.events.max-size:10}") int maxSize,
+                                                @Value("${feicur.executor.events.queue-capacity:100}") int queueCapacity) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("event-handler-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
+        executorPools.instrument("events", executor, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 指令执行线程池
+     * 指令在指令队列中等待，分发时先占执行线程的空闲名额再取出。线程数上限为各租户并发上限之和
+     * （未限制的租户按feicur.executor.command.pool-size计）；只有default租户时默认单线程，指令按顺序执行。
+     * 线程按需创建、空闲60秒后回收，实际线程数只随正在执行指令的租户增长；租户之间的隔离由指令队列分区的并发上限保证。
+     * 核心线程数取上限而不是较小的值：否则指令会先排进队列而不是创建新线程，一个租户的指令会挡住其他租户。
+     * 留与线程数相同的排队位置：线程刚执行完、还未回到等待状态时交来的指令排队而不是被拒绝。
+     * 执行名额（CommandExecutor）和租户分区的并发上限（CommandQueue）按配置计算，线程池不允许运行时调整大小
+     */
+    @Bean
+    public ThreadPoolTaskExecutor commandWorkerExecutor(ExecutorPools executorPools,
+                                                        TenantProperties tenantProperties,
+                                                        @Value("${feicur.executor.command.pool-size:1}") int tenantPoolSize) {
+        int poolSize = tenantProperties.totalConcurrentCommands(tenantPoolSize);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(poolSize);
+        executor.setThreadNamePrefix("command-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executorPools.instrument("command", executor, new ThreadPoolExecutor.AbortPolicy(), false);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 结果回写执行器
+     * 回复和解决评论的MCP调用在此执行，不与轮询共用feishu-io线程池
+     */
+    @Bean
+    public ThreadPoolTaskExecutor writeBackExecutor(ExecutorPools executorPools,
+                                                    @Value("${feicur.executor.write-back.pool-size:4}") int poolSize,
+                                                    @Value("${feicur.executor.write-back.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("write-back-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executorPools.instrument("write-back", executor, new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 飞书MCP调用执行器
+     * 异步轮询和重试在此线程池中执行，不占用调度线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor feishuIoExecutor(ExecutorPools executorPools,
+                                                   @Value("${feicur.feishu.io.pool-size:8}") int poolSize,
+                                                   @Value("${feicur.feishu.io.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("feishu-io-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executorPools.instrument("feishu-io", executor, new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 工具调用执行器
+     * 带截止时间的工具调用和对冲请求在此线程池中执行，调用方超时后可中断
+     */
+    @Bean
+    public ThreadPoolTaskExecutor toolCallExecutor(ExecutorPools executorPools,
+                                                   @Value("${feicur.tool-call.pool-size:16}") int poolSize,
+                                                   @Value("${feicur.tool-call.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("tool-call-");
+        executorPools.instrument("tool-call", executor, new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 模型调用执行器
+     * 指令执行线程在此提交模型调用并按截止时间等待，超时或取消时中断。
+     * 线程数上限不少于指令执行线程数，各租户同时执行的指令都能立即拿到模型调用线程；
+     * 与指令执行线程池一样按需创建、空闲60秒后回收
+     */
+    @Bean
+    public ThreadPoolTaskExecutor agentExecutor(ExecutorPools executorPools,
+                                                @Qualifier("commandWorkerExecutor") ThreadPoolTaskExecutor commandWorkerExecutor,
+                                                @Value("${feicur.agent.pool-size:4}") int minPoolSize) {
+        int poolSize = Math.max(minPoolSize, commandWorkerExecutor.getMaxPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(poolSize * 4);
+        executor.setThreadNamePrefix("agent-");
+        executorPools.instrument("agent", executor, new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 分诊小模型调用执行器
+     * 与指令执行的模型调用分开，分诊积压时直接拒绝（按规则放行），不占用agent线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor triageExecutor(ExecutorPools executorPools,
+                                                 @Value("${feicur.triage.pool-size:2}") int poolSize,
+                                                 @Value("${feicur.triage.queue-capacity:8}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("triage-");
+        executorPools.instrument("triage", executor, new ThreadPoolExecutor.AbortPolicy());
         executor.initialize();
         return executor;
     }
-} 
\ No newline at end of file
+}
@@ -16,6 +16,14 @@
 package org.springframework.ai.mcp.samples.client.config;
 
 import org.springframework.ai.mcp.samples.client.Application;
+import org.springframework.ai.mcp.samples.client.event.CommentChangeEvent;
+import org.springframework.ai.mcp.samples.client.model.CommentEvent;
+import org.springframework.ai.mcp.samples.client.model.ExecutionResult;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.mcp.samples.client.watch.WatchRegistryStore;
+import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
 import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
@@ -34,6 +42,9 @@ public class NativeImageConfiguration {
      * 运行时提示注册器，用于注册应用程序所需的反射和资源访问。
      */
     static class NativeImageHints implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
         @Override
         public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
             // 注册主应用类
@@ -43,8 +54,21 @@ public class NativeImageConfiguration {
                     MemberCategory.INVOKE_PUBLIC_METHODS,
                     MemberCategory.DECLARED_FIELDS);
             
+            // 注册数据模型（Lombok生成的getter/setter在REST响应和日志中通过Jackson/反射访问）
+            bindingRegistrar.registerReflectionHints(hints.reflection(),
+                    RawComment.class,
+                    CommentEvent.class,
+                    CommentEvent.Type.class,
+                    UserCommand.class,
+                    ExecutionResult.class,
+                    CommentSnapshot.class,
+                    CommentChangeEvent.class,
+                    WatchRegistryStore.Registry.class,
+                    WatchRegistryStore.PersistedWatch.class);
+            
             // 注册配置文件资源
             hints.resources().registerPattern("application.properties");
+            hints.resources().registerPattern("application-*.properties");
             hints.resources().registerPattern("mcp-servers-config.json");
         }
     }
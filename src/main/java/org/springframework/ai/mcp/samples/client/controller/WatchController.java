@@ -17,12 +17,21 @@ package org.springframework.ai.mcp.samples.client.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.executor.ExecutorPools;
+import org.springframework.ai.mcp.samples.client.jfr.JfrRecordingService;
+import org.springframework.ai.mcp.samples.client.discovery.SpaceDiscovery;
+import org.springframework.ai.mcp.samples.client.mcp.McpClientInitializer;
+import org.springframework.ai.mcp.samples.client.mcp.McpTrafficRecorder;
+import org.springframework.ai.mcp.samples.client.model.BatchWatchRequest;
 import org.springframework.ai.mcp.samples.client.watch.DocWatchManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -38,20 +47,39 @@ import java.util.regex.Pattern;
 public class WatchController {
     
     private final DocWatchManager watchManager;
+    private final McpClientInitializer mcpClientInitializer;
+    private final McpTrafficRecorder trafficRecorder;
+    private final JfrRecordingService jfrRecordingService;
+    private final ExecutorPools executorPools;
+    private final SpaceDiscovery spaceDiscovery;
     
     // 飞书文档URL正则表达式
     private static final Pattern FEISHU_URL_PATTERN = 
             Pattern.compile(".*feishu\\.cn/(?:docx?|docs)/([a-zA-Z0-9]+)");
     
+    // 知识空间、云空间文件夹URL正则表达式
+    private static final Pattern WIKI_SPACE_URL_PATTERN =
+            Pattern.compile(".*feishu\\.cn/wiki/space/([a-zA-Z0-9]+)");
+    private static final Pattern DRIVE_FOLDER_URL_PATTERN =
+            Pattern.compile(".*feishu\\.cn/drive/folder/([a-zA-Z0-9]+)");
+    
+    // 文档token格式
+    private static final Pattern DOC_TOKEN_PATTERN = Pattern.compile("[a-zA-Z0-9]+");
+    
+    // 分页大小上限
+    private static final int MAX_PAGE_SIZE = 500;
+    
     /**
      * 启动文档监听并重定向到原始飞书文档
      * 
      * @param feishuDocUrl 飞书文档完整URL
+     * @param tenant 文档所属租户，不传时属于默认租户
      * @return 302重定向响应
      */
     @GetMapping("/watch")
     public ResponseEntity<Void> startWatchingAndRedirect(
-            @RequestParam("url") String feishuDocUrl) {
+            @RequestParam("url") String feishuDocUrl,
+            @RequestParam(value = "tenant", required = false) String tenant) {
         
         try {
             log.info("接收到监听请求，文档URL: {}", feishuDocUrl);
@@ -61,7 +89,7 @@ public class WatchController {
             log.info("解析到文档token: {}", docToken);
             
             // 2. 启动文档监听
-            watchManager.startWatching(docToken);
+            watchManager.startWatching(docToken, tenant);
             log.info("✅ 已启动文档监听: {}", docToken);
             
             // 3. 重定向到原始飞书文档
@@ -70,7 +98,7 @@ public class WatchController {
                     .build();
                     
         } catch (IllegalArgumentException e) {
-            log.error("❌ URL解析失败: {}", e.getMessage());
+            log.error("❌ URL解析失败或租户未配置: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("❌ 启动监听失败", e);
@@ -117,6 +145,160 @@ public class WatchController {
         }
     }
     
+    /**
+     * 批量启动文档监听
+     * 
+     * @param request 文档URL和/或token列表
+     * @return 每个文档的注册结果
+     */
+    @PostMapping("/watches")
+    public ResponseEntity<Map<String, Object>> startWatchingBatch(
+            @RequestBody BatchWatchRequest request) {
+        
+        try {
+            List<String> tokens = new ArrayList<>();
+            Map<String, Object> results = new LinkedHashMap<>();
+            
+            if (request.getUrls() != null) {
+                for (String url : request.getUrls()) {
+                    try {
+                        tokens.add(extractTokenFromFeishuUrl(url));
+                    } catch (IllegalArgumentException e) {
+                        results.put(String.valueOf(url), DocWatchManager.RegisterResult.INVALID);
+                    }
+                }
+            }
+            if (request.getTokens() != null) {
+                for (String token : request.getTokens()) {
+                    if (token != null && DOC_TOKEN_PATTERN.matcher(token.trim()).matches()) {
+                        tokens.add(token.trim());
+                    } else {
+                        results.put(String.valueOf(token), DocWatchManager.RegisterResult.INVALID);
+                    }
+                }
+            }
+            
+            Map<String, DocWatchManager.RegisterResult> registered = watchManager.startWatchingAll(tokens, request.getTenant());
+            results.putAll(registered);
+            
+            long started = registered.values().stream()
+                    .filter(r -> r == DocWatchManager.RegisterResult.STARTED)
+                    .count();
+            log.info("✅ 批量监听请求: 新增 {} 个文档，共提交 {} 个", started, results.size());
+            
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "started", started,
+                "watchCount", watchManager.getWatchedDocumentCount(),
+                "results", results
+            ));
+            
+        } catch (Exception e) {
+            log.error("❌ 批量启动监听失败", e);
+            return ResponseEntity.ok(Map.of(
+                "success", false,
+                "message", "批量启动监听失败: " + e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 分页查看各文档的监听统计
+     * 
+     * @param page 页码，从0开始
+     * @param size 每页数量
+     * @return 轮询间隔、最近轮询耗时、评论数、事件速率和错误状态
+     */
+    @GetMapping("/watches")
+    public ResponseEntity<Map<String, Object>> listWatches(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(watchManager.listWatches(page, Math.min(size, MAX_PAGE_SIZE)));
+    }
+    
+    /**
+     * 监听整个知识空间或云空间文件夹，其中的文档由空间发现自动加入和移除
+     * 
+     * @param url 知识空间或文件夹URL，与kind+token二选一
+     * @param kind wiki或folder
+     * @param token 知识空间ID或文件夹token
+     * @param tenant 空间所属租户，不传时属于默认租户
+     * @return 空间key
+     */
+    @PostMapping("/spaces")
+    public ResponseEntity<Map<String, Object>> watchSpace(
+            @RequestParam(value = "url", required = false) String url,
+            @RequestParam(value = "kind", required = false) String kind,
+            @RequestParam(value = "token", required = false) String token,
+            @RequestParam(value = "tenant", required = false) String tenant) {
+        
+        try {
+            SpaceDiscovery.Kind spaceKind;
+            String spaceToken;
+            if (url != null && !url.isBlank()) {
+                Matcher wiki = WIKI_SPACE_URL_PATTERN.matcher(url);
+                Matcher folder = DRIVE_FOLDER_URL_PATTERN.matcher(url);
+                if (wiki.find()) {
+                    spaceKind = SpaceDiscovery.Kind.WIKI;
+                    spaceToken = wiki.group(1);
+                } else if (folder.find()) {
+                    spaceKind = SpaceDiscovery.Kind.FOLDER;
+                    spaceToken = folder.group(1);
+                } else {
+                    throw new IllegalArgumentException("无法从URL中解析出知识空间或文件夹: " + url);
+                }
+            } else {
+                if (kind == null || token == null || !DOC_TOKEN_PATTERN.matcher(token.trim()).matches()) {
+                    throw new IllegalArgumentException("需要url，或者kind和token");
+                }
+                spaceKind = SpaceDiscovery.Kind.valueOf(kind.trim().toUpperCase());
+                spaceToken = token.trim();
+            }
+            
+            String key = spaceDiscovery.watch(spaceKind, spaceToken, tenant);
+            log.info("✅ 已开始监听空间: {}", key);
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "key", key
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            log.error("❌ 空间解析失败或租户未配置: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 查看监听中的空间：成员数、爬取进度、各层级文档数和轮询间隔倍数
+     */
+    @GetMapping("/spaces")
+    public ResponseEntity<Map<String, Object>> listSpaces() {
+        return ResponseEntity.ok(spaceDiscovery.getStats());
+    }
+    
+    /**
+     * 停止监听空间，并停止其中只属于该空间的文档
+     * 
+     * @param key 空间key，如wiki:xxx或folder:xxx
+     */
+    @DeleteMapping("/spaces/{key}")
+    public ResponseEntity<Map<String, Object>> unwatchSpace(@PathVariable String key) {
+        boolean removed = spaceDiscovery.unwatch(key);
+        log.info("接收到停止空间监听请求: {}, 是否在监听中: {}", key, removed);
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "key", key,
+            "wasWatching", removed
+        ));
+    }
+    
     /**
      * 查看当前监听状态
      * 
@@ -127,6 +309,7 @@ public class WatchController {
         
         try {
             Map<String, Object> status = watchManager.getWatcherStatus();
+            status.put("discovery", spaceDiscovery.getStats());
             log.debug("查询监听状态: {}", status);
             
             return ResponseEntity.ok(status);
@@ -155,6 +338,100 @@ public class WatchController {
         ));
     }
     
+    /**
+     * 就绪检查端点：返回各MCP服务器的初始化状态
+     * 全部就绪返回200，否则返回503（监听请求仍可提交，工具就绪后自动开始轮询）
+     * 
+     * @return 各MCP服务器初始化状态
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, Object> readiness = mcpClientInitializer.getReadinessStatus();
+        boolean ready = mcpClientInitializer.isAllReady() || trafficRecorder.isReplay();
+        HttpStatus status = ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(readiness);
+    }
+    
+    /**
+     * 查看各线程池的活跃线程数、队列深度、拒绝次数和排队等待时间
+     */
+    @GetMapping("/executors")
+    public ResponseEntity<Map<String, Object>> listExecutors() {
+        return ResponseEntity.ok(executorPools.getStats());
+    }
+    
+    /**
+     * 运行时调整线程池大小
+     * 
+     * @param name 线程池名称（见 GET /executors）
+     * @param coreSize 核心线程数（调度器为线程数）
+     * @param maxSize 最大线程数，省略时与核心线程数相同
+     * @return 调整后的线程池统计
+     */
+    @PostMapping("/executors/{name}")
+    public ResponseEntity<Map<String, Object>> resizeExecutor(
+            @PathVariable("name") String name,
+            @RequestParam("coreSize") int coreSize,
+            @RequestParam(value = "maxSize", required = false) Integer maxSize) {
+        try {
+            return ResponseEntity.ok(executorPools.resize(name, coreSize, maxSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 开始JFR录制（已在录制时返回当前状态）
+     * 
+     * @param settings JDK录制配置：default（开销低，可常开）或profile（更详细）
+     * @return 录制状态
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<Map<String, Object>> startJfr(
+            @RequestParam(value = "settings", required = false) String settings) {
+        try {
+            return ResponseEntity.ok(jfrRecordingService.start(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 导出当前JFR录制到服务器本地文件，录制继续进行
+     * 
+     * @return 导出文件路径
+     */
+    @PostMapping("/jfr/dump")
+    public ResponseEntity<Map<String, Object>> dumpJfr() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "file", jfrRecordingService.dump().toString()
+            ));
+        } catch (IllegalStateException e) {
+            log.warn("JFR dump failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 停止JFR录制
+     */
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<Map<String, Object>> stopJfr() {
+        jfrRecordingService.stop();
+        return ResponseEntity.ok(jfrRecordingService.getStatus());
+    }
+    
     /**
      * 从飞书文档URL中提取文档token
      * 
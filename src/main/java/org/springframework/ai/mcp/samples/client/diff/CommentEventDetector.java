@@ -16,6 +16,7 @@
 package org.springframework.ai.mcp.samples.client.diff;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
 import org.springframework.ai.mcp.samples.client.model.CommentEvent;
 import org.springframework.ai.mcp.samples.client.model.RawComment;
 import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
@@ -39,6 +40,21 @@ public class CommentEventDetector {
      * @return 变更事件列表
      */
     public List<CommentEvent> detectChanges(CommentSnapshot oldSnapshot, CommentSnapshot newSnapshot) {
+        FeicurEvents.DetectEvent event = new FeicurEvents.DetectEvent();
+        event.begin();
+        List<CommentEvent> events = diff(oldSnapshot, newSnapshot);
+        event.end();
+        if (event.shouldCommit()) {
+            event.docToken = newSnapshot != null ? newSnapshot.getDocToken() : null;
+            event.oldComments = oldSnapshot != null ? oldSnapshot.getCommentCount() : 0;
+            event.newComments = newSnapshot != null ? newSnapshot.getCommentCount() : 0;
+            event.events = events.size();
+            event.commit();
+        }
+        return events;
+    }
+    
+    private List<CommentEvent> diff(CommentSnapshot oldSnapshot, CommentSnapshot newSnapshot) {
         List<CommentEvent> events = new ArrayList<>();
         
         if (newSnapshot == null) {
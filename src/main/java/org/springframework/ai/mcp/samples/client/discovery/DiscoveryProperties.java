@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.discovery;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 空间发现配置（feicur.discovery.*）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "feicur.discovery")
+public class DiscoveryProperties {
+
+    /**
+     * 需要监听评论的文档类型，其他类型（bitable、mindnote等）只用于遍历子节点
+     */
+    private List<String> fileTypes = new ArrayList<>(List.of("docx", "doc", "sheet"));
+
+    /**
+     * 每次刷新最多发起的列表请求数（所有空间共享，按空间轮转）
+     */
+    private int listCallsPerTick = 5;
+
+    /**
+     * 已完整列出的节点/文件夹多久后重新列出一次（毫秒）
+     */
+    private long containerRefreshInterval = 600000;
+
+    /**
+     * 列表请求失败后多久重试该节点/文件夹（毫秒）
+     */
+    private long listRetryDelay = 60000;
+
+    /**
+     * 最近编辑或评论变更在该时间内的文档属于热层（毫秒）
+     */
+    private long hotWindow = 3600000;
+
+    /**
+     * 最近编辑或评论变更在该时间内的文档属于温层，更早的属于冷层（毫秒）
+     */
+    private long warmWindow = 86400000;
+
+    /**
+     * 热层基础轮询间隔（毫秒）
+     */
+    private long hotInterval = 30000;
+
+    /**
+     * 温层基础轮询间隔（毫秒）
+     */
+    private long warmInterval = 300000;
+
+    /**
+     * 冷层基础轮询间隔（毫秒）
+     */
+    private long coldInterval = 1800000;
+
+    /**
+     * 每个租户发现的文档轮询评论的总预算（次/秒），超出时按比例放大所有层的轮询间隔
+     */
+    private double pollBudget = 5;
+
+    /**
+     * 单个空间最多监听的文档数
+     */
+    private int maxDocsPerSpace = 5000;
+}
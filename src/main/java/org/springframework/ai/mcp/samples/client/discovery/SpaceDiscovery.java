@@ -0,0 +1,517 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.discovery;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.model.SpaceEntry;
+import org.springframework.ai.mcp.samples.client.resilience.RateLimitedException;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.ai.mcp.samples.client.watch.DocWatch;
+import org.springframework.ai.mcp.samples.client.watch.DocWatchManager;
+import org.springframework.ai.mcp.samples.client.watch.DocWatcher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 知识空间/文件夹发现
+ * 逐页列出空间中的节点或文件夹中的文件，发现的文档自动加入监听，从空间中移除的文档停止监听；
+ * 列表请求按固定的每轮预算在各空间之间轮转，已列出的节点定期重新列出以增量更新成员。
+ * 文档按最近编辑和评论变更时间分为热、温、冷三层，各层使用不同的轮询间隔；
+ * 每个租户的轮询总频率超过poll-budget时按比例放大所有层的间隔，空间再大也不超出固定的调用预算
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpaceDiscovery {
+
+    /**
+     * 空间类型
+     */
+    public enum Kind {
+        /**
+         * 知识空间（wiki space）
+         */
+        WIKI,
+        /**
+         * 云空间文件夹
+         */
+        FOLDER
+    }
+
+    /**
+     * 轮询分层
+     */
+    public enum Tier {
+        HOT,
+        WARM,
+        COLD
+    }
+
+    /**
+     * 被监听空间的持久化描述
+     */
+    public record SpaceRef(String key, Kind kind, String token, String tenant) {
+    }
+
+    private final FeishuApi feishuApi;
+    private final DocWatchManager watchManager;
+    private final DocWatcher docWatcher;
+    private final TenantProperties tenantProperties;
+    private final DiscoveryProperties properties;
+
+    private final Map<String, WatchedSpace> spaces = new ConcurrentHashMap<>();
+
+    /**
+     * 各租户当前的轮询间隔放大倍数（上次分层时计算）
+     */
+    private final Map<String, Double> tenantScales = new ConcurrentHashMap<>();
+
+    private final AtomicLong listCalls = new AtomicLong();
+    private final AtomicLong listFailures = new AtomicLong();
+    private final AtomicLong docsAdded = new AtomicLong();
+    private final AtomicLong docsRemoved = new AtomicLong();
+    private final AtomicLong tierChanges = new AtomicLong();
+
+    private int cursor;
+
+    public static String keyOf(Kind kind, String token) {
+        return kind.name().toLowerCase() + ":" + token;
+    }
+
+    /**
+     * 开始监听空间，已在监听时不做任何处理
+     *
+     * @param tenantId 租户ID，为空时属于默认租户
+     * @return 空间key
+     * @throws IllegalArgumentException token为空或租户未配置
+     */
+    public String watch(Kind kind, String token, String tenantId) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Space token cannot be null or empty");
+        }
+        String tenant = tenantId == null || tenantId.isBlank() ? TenantProperties.DEFAULT_TENANT : tenantId.trim();
+        if (!tenantProperties.isKnown(tenant)) {
+            throw new IllegalArgumentException("Unknown tenant: " + tenant);
+        }
+        String key = keyOf(kind, token.trim());
+        if (spaces.putIfAbsent(key, new WatchedSpace(key, kind, token.trim(), tenant)) == null) {
+            log.info("Started watching {} {} (tenant {})", kind, token, tenant);
+        }
+        return key;
+    }
+
+    /**
+     * 停止监听空间及其中由空间创建的监听，用户自己要求监听的文档保留
+     *
+     * @return 之前在监听返回true
+     */
+    public boolean unwatch(String key) {
+        WatchedSpace space = spaces.remove(key);
+        if (space == null) {
+            return false;
+        }
+        List<String> tokens;
+        synchronized (space) {
+            tokens = new ArrayList<>(space.members.keySet());
+            space.members.clear();
+            space.containers.clear();
+        }
+        tokens.forEach(this::stopMember);
+        log.info("Stopped watching {} and its {} documents", key, tokens.size());
+        return true;
+    }
+
+    /**
+     * 重启后恢复空间成员：文档已按注册表恢复监听，这里标记为由空间管理并先按冷层间隔轮询，
+     * 列表中出现后再按编辑时间分层；空间完整列出一遍后仍未出现的文档停止监听
+     */
+    public void restoreMember(String key, String docToken) {
+        WatchedSpace space = spaces.get(key);
+        if (space == null) {
+            return;
+        }
+        synchronized (space) {
+            space.members.computeIfAbsent(docToken, WatchedSpace.Member::new);
+        }
+        DocWatch watch = docWatcher.getWatch(docToken);
+        if (watch != null) {
+            watch.setManaged(true);
+            docWatcher.reschedule(docToken, intervalOf(Tier.COLD, 1.0));
+        }
+    }
+
+    /**
+     * 文档所属的空间key，不属于任何被监听的空间时返回null
+     */
+    public String spaceOf(String docToken) {
+        for (WatchedSpace space : spaces.values()) {
+            synchronized (space) {
+                if (space.members.containsKey(docToken)) {
+                    return space.key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前监听的空间
+     */
+    public List<SpaceRef> getSpaces() {
+        List<SpaceRef> refs = new ArrayList<>();
+        spaces.values().forEach(space -> refs.add(new SpaceRef(space.key, space.kind, space.token, space.tenant)));
+        return refs;
+    }
+
+    /**
+     * 定期刷新：每轮最多发起list-calls-per-tick次列表请求，在各空间之间轮转
+     */
+    @Scheduled(fixedDelayString = "${feicur.discovery.refresh-tick:10000}", scheduler = "discoveryScheduler")
+    public void refresh() {
+        List<WatchedSpace> list = new ArrayList<>(spaces.values());
+        if (list.isEmpty()) {
+            return;
+        }
+        int budget = properties.getListCallsPerTick();
+        int idle = 0;
+        while (budget > 0 && idle < list.size()) {
+            WatchedSpace space = list.get(Math.floorMod(cursor++, list.size()));
+            if (listNext(space)) {
+                budget--;
+                idle = 0;
+            } else {
+                idle++;
+            }
+        }
+    }
+
+    /**
+     * 列出空间中下一个到期的节点/文件夹的一页
+     *
+     * @return 没有到期的节点/文件夹时返回false
+     */
+    private boolean listNext(WatchedSpace space) {
+        long now = System.currentTimeMillis();
+        WatchedSpace.Container container;
+        String listToken;
+        String pageToken;
+        synchronized (space) {
+            container = space.nextDue(now);
+            if (container == null) {
+                return false;
+            }
+            listToken = space.listTokenOf(container);
+            pageToken = container.pageToken;
+        }
+
+        FeishuApi.SpacePage page;
+        try {
+            page = space.kind == Kind.WIKI ?
+                    feishuApi.listWikiNodes(space.tenant, space.token, listToken, pageToken) :
+                    feishuApi.listFolderFiles(space.tenant, listToken, pageToken);
+            listCalls.incrementAndGet();
+        } catch (RateLimitedException e) {
+            // 配额不足时等下一轮，不算失败
+            log.debug("Listing {} of {} throttled: {}", container.key, space.key, e.getMessage());
+            return true;
+        } catch (RuntimeException e) {
+            listFailures.incrementAndGet();
+            log.warn("Failed to list {} of {}: {}", container.key, space.key, e.getMessage());
+            synchronized (space) {
+                space.lastError = e.getMessage();
+                container.pageToken = null;
+                container.seenMembers = new HashSet<>();
+                container.seenChildren = new HashSet<>();
+                container.nextListAt = now + properties.getListRetryDelay();
+            }
+            return true;
+        }
+
+        List<String> removed = new ArrayList<>();
+        synchronized (space) {
+            if (spaces.get(space.key) != space || space.containers.get(container.key) != container) {
+                return true;
+            }
+            space.listCalls++;
+            space.lastListTime = Instant.now();
+            space.lastError = null;
+            apply(space, container, page, removed);
+        }
+        removed.forEach(this::stopMember);
+        return true;
+    }
+
+    /**
+     * 合并一页列表结果；最后一页时与上一次的列表比较，移除不再出现的文档和子节点
+     * 调用方持有space锁；需要停止监听的文档放入removed，由调用方在锁外处理
+     */
+    private void apply(WatchedSpace space, WatchedSpace.Container container, FeishuApi.SpacePage page,
+                       List<String> removed) {
+        for (SpaceEntry entry : page.entries()) {
+            if (entry.getChildToken() != null && !space.containers.containsKey(entry.getChildToken())) {
+                space.containers.put(entry.getChildToken(),
+                        new WatchedSpace.Container(entry.getChildToken(), container.key));
+            }
+            if (entry.getChildToken() != null) {
+                container.seenChildren.add(entry.getChildToken());
+            }
+            if (entry.getToken() != null && properties.getFileTypes().contains(entry.getType())) {
+                if (upsertMember(space, container, entry)) {
+                    container.seenMembers.add(entry.getToken());
+                }
+            }
+        }
+        if (page.nextPageToken() != null) {
+            container.pageToken = page.nextPageToken();
+            return;
+        }
+
+        for (String token : container.members) {
+            WatchedSpace.Member member = space.members.get(token);
+            if (!container.seenMembers.contains(token) && member != null && container.key.equals(member.container)) {
+                space.members.remove(token);
+                removed.add(token);
+            }
+        }
+        for (String child : container.children) {
+            if (!container.seenChildren.contains(child)) {
+                removeContainer(space, child, removed);
+            }
+        }
+        container.members = container.seenMembers;
+        container.children = container.seenChildren;
+        container.seenMembers = new HashSet<>();
+        container.seenChildren = new HashSet<>();
+        container.pageToken = null;
+        container.listed = true;
+        container.nextListAt = System.currentTimeMillis() + properties.getContainerRefreshInterval();
+
+        if (!space.crawled && space.allListed()) {
+            space.crawled = true;
+            // 恢复的成员在完整列出一遍后仍未出现，说明已从空间中移除
+            space.members.values().removeIf(member -> {
+                if (!member.confirmed) {
+                    removed.add(member.token);
+                }
+                return !member.confirmed;
+            });
+            log.info("Finished crawling {}: {} containers, {} documents",
+                    space.key, space.containers.size(), space.members.size());
+        }
+    }
+
+    /**
+     * 移除子节点/子文件夹及其下所有文档
+     */
+    private void removeContainer(WatchedSpace space, String key, List<String> removed) {
+        WatchedSpace.Container container = space.containers.remove(key);
+        if (container == null) {
+            return;
+        }
+        for (String token : container.members) {
+            WatchedSpace.Member member = space.members.get(token);
+            if (member != null && key.equals(member.container)) {
+                space.members.remove(token);
+                removed.add(token);
+            }
+        }
+        for (String child : container.children) {
+            removeContainer(space, child, removed);
+        }
+    }
+
+    /**
+     * 新文档加入监听，已有文档更新编辑时间（编辑时间变新时立即按新分层调整轮询间隔）
+     *
+     * @return 文档是空间成员（达到文档数上限时新文档不加入）
+     */
+    private boolean upsertMember(WatchedSpace space, WatchedSpace.Container container, SpaceEntry entry) {
+        String token = entry.getToken();
+        WatchedSpace.Member member = space.members.get(token);
+        boolean isNew = member == null;
+        if (isNew) {
+            if (space.members.size() >= properties.getMaxDocsPerSpace()) {
+                space.truncated = true;
+                return false;
+            }
+            member = new WatchedSpace.Member(token);
+        }
+        Instant previousEdit = member.editTime;
+        member.type = entry.getType();
+        member.title = entry.getTitle();
+        member.container = container.key;
+        member.confirmed = true;
+        if (entry.getEditTime() != null && (previousEdit == null || entry.getEditTime().isAfter(previousEdit))) {
+            member.editTime = entry.getEditTime();
+        }
+
+        if (isNew || member.tier == null || (previousEdit != null && member.editTime.isAfter(previousEdit))) {
+            feishuApi.registerFileType(token, member.type);
+            Tier tier = tierOf(member, docWatcher.getWatch(token), System.currentTimeMillis());
+            long interval = intervalOf(tier, tenantScales.getOrDefault(space.tenant, 1.0));
+            try {
+                if (watchManager.startManagedWatching(token, space.tenant, interval)) {
+                    docsAdded.incrementAndGet();
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Not watching document {} of {}: {}", token, space.key, e.getMessage());
+                return false;
+            }
+            if (member.tier != tier) {
+                tierChanges.incrementAndGet();
+            }
+            member.tier = tier;
+            DocWatch watch = docWatcher.getWatch(token);
+            if (watch != null && watch.isManaged()) {
+                watch.setTier(tier.name());
+            }
+        }
+        if (isNew) {
+            space.members.put(token, member);
+        }
+        return true;
+    }
+
+    /**
+     * 文档离开空间：仍属于其他空间时不处理；只停止或交还由空间创建的监听，用户自己的监听不受影响
+     */
+    private void stopMember(String docToken) {
+        if (spaceOf(docToken) != null) {
+            return;
+        }
+        if (watchManager.releaseManagedWatching(docToken)) {
+            docsRemoved.incrementAndGet();
+        }
+        if (!watchManager.isWatching(docToken) && !watchManager.isRequested(docToken)) {
+            feishuApi.registerFileType(docToken, null);
+        }
+    }
+
+    /**
+     * 定期重新分层：按最近编辑和评论变更时间重新计算各文档的层级，
+     * 按租户的轮询预算计算间隔放大倍数，层级或间隔变化的文档重新调度
+     */
+    @Scheduled(fixedDelayString = "${feicur.discovery.tier-interval:60000}", scheduler = "discoveryScheduler")
+    public void retier() {
+        long now = System.currentTimeMillis();
+        Map<String, Map<String, Tier>> tiersByTenant = new HashMap<>();
+        for (WatchedSpace space : spaces.values()) {
+            Map<String, Tier> tiers = tiersByTenant.computeIfAbsent(space.tenant, k -> new HashMap<>());
+            synchronized (space) {
+                for (WatchedSpace.Member member : space.members.values()) {
+                    Tier tier = tierOf(member, docWatcher.getWatch(member.token), now);
+                    if (member.tier != tier) {
+                        tierChanges.incrementAndGet();
+                    }
+                    member.tier = tier;
+                    tiers.put(member.token, tier);
+                }
+            }
+        }
+
+        tenantScales.keySet().retainAll(tiersByTenant.keySet());
+        tiersByTenant.forEach((tenant, tiers) -> {
+            double demand = 0;
+            for (Tier tier : tiers.values()) {
+                demand += 1000.0 / intervalOf(tier, 1.0);
+            }
+            double scale = Math.max(1.0, demand / Math.max(0.001, properties.getPollBudget()));
+            tenantScales.put(tenant, scale);
+
+            tiers.forEach((token, tier) -> {
+                DocWatch watch = docWatcher.getWatch(token);
+                // 只调整由空间创建的监听，用户自己要求监听的文档保持原有间隔
+                if (watch == null || !watch.isManaged()) {
+                    return;
+                }
+                long interval = intervalOf(tier, scale);
+                watch.setTier(tier.name());
+                // 间隔变化不超过10%时不重新调度，避免轮询相位频繁变动
+                if (Math.abs(watch.getPollInterval() - interval) > interval / 10) {
+                    docWatcher.reschedule(token, interval);
+                }
+            });
+        });
+    }
+
+    private Tier tierOf(WatchedSpace.Member member, DocWatch watch, long now) {
+        long activity = Math.max(member.editTime != null ? member.editTime.toEpochMilli() : 0,
+                watch != null ? watch.getLastChangeAt() : 0);
+        long age = now - activity;
+        if (age < properties.getHotWindow()) {
+            return Tier.HOT;
+        }
+        return age < properties.getWarmWindow() ? Tier.WARM : Tier.COLD;
+    }
+
+    private long intervalOf(Tier tier, double scale) {
+        long base = switch (tier) {
+            case HOT -> properties.getHotInterval();
+            case WARM -> properties.getWarmInterval();
+            case COLD -> properties.getColdInterval();
+        };
+        return Math.round(base * scale);
+    }
+
+    /**
+     * 获取各空间的发现和分层统计
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (WatchedSpace space : spaces.values()) {
+            Map<String, Object> spaceStats = new HashMap<>();
+            Map<String, Integer> tiers = new HashMap<>();
+            synchronized (space) {
+                for (WatchedSpace.Member member : space.members.values()) {
+                    tiers.merge(member.tier != null ? member.tier.name() : "PENDING", 1, Integer::sum);
+                }
+                spaceStats.put("key", space.key);
+                spaceStats.put("kind", space.kind);
+                spaceStats.put("token", space.token);
+                spaceStats.put("tenant", space.tenant);
+                spaceStats.put("startedAt", space.startedAt);
+                spaceStats.put("containers", space.containers.size());
+                spaceStats.put("listedContainers",
+                        space.containers.values().stream().filter(container -> container.listed).count());
+                spaceStats.put("documents", space.members.size());
+                spaceStats.put("tiers", tiers);
+                spaceStats.put("crawled", space.crawled);
+                spaceStats.put("truncated", space.truncated);
+                spaceStats.put("listCalls", space.listCalls);
+                spaceStats.put("lastListTime", space.lastListTime);
+                spaceStats.put("lastError", space.lastError);
+            }
+            list.add(spaceStats);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("spaces", list);
+        stats.put("listCalls", listCalls.get());
+        stats.put("listFailures", listFailures.get());
+        stats.put("docsAdded", docsAdded.get());
+        stats.put("docsRemoved", docsRemoved.get());
+        stats.put("tierChanges", tierChanges.get());
+        stats.put("intervalScales", new HashMap<>(tenantScales));
+        return stats;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.discovery;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个被监听的知识空间或文件夹：节点/文件夹树（按需逐页列出）和其中的文档成员
+ * 所有字段由SpaceDiscovery在持有该对象锁时读写
+ */
+class WatchedSpace {
+
+    /**
+     * 知识空间根节点的key（根节点没有node_token）
+     */
+    static final String ROOT = "";
+
+    final String key;
+    final SpaceDiscovery.Kind kind;
+    final String token;
+    final String tenant;
+    final Instant startedAt = Instant.now();
+
+    final Map<String, Container> containers = new LinkedHashMap<>();
+    final Map<String, Member> members = new HashMap<>();
+
+    /**
+     * 所有节点/文件夹都至少完整列出过一次
+     */
+    boolean crawled;
+
+    /**
+     * 文档数达到上限，部分文档未监听
+     */
+    boolean truncated;
+
+    String lastError;
+    Instant lastListTime;
+    long listCalls;
+
+    WatchedSpace(String key, SpaceDiscovery.Kind kind, String token, String tenant) {
+        this.key = key;
+        this.kind = kind;
+        this.token = token;
+        this.tenant = tenant;
+        String rootKey = kind == SpaceDiscovery.Kind.WIKI ? ROOT : token;
+        containers.put(rootKey, new Container(rootKey, null));
+    }
+
+    /**
+     * 下一个需要列出的节点/文件夹：优先继续正在翻页的，其次是从未列出过的，最后是到期需要刷新的
+     */
+    Container nextDue(long now) {
+        Container due = null;
+        for (Container container : containers.values()) {
+            if (container.pageToken != null) {
+                return container;
+            }
+            if (container.nextListAt > now) {
+                continue;
+            }
+            if (due == null || (!container.listed && due.listed)) {
+                due = container;
+            }
+        }
+        return due;
+    }
+
+    /**
+     * 列出节点/文件夹时使用的token：知识空间根节点为null
+     */
+    String listTokenOf(Container container) {
+        return ROOT.equals(container.key) ? null : container.key;
+    }
+
+    boolean allListed() {
+        return containers.values().stream().allMatch(container -> container.listed);
+    }
+
+    /**
+     * 节点或文件夹
+     */
+    static final class Container {
+
+        final String key;
+        final String parentKey;
+
+        /**
+         * 上一次完整列出时直接包含的文档和子节点/子文件夹
+         */
+        Set<String> members = new HashSet<>();
+        Set<String> children = new HashSet<>();
+
+        /**
+         * 正在翻页时：下一页的page_token和已列出的项
+         */
+        String pageToken;
+        Set<String> seenMembers = new HashSet<>();
+        Set<String> seenChildren = new HashSet<>();
+
+        long nextListAt;
+        boolean listed;
+
+        Container(String key, String parentKey) {
+            this.key = key;
+            this.parentKey = parentKey;
+        }
+    }
+
+    /**
+     * 空间中的文档
+     */
+    static final class Member {
+
+        final String token;
+        String type;
+        String title;
+        Instant editTime;
+        String container;
+        SpaceDiscovery.Tier tier;
+
+        /**
+         * 重启后从注册表恢复、尚未在列表中再次出现的文档为false
+         */
+        boolean confirmed;
+
+        Member(String token) {
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 块修改工具：模型提交修改后的块内容，由BlockPatchApplier计算并写入最小差异
+ */
+class BlockEditToolCallback implements ToolCallback {
+
+    static final String NAME = "feicur_apply_block_edits";
+
+    private static final ToolDefinition DEFINITION = ToolDefinition.builder()
+            .name(NAME)
+            .description("修改飞书文档的文本块。按文档顺序提交修改后的块内容：已有的块带上block_id，" +
+                    "新增的块不带block_id；replaces列出这段内容所替换的全部原有块ID，其中没有出现在blocks里的块会被删除。" +
+                    "只有文本实际变化的块会被写入，返回更新、插入、删除和未变化的块数")
+            .inputSchema("""
+                    {
+                      "type": "object",
+                      "properties": {
+                        "document_id": {"type": "string", "description": "文档token"},
+                        "blocks": {
+                          "type": "array",
+                          "description": "修改后的块（文档顺序）",
+                          "items": {
+                            "type": "object",
+                            "properties": {
+                              "block_id": {"type": "string", "description": "已有块的ID，新增块省略"},
+                              "text": {"type": "string", "description": "块的完整文本"}
+                            },
+                            "required": ["text"]
+                          }
+                        },
+                        "replaces": {
+                          "type": "array",
+                          "description": "被替换的原有块ID；省略时不删除任何块",
+                          "items": {"type": "string"}
+                        }
+                      },
+                      "required": ["document_id", "blocks"]
+                    }
+                    """)
+            .build();
+
+    private final BlockPatchApplier applier;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    BlockEditToolCallback(BlockPatchApplier applier) {
+        this.applier = applier;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return DEFINITION;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        JsonNode input;
+        try {
+            input = objectMapper.readTree(toolInput);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid input for " + NAME + ": " + e.getOriginalMessage(), e);
+        }
+        String docToken = input.path("document_id").asText(null);
+        if (docToken == null || docToken.isBlank()) {
+            throw new IllegalArgumentException("document_id is required");
+        }
+        List<BlockPatch.IntendedBlock> blocks = new ArrayList<>();
+        for (JsonNode block : input.path("blocks")) {
+            String blockId = block.path("block_id").asText(null);
+            blocks.add(new BlockPatch.IntendedBlock(blockId == null || blockId.isBlank() ? null : blockId,
+                    block.path("text").asText("")));
+        }
+        List<String> replaces = new ArrayList<>();
+        input.path("replaces").forEach(blockId -> replaces.add(blockId.asText()));
+        try {
+            return objectMapper.writeValueAsString(applier.apply(docToken, blocks, replaces));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return call(toolInput);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+
+import java.util.*;
+
+/**
+ * 一次块级修改的最小操作集合
+ * 由当前块列表和模型提交的目标块内容比较得出：文本相同的块不写，文本变化的块只改写变化范围内的文本元素（见TextElementPatch），
+ * 新增的块按位置插入，目标中不再出现的块删除。结构操作按父块内的位置从后往前执行，前面的位置不受影响
+ */
+public final class BlockPatch {
+
+    /**
+     * 新增块的类型（飞书文本块）
+     */
+    static final int TEXT_BLOCK_TYPE = 2;
+
+    /**
+     * 目标块：blockId为空表示新增的块
+     */
+    public record IntendedBlock(String blockId, String text) {
+    }
+
+    /**
+     * 在父块的index位置插入一组连续的文本块
+     */
+    public record Insert(String parentId, int index, List<String> texts) {
+    }
+
+    /**
+     * 删除父块下[startIndex, endIndex)的子块
+     */
+    public record Delete(String parentId, int startIndex, int endIndex) {
+    }
+
+    private final Map<String, String> updates;
+    private final Map<String, JsonNode> updatedElements;
+    private final List<Insert> inserts;
+    private final List<Delete> deletes;
+    private final int unchanged;
+
+    private BlockPatch(Map<String, String> updates, Map<String, JsonNode> updatedElements, List<Insert> inserts,
+                       List<Delete> deletes, int unchanged) {
+        this.updates = updates;
+        this.updatedElements = updatedElements;
+        this.inserts = inserts;
+        this.deletes = deletes;
+        this.unchanged = unchanged;
+    }
+
+    public Map<String, String> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * 文本变化的块的新elements（块ID到elements），与getUpdates()顺序一致
+     */
+    public Map<String, JsonNode> getUpdatedElements() {
+        return updatedElements;
+    }
+
+    public List<Insert> getInserts() {
+        return inserts;
+    }
+
+    public List<Delete> getDeletes() {
+        return deletes;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty() && inserts.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * 比较当前块和目标块，得出最小操作集合
+     *
+     * @param current 文档当前的块（文档顺序）
+     * @param intended 目标块（文档顺序），已有的块按blockId对应
+     * @param replaces 目标内容所替换的已有块；为空时取intended中出现的块，即不删除任何块
+     * @throws IllegalArgumentException 块不存在、已有块顺序被调换、新增块无法确定位置、或修改跨越了公式
+     */
+    public static BlockPatch diff(List<DocBlock> current, List<IntendedBlock> intended, Collection<String> replaces) {
+        Map<String, DocBlock> blocks = new HashMap<>();
+        Map<String, Integer> order = new HashMap<>();
+        Map<String, Integer> childIndex = new HashMap<>();
+        Map<String, Integer> childCounts = new HashMap<>();
+        for (DocBlock block : current) {
+            blocks.put(block.getBlockId(), block);
+            order.put(block.getBlockId(), order.size());
+            childIndex.put(block.getBlockId(), childCounts.merge(String.valueOf(block.getParentId()), 1, Integer::sum) - 1);
+        }
+
+        Set<String> kept = new HashSet<>();
+        int lastOrder = -1;
+        for (IntendedBlock block : intended) {
+            if (block.blockId() == null) {
+                continue;
+            }
+            Integer position = order.get(block.blockId());
+            if (position == null) {
+                throw new IllegalArgumentException("Block " + block.blockId() + " does not exist in the document");
+            }
+            if (position <= lastOrder) {
+                throw new IllegalArgumentException("Block " + block.blockId() + " is out of document order; " +
+                        "move content by deleting and inserting blocks");
+            }
+            lastOrder = position;
+            kept.add(block.blockId());
+        }
+        List<String> replaced = new ArrayList<>(replaces == null || replaces.isEmpty() ? kept : replaces);
+        for (String blockId : replaced) {
+            if (!blocks.containsKey(blockId)) {
+                throw new IllegalArgumentException("Block " + blockId + " does not exist in the document");
+            }
+        }
+        replaced.sort(Comparator.comparing(order::get));
+
+        // 文本变化的块
+        Map<String, String> updates = new LinkedHashMap<>();
+        Map<String, JsonNode> updatedElements = new LinkedHashMap<>();
+        int unchanged = 0;
+        for (IntendedBlock block : intended) {
+            if (block.blockId() == null) {
+                continue;
+            }
+            String before = blocks.get(block.blockId()).getText();
+            String after = block.text() != null ? block.text() : "";
+            if (before == null) {
+                if (!after.isEmpty()) {
+                    throw new IllegalArgumentException("Block " + block.blockId() + " has no text content");
+                }
+                unchanged++;
+            } else if (before.equals(after)) {
+                unchanged++;
+            } else {
+                updates.put(block.blockId(), after);
+                updatedElements.put(block.blockId(), TextElementPatch.patch(blocks.get(block.blockId()).getElements(), after));
+            }
+        }
+
+        // 新增的块：插在前一个保留块之后；区域开头的新块插在第一个被替换块的位置
+        List<Insert> inserts = new ArrayList<>();
+        DocBlock anchor = null;
+        List<String> pending = new ArrayList<>();
+        for (IntendedBlock block : intended) {
+            if (block.blockId() == null) {
+                pending.add(block.text() != null ? block.text() : "");
+                continue;
+            }
+            if (!pending.isEmpty()) {
+                inserts.add(insertAfter(anchor, replaced, blocks, childIndex, pending));
+                pending = new ArrayList<>();
+            }
+            anchor = blocks.get(block.blockId());
+        }
+        if (!pending.isEmpty()) {
+            inserts.add(insertAfter(anchor, replaced, blocks, childIndex, pending));
+        }
+
+        // 不再出现的块：同一父块下位置连续的合并为一次删除
+        List<Delete> deletes = new ArrayList<>();
+        Delete run = null;
+        for (String blockId : replaced) {
+            if (kept.contains(blockId)) {
+                continue;
+            }
+            DocBlock block = blocks.get(blockId);
+            int index = childIndex.get(blockId);
+            if (run != null && Objects.equals(run.parentId(), block.getParentId()) && run.endIndex() == index) {
+                run = new Delete(run.parentId(), run.startIndex(), index + 1);
+            } else {
+                if (run != null) {
+                    deletes.add(run);
+                }
+                run = new Delete(block.getParentId(), index, index + 1);
+            }
+        }
+        if (run != null) {
+            deletes.add(run);
+        }
+
+        return new BlockPatch(updates, updatedElements, List.copyOf(inserts), List.copyOf(deletes), unchanged);
+    }
+
+    private static Insert insertAfter(DocBlock anchor, List<String> replaced, Map<String, DocBlock> blocks,
+                                      Map<String, Integer> childIndex, List<String> texts) {
+        if (anchor != null) {
+            return new Insert(anchor.getParentId(), childIndex.get(anchor.getBlockId()) + 1, texts);
+        }
+        if (replaced.isEmpty()) {
+            throw new IllegalArgumentException("New blocks need an existing block_id before them or a replaced block");
+        }
+        DocBlock first = blocks.get(replaced.get(0));
+        return new Insert(first.getParentId(), childIndex.get(first.getBlockId()), texts);
+    }
+
+    /**
+     * 结构操作的执行顺序：同一父块内按位置从后往前，位置相同时先删除再插入
+     */
+    List<Object> structuralOperations() {
+        List<Object> operations = new ArrayList<>(deletes);
+        operations.addAll(inserts);
+        operations.sort(Comparator.comparingInt(BlockPatch::positionOf).reversed()
+                .thenComparing(operation -> operation instanceof Insert));
+        return operations;
+    }
+
+    /**
+     * 在写入前的块列表上重放本次修改，得到写入后的块列表（文档顺序），用于直接更新定位索引
+     *
+     * @param created 每个插入操作新建块的ID（按插入顺序）
+     * @return 写入后的块；有插入操作缺少新块ID时返回null
+     */
+    List<DocBlock> applyTo(List<DocBlock> current, Map<Insert, List<String>> created) {
+        Set<String> ids = new HashSet<>();
+        for (DocBlock block : current) {
+            ids.add(block.getBlockId());
+        }
+        List<DocBlock> roots = new ArrayList<>();
+        Map<String, List<DocBlock>> children = new HashMap<>();
+        for (DocBlock block : current) {
+            DocBlock patched = updates.containsKey(block.getBlockId())
+                    ? new DocBlock(block.getBlockId(), block.getParentId(), block.getBlockType(),
+                            updates.get(block.getBlockId()), updatedElements.get(block.getBlockId()))
+                    : block;
+            if (ids.contains(block.getParentId())) {
+                children.computeIfAbsent(block.getParentId(), k -> new ArrayList<>()).add(patched);
+            } else {
+                roots.add(patched);
+            }
+        }
+        for (Object operation : structuralOperations()) {
+            if (operation instanceof Delete delete) {
+                children.getOrDefault(delete.parentId(), new ArrayList<>())
+                        .subList(delete.startIndex(), delete.endIndex()).clear();
+            } else if (operation instanceof Insert insert) {
+                List<String> blockIds = created.get(insert);
+                if (blockIds == null || blockIds.size() != insert.texts().size()) {
+                    return null;
+                }
+                List<DocBlock> inserted = new ArrayList<>();
+                for (int i = 0; i < blockIds.size(); i++) {
+                    String text = insert.texts().get(i);
+                    inserted.add(new DocBlock(blockIds.get(i), insert.parentId(), TEXT_BLOCK_TYPE, text,
+                            TextElementPatch.patch(null, text)));
+                }
+                children.computeIfAbsent(insert.parentId(), k -> new ArrayList<>()).addAll(insert.index(), inserted);
+            }
+        }
+        List<DocBlock> result = new ArrayList<>();
+        for (DocBlock root : roots) {
+            appendSubtree(root, children, result);
+        }
+        return result;
+    }
+
+    private static void appendSubtree(DocBlock block, Map<String, List<DocBlock>> children, List<DocBlock> result) {
+        result.add(block);
+        for (DocBlock child : children.getOrDefault(block.getBlockId(), List.of())) {
+            appendSubtree(child, children, result);
+        }
+    }
+
+    private static int positionOf(Object operation) {
+        return operation instanceof Delete delete ? delete.startIndex() : ((Insert) operation).index();
+    }
+}
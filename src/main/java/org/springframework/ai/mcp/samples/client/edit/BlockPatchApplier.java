@@ -0,0 +1,182 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.anchor.QuoteAnchorIndex;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 块级修改的应用层
+ * 模型提交修改后的目标块内容，这里和文档当前的块比较，只把实际变化的块写回：
+ * 文本更新合并为批量更新调用（每次最多200个块），连续的新增块合并为一次插入，连续的删除合并为一次范围删除。
+ * 比较基于文档当前版本的块：取自引用定位索引，只有版本号变化时才重新拉取块列表；写入后用写入的内容更新索引，
+ * 下一次修改或引用定位不必因为本服务自己的写入重新拉取。
+ * 文本块只改写变化的文本元素，链接、@人员、样式和公式原样保留；每次写入都带上修改所基于的版本号，
+ * 文档在此期间被其他人修改时飞书拒绝写入，抛出DocumentConflictException使指令失败，不覆盖他人的编辑。
+ * 读不到文档版本号、或写入的响应中没有新版本号而后面还有写入时，修改失败，不会不带版本号地写入最新版本
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BlockPatchApplier {
+
+    static final int MAX_UPDATES_PER_CALL = 200;
+    static final int MAX_CHILDREN_PER_CALL = 50;
+
+    private final FeishuApi feishuApi;
+    private final QuoteAnchorIndex quoteAnchorIndex;
+
+    @Value("${feicur.patch.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicLong patches = new AtomicLong();
+    private final AtomicLong emptyPatches = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提供给Agent的块修改工具
+     */
+    public ToolCallback toolCallback() {
+        return new BlockEditToolCallback(this);
+    }
+
+    /**
+     * 比较目标内容和文档当前内容并写入差异
+     *
+     * @return 本次修改的统计（updated、inserted、deleted、unchanged、calls）
+     * @throws org.springframework.ai.mcp.samples.client.api.DocumentConflictException 文档在修改计算出来之后被其他人修改
+     * @throws IllegalStateException 无法确定写入所基于的文档版本号
+     */
+    public Map<String, Object> apply(String docToken, List<BlockPatch.IntendedBlock> intended, Collection<String> replaces) {
+        Long revision = feishuApi.getDocumentRevision(docToken);
+        if (revision == null) {
+            throw new IllegalStateException("Revision of doc " + docToken + " is unknown, refusing to write without a base revision");
+        }
+        List<DocBlock> current = quoteAnchorIndex.blocks(docToken, revision);
+        BlockPatch patch = BlockPatch.diff(current, intended, replaces);
+        int callCount = 0;
+        int insertedCount = 0;
+        int deletedCount = 0;
+        List<Map.Entry<String, JsonNode>> updates = new ArrayList<>(patch.getUpdatedElements().entrySet());
+        Map<BlockPatch.Insert, List<String>> created = new IdentityHashMap<>();
+        Long written = revision;
+
+        try {
+            for (int from = 0; from < updates.size(); from += MAX_UPDATES_PER_CALL) {
+                Map<String, JsonNode> batch = new LinkedHashMap<>();
+                updates.subList(from, Math.min(from + MAX_UPDATES_PER_CALL, updates.size()))
+                        .forEach(entry -> batch.put(entry.getKey(), entry.getValue()));
+                written = feishuApi.batchUpdateBlockElements(docToken, requireRevision(docToken, written), batch);
+                callCount++;
+            }
+
+            for (Object operation : patch.structuralOperations()) {
+                if (operation instanceof BlockPatch.Delete delete) {
+                    written = feishuApi.deleteBlockChildren(docToken, requireRevision(docToken, written),
+                            delete.parentId(), delete.startIndex(), delete.endIndex());
+                    deletedCount += delete.endIndex() - delete.startIndex();
+                    callCount++;
+                } else if (operation instanceof BlockPatch.Insert insert) {
+                    List<String> texts = insert.texts();
+                    List<String> blockIds = new ArrayList<>();
+                    for (int from = 0; from < texts.size(); from += MAX_CHILDREN_PER_CALL) {
+                        FeishuApi.CreatedBlocks result = feishuApi.createTextBlocks(docToken,
+                                requireRevision(docToken, written), insert.parentId(), insert.index() + from,
+                                texts.subList(from, Math.min(from + MAX_CHILDREN_PER_CALL, texts.size())));
+                        blockIds.addAll(result.blockIds());
+                        written = result.revision();
+                        callCount++;
+                    }
+                    created.put(insert, blockIds);
+                    insertedCount += texts.size();
+                }
+            }
+        } catch (RuntimeException e) {
+            // 写到一半失败：文档已部分修改，索引中的内容不再可信
+            quoteAnchorIndex.recordWrite(docToken, revision, null, null);
+            throw e;
+        }
+        if (!patch.isEmpty()) {
+            // 最后一次写入没有返回版本号时只让索引失效
+            quoteAnchorIndex.recordWrite(docToken, revision, written,
+                    written != null ? patch.applyTo(current, created) : null);
+        }
+
+        patches.incrementAndGet();
+        if (patch.isEmpty()) {
+            emptyPatches.incrementAndGet();
+        }
+        updated.addAndGet(updates.size());
+        inserted.addAndGet(insertedCount);
+        deleted.addAndGet(deletedCount);
+        unchanged.addAndGet(patch.getUnchanged());
+        calls.addAndGet(callCount);
+        log.debug("Applied block patch to doc {}: {} updated, {} inserted, {} deleted, {} unchanged in {} calls",
+                docToken, updates.size(), insertedCount, deletedCount, patch.getUnchanged(), callCount);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("updated", updates.size());
+        result.put("inserted", insertedCount);
+        result.put("deleted", deletedCount);
+        result.put("unchanged", patch.getUnchanged());
+        result.put("calls", callCount);
+        return result;
+    }
+
+    /**
+     * 下一次写入所基于的版本号：上一次写入的响应中没有新版本号时无法保证不覆盖他人的编辑，修改失败
+     */
+    private static long requireRevision(String docToken, Long revision) {
+        if (revision == null) {
+            throw new IllegalStateException("Write to doc " + docToken + " returned no revision, refusing to continue the patch");
+        }
+        return revision;
+    }
+
+    /**
+     * 获取块修改统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("patches", patches.get());
+        stats.put("emptyPatches", emptyPatches.get());
+        stats.put("blocksUpdated", updated.get());
+        stats.put("blocksInserted", inserted.get());
+        stats.put("blocksDeleted", deleted.get());
+        stats.put("blocksUnchanged", unchanged.get());
+        stats.put("mcpCalls", calls.get());
+        return stats;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 块内文本元素的最小修改
+ * 飞书的update_text_elements会整体替换块的elements，因此以块原有的elements为基础：
+ * 取新旧文本的公共前缀和后缀，只改写覆盖变化范围的text_run（保留其样式），范围外的元素原样保留；
+ * 范围内的@人员、文档链接等无文本长度的元素保留在修改后的文本之后。变化只落在一个公式内时改写公式内容，
+ * 跨越公式和其他元素的修改无法保留公式，直接拒绝
+ */
+final class TextElementPatch {
+
+    private static final String TEXT_RUN = "text_run";
+    private static final String EQUATION = "equation";
+
+    private TextElementPatch() {
+    }
+
+    /**
+     * 计算块的新elements
+     *
+     * @param elements 块原有的elements，为null时视为空
+     * @param after 块的新文本
+     * @throws IllegalArgumentException 修改跨越了公式和其他元素
+     */
+    static ArrayNode patch(JsonNode elements, String after) {
+        List<ObjectNode> original = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        if (elements != null) {
+            for (JsonNode element : elements) {
+                if (element instanceof ObjectNode object) {
+                    original.add(object.deepCopy());
+                    text.append(contentOf(object));
+                }
+            }
+        }
+        String before = text.toString();
+
+        int prefix = 0;
+        int limit = Math.min(before.length(), after.length());
+        while (prefix < limit && before.charAt(prefix) == after.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix &&
+               before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        int end = before.length() - suffix;
+        String replacement = after.substring(prefix, after.length() - suffix);
+
+        List<ObjectNode> head = new ArrayList<>();
+        List<ObjectNode> covered = new ArrayList<>();
+        List<Integer> coveredStarts = new ArrayList<>();
+        List<ObjectNode> inner = new ArrayList<>();
+        List<ObjectNode> tail = new ArrayList<>();
+        int offset = 0;
+        for (ObjectNode element : original) {
+            int length = contentOf(element).length();
+            int start = offset;
+            offset += length;
+            if (length == 0) {
+                if (start <= prefix) {
+                    head.add(element);
+                } else if (start >= end) {
+                    tail.add(element);
+                } else {
+                    inner.add(element);
+                }
+            } else if (start < end && start + length > prefix) {
+                covered.add(element);
+                coveredStarts.add(start);
+            } else if (start + length <= prefix) {
+                head.add(element);
+            } else {
+                tail.add(element);
+            }
+        }
+
+        if (covered.isEmpty()) {
+            // 在元素边界插入：接在前一个text_run之后，其次接在后一个text_run之前，都没有时新建text_run
+            if (!replacement.isEmpty()) {
+                ObjectNode previous = lastWithContent(head);
+                ObjectNode next = firstWithContent(tail);
+                if (previous != null && previous.has(TEXT_RUN)) {
+                    setContent(previous, contentOf(previous) + replacement);
+                } else if (next != null && next.has(TEXT_RUN)) {
+                    setContent(next, replacement + contentOf(next));
+                } else {
+                    head.add(textRun(replacement));
+                }
+            }
+        } else {
+            ObjectNode first = covered.get(0);
+            ObjectNode last = covered.get(covered.size() - 1);
+            int firstStart = coveredStarts.get(0);
+            int lastStart = coveredStarts.get(covered.size() - 1);
+            String lead = contentOf(first).substring(0, prefix - firstStart);
+            String trail = contentOf(last).substring(end - lastStart);
+            if (first == last) {
+                setContent(first, lead + replacement + trail);
+                if (!contentOf(first).isEmpty()) {
+                    head.add(first);
+                }
+            } else {
+                if (first.has(EQUATION) || last.has(EQUATION)) {
+                    throw new IllegalArgumentException("Edit spans an equation and surrounding text; " +
+                            "rewrite the equation and the text in separate edits");
+                }
+                // 中间被完全覆盖的元素丢弃；首尾text_run各自保留样式
+                setContent(first, lead + replacement);
+                if (!contentOf(first).isEmpty()) {
+                    head.add(first);
+                }
+                setContent(last, trail);
+                if (!trail.isEmpty()) {
+                    tail.add(0, last);
+                }
+            }
+        }
+
+        ArrayNode result = JsonNodeFactory.instance.arrayNode();
+        head.forEach(result::add);
+        inner.forEach(result::add);
+        tail.forEach(result::add);
+        if (result.isEmpty()) {
+            result.add(textRun(""));
+        }
+        return result;
+    }
+
+    /**
+     * 元素的文本：text_run和公式的内容，其他元素为空
+     */
+    static String contentOf(JsonNode element) {
+        if (element.has(TEXT_RUN)) {
+            return element.path(TEXT_RUN).path("content").asText("");
+        }
+        if (element.has(EQUATION)) {
+            return element.path(EQUATION).path("content").asText("");
+        }
+        return "";
+    }
+
+    private static void setContent(ObjectNode element, String content) {
+        String type = element.has(TEXT_RUN) ? TEXT_RUN : EQUATION;
+        ((ObjectNode) element.get(type)).put("content", content);
+    }
+
+    private static ObjectNode textRun(String content) {
+        ObjectNode element = JsonNodeFactory.instance.objectNode();
+        element.putObject(TEXT_RUN).put("content", content);
+        return element;
+    }
+
+    private static ObjectNode lastWithContent(List<ObjectNode> elements) {
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            if (!contentOf(elements.get(i)).isEmpty()) {
+                return elements.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static ObjectNode firstWithContent(List<ObjectNode> elements) {
+        for (ObjectNode element : elements) {
+            if (!contentOf(element).isEmpty()) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
@@ -17,13 +17,22 @@ package org.springframework.ai.mcp.samples.client.event;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.executor.CommandExecutor;
+import org.springframework.ai.mcp.samples.client.executor.CommandTracker;
+import org.springframework.ai.mcp.samples.client.ledger.ExecutionLedger;
 import org.springframework.ai.mcp.samples.client.model.CommentEvent;
 import org.springframework.ai.mcp.samples.client.model.UserCommand;
 import org.springframework.ai.mcp.samples.client.queue.CommandQueue;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
+import org.springframework.ai.mcp.samples.client.triage.CommandTriage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+
 /**
  * 评论事件监听器
  */
@@ -33,23 +42,65 @@ import org.springframework.stereotype.Component;
 public class CommentEventListener {
     
     private final CommandQueue commandQueue;
+    private final ExecutionLedger executionLedger;
+    private final CommandTracker commandTracker;
+    private final CommandTriage commandTriage;
+    private final TenantRegistry tenantRegistry;
+    private final FeishuApi feishuApi;
+    
+    @Value("${feicur.command.deadline:120000}")
+    private long commandDeadline;
     
     /**
      * 处理评论变更事件
      */
     @EventListener
-    @Async
+    @Async("asyncExecutor")
     public void handleCommentChange(CommentChangeEvent event) {
         log.info("Processing comment change: {} for doc: {}", 
                  event.getEventType(), event.getDocToken());
         
+        // 评论被删除或解决后，该评论尚未完成的指令不再需要执行
+        if (event.getComment() != null &&
+            (event.getEventType() == CommentEvent.Type.DELETE || event.getEventType() == CommentEvent.Type.RESOLVE)) {
+            commandTracker.supersede(event.getDocToken(), event.getComment().getCommentId(),
+                    "comment " + event.getEventType().name().toLowerCase());
+        }
+        
         var command = mapEventToCommand(event);
         if (command != null) {
             command.setDocToken(event.getDocToken());
+            // Agent只能通过docx块工具修改文档：空间发现加入的表格、旧版文档等的评论不生成Agent指令
+            String fileType = feishuApi.fileTypeOf(event.getDocToken());
+            if (CommandExecutor.isAgentCommand(command.getCommandType()) && !"docx".equals(fileType)) {
+                log.info("Ignoring {} comment in non-docx doc {} ({})", command.getCommandType(),
+                         event.getDocToken(), fileType);
+                return;
+            }
+            command.setTenantId(tenantRegistry.tenantOf(event.getDocToken()));
+            command.setDeadline(Instant.now().plusMillis(commandDeadline));
+            // 讨论性评论（LGTM、+1等）不是指令，不进入队列
+            CommandTriage.Decision decision = commandTriage.triage(command);
+            if (!decision.actionable()) {
+                log.info("Ignoring non-actionable comment {} in doc {} ({})",
+                         command.getSourceComment() != null ? command.getSourceComment().getCommentId() : null,
+                         command.getDocToken(), decision.source());
+                return;
+            }
+            command.setComplexity(decision.complexity());
+            // 同一评论修订已执行或已在队列中，丢弃重复指令
+            if (!executionLedger.tryClaim(command)) {
+                log.info("Skipping duplicate command: {} for comment {}", command.getCommandType(),
+                         command.getSourceComment() != null ? command.getSourceComment().getCommentId() : null);
+                return;
+            }
+            commandTracker.track(command);
             boolean success = commandQueue.offer(command);
             if (success) {
                 log.info("Successfully queued command: {}", command.getCommandType());
             } else {
+                commandTracker.complete(command);
+                executionLedger.release(command);
                 log.warn("Failed to queue command: {}, queue might be full", command.getCommandType());
             }
         } else {
@@ -15,44 +15,113 @@
  */
 package org.springframework.ai.mcp.samples.client.executor;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.agent.CommandAgent;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
+import org.springframework.ai.mcp.samples.client.ledger.ExecutionLedger;
+import org.springframework.ai.mcp.samples.client.metrics.PipelineMetrics;
+import org.springframework.ai.mcp.samples.client.model.ExecutionResult;
 import org.springframework.ai.mcp.samples.client.model.UserCommand;
 import org.springframework.ai.mcp.samples.client.queue.CommandQueue;
+import org.springframework.ai.mcp.samples.client.writeback.CommentWriteBack;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 指令执行器 - 定时消费队列中的指令
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class CommandExecutor {
     
+    /**
+     * 由Agent执行并回写结果的指令类型（评论被删除或已解决时不再回复）
+     */
+    private static final Set<String> WRITE_BACK_TYPES =
+            Set.of("ADD_REQUIREMENT", "UPDATE_REQUIREMENT", "REOPEN_REQUIREMENT");
+    
+    /**
+     * 是否为由Agent执行并回写结果的指令类型
+     */
+    public static boolean isAgentCommand(String commandType) {
+        return WRITE_BACK_TYPES.contains(commandType);
+    }
+    
     private final CommandQueue commandQueue;
+    private final CommentWriteBack commentWriteBack;
+    private final ExecutionLedger executionLedger;
+    private final PipelineMetrics pipelineMetrics;
+    private final CommandTracker commandTracker;
+    private final CommandAgent commandAgent;
+    private final ThreadPoolTaskExecutor commandWorkerExecutor;
+    
+    /**
+     * 执行线程的空闲名额：取指令前先占一个，指令执行结束后归还
+     */
+    private final Semaphore workerSlots;
     
     @Value("${feicur.execute.interval:3000}")
     private long executeInterval;
     
+    @Value("${feicur.command.write-settle-timeout:30000}")
+    private long writeSettleTimeout;
+    
+    @Value("${feicur.writeback.resolve-on-success:false}")
+    private boolean resolveOnSuccess;
+    
+    public CommandExecutor(CommandQueue commandQueue,
+                           CommentWriteBack commentWriteBack,
+                           ExecutionLedger executionLedger,
+                           PipelineMetrics pipelineMetrics,
+                           CommandTracker commandTracker,
+                           CommandAgent commandAgent,
+                           @Qualifier("commandWorkerExecutor") ThreadPoolTaskExecutor commandWorkerExecutor) {
+        this.commandQueue = commandQueue;
+        this.commentWriteBack = commentWriteBack;
+        this.executionLedger = executionLedger;
+        this.pipelineMetrics = pipelineMetrics;
+        this.commandTracker = commandTracker;
+        this.commandAgent = commandAgent;
+        this.commandWorkerExecutor = commandWorkerExecutor;
+        this.workerSlots = new Semaphore(commandWorkerExecutor.getMaxPoolSize());
+    }
+    
     /**
-     * 定时执行指令消费
-     * 使用fixedDelayString从配置文件读取间隔
+     * 定时分发指令：先占一个执行线程的空闲名额再从队列取出指令交给它执行
+     * 在独立的分发线程上运行，等待队列时不占用其他定时任务的线程；名额用完时指令留在队列中，
+     * 不会取出后因线程池已满被拒绝
      */
-    @Scheduled(fixedDelayString = "${feicur.execute.interval:3000}")
+    @Scheduled(fixedDelayString = "${feicur.execute.interval:3000}", scheduler = "commandDispatchScheduler")
     public void executeCommands() {
         try {
-            // 使用poll避免无限阻塞，超时时间设为执行间隔的一半
-            UserCommand command = commandQueue.poll(executeInterval / 2, TimeUnit.MILLISECONDS);
-            
-            if (command != null) {
-                executeCommand(command);
-            } else {
-                log.debug("No commands in queue, continuing...");
+            // 使用poll避免无限阻塞，超时时间设为执行间隔的一半；取到第一条后不再等待
+            long wait = executeInterval / 2;
+            while (workerSlots.tryAcquire()) {
+                UserCommand command;
+                try {
+                    command = commandQueue.poll(wait, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    workerSlots.release();
+                    throw e;
+                }
+                if (command == null) {
+                    workerSlots.release();
+                    log.debug("No commands in queue, continuing...");
+                    return;
+                }
+                wait = 0;
+                if (!dispatch(command)) {
+                    return;
+                }
             }
-            
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.warn("Command execution interrupted", e);
@@ -62,9 +131,141 @@ public class CommandExecutor {
     }
     
     /**
-     * 执行单个指令（MVP版本只打印）
+     * 交给执行线程池，执行结束后归还名额；线程池拒绝（例如正在关闭）时把指令放回所属分区的队首，返回false
+     */
+    private boolean dispatch(UserCommand command) {
+        try {
+            commandWorkerExecutor.execute(() -> {
+                try {
+                    runCommand(command, commandTracker.handleOf(command));
+                } catch (Exception e) {
+                    log.error("Error occurred while executing commands", e);
+                } finally {
+                    commandQueue.complete(command);
+                    commandTracker.complete(command);
+                    workerSlots.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            workerSlots.release();
+            commandQueue.requeue(command);
+            return false;
+        }
+    }
+    
+    /**
+     * 执行指令并处理结果：成功记入台账；被取消时不执行也不回写；超时或失败时回写失败原因
+     * 超时或失败时先等待仍在执行的写工具调用结束：文档已被修改（或写调用结果未知）时保留台账记录，不再重新执行
+     */
+    private void runCommand(UserCommand command, CommandHandle handle) {
+        ExecutionResult result;
+        FeicurEvents.CommandExecutionEvent event = new FeicurEvents.CommandExecutionEvent();
+        event.begin();
+        long executeStart = System.nanoTime();
+        try {
+            handle.checkActive();
+            result = executeCommand(command, handle);
+            pipelineMetrics.record(PipelineMetrics.STAGE_EXECUTE, System.nanoTime() - executeStart);
+            commit(event, command, "success");
+        } catch (RuntimeException e) {
+            boolean modified = awaitWrites(command, handle);
+            if (modified) {
+                executionLedger.markExecuted(command);
+            } else {
+                // 未修改文档的指令不记入台账，允许之后重新执行
+                executionLedger.release(command);
+            }
+            if (handle.isCancelled() || e instanceof CommandCancelledException) {
+                commit(event, command, "cancelled");
+                log.info("Skipping cancelled command {} for doc {}: {}",
+                        command.getCommandType(), command.getDocToken(), handle.getCancelReason());
+                return;
+            }
+            commit(event, command, e instanceof CommandTimeoutException ? "timeout" : "failed");
+            if (e instanceof CommandTimeoutException) {
+                log.warn("Command {} for doc {} timed out: {}",
+                        command.getCommandType(), command.getDocToken(), e.getMessage());
+                result = failureResult(command, modified ? "指令执行超时，文档已被部分修改，请检查后再重新提交" :
+                        "指令执行超时，已放弃");
+            } else {
+                log.error("Failed to execute command {} for doc {}",
+                        command.getCommandType(), command.getDocToken(), e);
+                result = failureResult(command, "指令执行失败: " + e.getMessage() +
+                        (modified ? "（文档已被部分修改，请检查后再重新提交）" : ""));
+            }
+            submitWriteBack(command, result);
+            return;
+        }
+        executionLedger.markExecuted(command);
+        submitWriteBack(command, result);
+    }
+    
+    /**
+     * 等待指令仍在执行的写工具调用结束（最多writeSettleTimeout毫秒）
+     *
+     * @return 文档是否可能已被修改：有写调用正常返回，或写调用未能在等待时间内结束
      */
-    private void executeCommand(UserCommand command) {
+    private boolean awaitWrites(UserCommand command, CommandHandle handle) {
+        // 指令被取消时本线程可能已被中断，先清除中断标记再等待
+        boolean interrupted = Thread.interrupted();
+        boolean settled;
+        try {
+            settled = handle.awaitWrites(writeSettleTimeout);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            settled = false;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!settled) {
+            log.warn("Write tool call of command {} for doc {} did not settle within {}ms, keeping ledger entry",
+                    command.getCommandType(), command.getDocToken(), writeSettleTimeout);
+            return true;
+        }
+        return handle.getWritesApplied() > 0;
+    }
+    
+    private void commit(FeicurEvents.CommandExecutionEvent event, UserCommand command, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.docToken = command.getDocToken();
+            event.commentId = command.getSourceComment() != null ? command.getSourceComment().getCommentId() : null;
+            event.commandType = command.getCommandType();
+            event.complexity = command.getComplexity() != null ? command.getComplexity().name() : null;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 提交到回写队列，不等待回写完成
+     */
+    private void submitWriteBack(UserCommand command, ExecutionResult result) {
+        if (WRITE_BACK_TYPES.contains(command.getCommandType())) {
+            commentWriteBack.submit(result);
+        }
+    }
+    
+    private ExecutionResult failureResult(UserCommand command, String message) {
+        return new ExecutionResult(
+            command.getDocToken(),
+            command.getSourceComment() != null ? command.getSourceComment().getCommentId() : null,
+            command.getCommandType(),
+            false,
+            message,
+            false,
+            Instant.now()
+        );
+    }
+    
+    /**
+     * 执行单个指令
+     * 启用Agent时由模型通过飞书工具执行需要回写的指令，否则只打印（MVP行为）
+     */
+    private ExecutionResult executeCommand(UserCommand command, CommandHandle handle) {
         log.info("=== 执行指令 ===");
         log.info("指令类型: {}", command.getCommandType());
         log.info("文档Token: {}", command.getDocToken());
@@ -90,6 +291,21 @@ public class CommandExecutor {
         System.out.println("💬 内容: " + (command.getContent() != null ? 
                           command.getContent().substring(0, Math.min(100, command.getContent().length())) : "无内容"));
         System.out.println("----------------------------------------\n");
+        
+        String message = "Feicur 已收到指令: " + command.getCommandType();
+        if (commandAgent.isEnabled() && WRITE_BACK_TYPES.contains(command.getCommandType())) {
+            message = commandAgent.execute(command, handle);
+        }
+        
+        return new ExecutionResult(
+            command.getDocToken(),
+            command.getSourceComment() != null ? command.getSourceComment().getCommentId() : null,
+            command.getCommandType(),
+            true,
+            message,
+            resolveOnSuccess,
+            Instant.now()
+        );
     }
     
     /**
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.executor;
+
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条指令的执行控制：取消标记、正在进行的模型调用和写工具调用
+ * 取消时中断正在进行的调用，工具调用在开始前也会检查取消标记；写调用不被中断，
+ * 指令结束时可以等待它们执行完，判断文档是否已被修改
+ */
+public class CommandHandle {
+
+    private final UserCommand command;
+    private volatile boolean cancelled = false;
+    private volatile String cancelReason;
+    private volatile Future<?> running;
+    private volatile String progress;
+    private int writesInFlight;
+    private int writesApplied;
+
+    CommandHandle(UserCommand command) {
+        this.command = command;
+    }
+
+    public UserCommand getCommand() {
+        return command;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String getCancelReason() {
+        return cancelReason;
+    }
+
+    /**
+     * 取消指令，正在进行的调用会被中断
+     */
+    public void cancel(String reason) {
+        cancelReason = reason;
+        cancelled = true;
+        Future<?> future = running;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 登记正在进行的调用（取消或超时时中断）
+     */
+    public void setRunning(Future<?> future) {
+        running = future;
+        if (cancelled && future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 执行进度（模型生成、工具调用等），执行中的指令在/status中可见
+     */
+    public void reportProgress(String progress) {
+        this.progress = progress;
+    }
+
+    public String getProgress() {
+        return progress;
+    }
+
+    /**
+     * 写工具调用开始执行（拿到许可后、实际调用前）
+     */
+    public synchronized void writeStarted() {
+        writesInFlight++;
+    }
+
+    /**
+     * 写工具调用结束
+     *
+     * @param applied 调用正常返回（文档可能已被修改）
+     */
+    public synchronized void writeFinished(boolean applied) {
+        writesInFlight--;
+        if (applied) {
+            writesApplied++;
+        }
+        notifyAll();
+    }
+
+    /**
+     * 等待正在执行的写工具调用结束
+     *
+     * @return 是否在timeoutMillis内全部结束
+     */
+    public synchronized boolean awaitWrites(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (writesInFlight > 0) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * 已正常返回的写工具调用数
+     */
+    public synchronized int getWritesApplied() {
+        return writesApplied;
+    }
+
+    /**
+     * 已取消或已超时时抛出异常，在每次模型/工具调用前检查
+     */
+    public void checkActive() {
+        if (cancelled) {
+            throw new CommandCancelledException("Command cancelled: " + cancelReason);
+        }
+        if (command.isExpired()) {
+            throw new CommandTimeoutException("Command deadline exceeded at " + command.getDeadline());
+        }
+    }
+}
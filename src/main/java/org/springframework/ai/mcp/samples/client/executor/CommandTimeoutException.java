@@ -0,0 +1,26 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.executor;
+
+/**
+ * 指令超过截止时间：排队过久，或模型/工具调用未能在截止时间前完成
+ */
+public class CommandTimeoutException extends RuntimeException {
+
+    public CommandTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 待执行/执行中指令的登记表（按文档+评论）
+ * 评论被删除或解决时，取消该评论尚未完成的指令
+ */
+@Component
+@Slf4j
+public class CommandTracker {
+
+    /**
+     * /status中最多展示的执行进度条数
+     */
+    private static final int MAX_REPORTED_PROGRESS = 20;
+
+    private final Map<String, List<CommandHandle>> handles = new ConcurrentHashMap<>();
+
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * 登记指令（入队前调用）
+     */
+    public CommandHandle track(UserCommand command) {
+        CommandHandle handle = new CommandHandle(command);
+        String key = key(command);
+        if (key != null) {
+            handles.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(handle);
+        }
+        return handle;
+    }
+
+    /**
+     * 获取指令的控制句柄，未登记时返回新的句柄
+     */
+    public CommandHandle handleOf(UserCommand command) {
+        String key = key(command);
+        List<CommandHandle> list = key != null ? handles.get(key) : null;
+        if (list != null) {
+            for (CommandHandle handle : list) {
+                if (handle.getCommand() == command) {
+                    return handle;
+                }
+            }
+        }
+        return new CommandHandle(command);
+    }
+
+    /**
+     * 指令完成（或入队失败）后移除登记
+     */
+    public void complete(UserCommand command) {
+        String key = key(command);
+        if (key == null) {
+            return;
+        }
+        handles.computeIfPresent(key, (k, list) -> {
+            list.removeIf(handle -> handle.getCommand() == command);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * 取消指定评论所有未完成的指令
+     *
+     * @return 被取消的指令数
+     */
+    public int supersede(String docToken, String commentId, String reason) {
+        List<CommandHandle> list = handles.get(docToken + "/" + commentId);
+        if (list == null) {
+            return 0;
+        }
+        int count = 0;
+        for (CommandHandle handle : list) {
+            if (!handle.isCancelled()) {
+                handle.cancel(reason);
+                count++;
+            }
+        }
+        if (count > 0) {
+            cancelled.addAndGet(count);
+            log.info("Cancelled {} pending commands for comment {} in doc {}: {}", count, commentId, docToken, reason);
+        }
+        return count;
+    }
+
+    /**
+     * 获取统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracked", handles.values().stream().mapToInt(List::size).sum());
+        stats.put("cancelled", cancelled.get());
+        Map<String, String> progress = new HashMap<>();
+        handles.forEach((key, list) -> list.forEach(handle -> {
+            if (handle.getProgress() != null && progress.size() < MAX_REPORTED_PROGRESS) {
+                progress.put(key, handle.getProgress());
+            }
+        }));
+        stats.put("progress", progress);
+        return stats;
+    }
+
+    private String key(UserCommand command) {
+        if (command.getDocToken() == null || command.getSourceComment() == null ||
+            command.getSourceComment().getCommentId() == null) {
+            return null;
+        }
+        return command.getDocToken() + "/" + command.getSourceComment().getCommentId();
+    }
+}
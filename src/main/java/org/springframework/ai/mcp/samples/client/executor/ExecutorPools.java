@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 各处理阶段线程池的登记表
+ * 轮询、事件处理、指令执行、回写等阶段各自使用独立的线程池（见FeicurConfig），一个阶段阻塞不会占用其他阶段的线程。
+ * 登记的线程池统计活跃线程数、队列深度、拒绝次数和排队等待时间，并可在运行时调整大小
+ * （大小由其他配置推导、且有名额随之计算的线程池登记为固定大小，不能调整）
+ */
+@Component
+@Slf4j
+public class ExecutorPools {
+
+    private final Map<String, Pool> pools = new LinkedHashMap<>();
+
+    private record Pool(ThreadPoolTaskExecutor executor, ThreadPoolTaskScheduler scheduler, PoolTelemetry telemetry,
+                        boolean resizable) {
+    }
+
+    /**
+     * 为线程池加上统计（需在initialize之前调用）
+     *
+     * @param rejectionPolicy 队列已满时的处理策略
+     */
+    public synchronized void instrument(String name, ThreadPoolTaskExecutor executor,
+                                        RejectedExecutionHandler rejectionPolicy) {
+        instrument(name, executor, rejectionPolicy, true);
+    }
+
+    /**
+     * 为线程池加上统计（需在initialize之前调用）
+     *
+     * @param rejectionPolicy 队列已满时的处理策略
+     * @param resizable 是否允许运行时调整大小
+     */
+    public synchronized void instrument(String name, ThreadPoolTaskExecutor executor,
+                                        RejectedExecutionHandler rejectionPolicy, boolean resizable) {
+        PoolTelemetry telemetry = new PoolTelemetry();
+        executor.setTaskDecorator(telemetry.decorator());
+        executor.setRejectedExecutionHandler(telemetry.counting(rejectionPolicy));
+        pools.put(name, new Pool(executor, null, telemetry, resizable));
+    }
+
+    /**
+     * 为调度器加上拒绝统计（需在initialize之前调用）；定时任务没有排队等待，只统计拒绝次数
+     */
+    public synchronized void instrument(String name, ThreadPoolTaskScheduler scheduler) {
+        PoolTelemetry telemetry = new PoolTelemetry();
+        scheduler.setRejectedExecutionHandler(telemetry.counting(new ThreadPoolExecutor.AbortPolicy()));
+        pools.put(name, new Pool(null, scheduler, telemetry, true));
+    }
+
+    /**
+     * 运行时调整线程池大小
+     *
+     * @param coreSize 核心线程数
+     * @param maxSize 最大线程数，为null时与核心线程数相同（调度器忽略此参数）
+     * @return 调整后的统计
+     * @throws IllegalArgumentException 线程池不存在、不允许调整或大小无效
+     */
+    public synchronized Map<String, Object> resize(String name, int coreSize, Integer maxSize) {
+        Pool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown executor pool: " + name);
+        }
+        if (!pool.resizable()) {
+            throw new IllegalArgumentException("Executor pool " + name + " is sized from its configuration and cannot be resized at runtime");
+        }
+        int max = maxSize != null ? maxSize : coreSize;
+        if (coreSize < 1 || max < coreSize) {
+            throw new IllegalArgumentException("Invalid pool size: core=" + coreSize + ", max=" + max);
+        }
+        if (pool.scheduler() != null) {
+            pool.scheduler().setPoolSize(coreSize);
+        } else if (coreSize > pool.executor().getMaxPoolSize()) {
+            // 先扩大最大线程数，避免核心线程数暂时大于最大线程数
+            pool.executor().setMaxPoolSize(max);
+            pool.executor().setCorePoolSize(coreSize);
+        } else {
+            pool.executor().setCorePoolSize(coreSize);
+            pool.executor().setMaxPoolSize(max);
+        }
+        log.info("Resized executor pool {} to core={} max={}", name, coreSize, pool.scheduler() != null ? coreSize : max);
+        return statsOf(pool);
+    }
+
+    /**
+     * 获取各线程池统计
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        pools.forEach((name, pool) -> stats.put(name, statsOf(pool)));
+        return stats;
+    }
+
+    private static Map<String, Object> statsOf(Pool pool) {
+        if (pool.scheduler() != null) {
+            ScheduledThreadPoolExecutor executor = pool.scheduler().getScheduledThreadPoolExecutor();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("type", "scheduler");
+            stats.put("rejected", pool.telemetry().getRejected());
+            stats.put("poolSize", executor.getCorePoolSize());
+            stats.put("activeCount", executor.getActiveCount());
+            stats.put("scheduledTasks", executor.getQueue().size());
+            return stats;
+        }
+        ThreadPoolExecutor executor = pool.executor().getThreadPoolExecutor();
+        Map<String, Object> stats = pool.telemetry().toMap();
+        stats.put("type", "executor");
+        stats.put("resizable", pool.resizable());
+        stats.put("corePoolSize", executor.getCorePoolSize());
+        stats.put("maxPoolSize", executor.getMaximumPoolSize());
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("activeCount", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueRemaining", executor.getQueue().remainingCapacity());
+        return stats;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.executor;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个线程池的提交、拒绝和排队等待统计
+ * 等待时间从提交到开始执行计算，通过TaskDecorator包装任务获得
+ */
+class PoolTelemetry {
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+
+    TaskDecorator decorator() {
+        return task -> {
+            long queuedAt = System.nanoTime();
+            submitted.incrementAndGet();
+            return () -> {
+                long wait = System.nanoTime() - queuedAt;
+                started.incrementAndGet();
+                totalWaitNanos.addAndGet(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                try {
+                    task.run();
+                } finally {
+                    completed.incrementAndGet();
+                }
+            };
+        };
+    }
+
+    RejectedExecutionHandler counting(RejectedExecutionHandler delegate) {
+        return (task, executor) -> {
+            rejected.incrementAndGet();
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> stats = new HashMap<>();
+        long count = started.get();
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("avgWaitMicros", count == 0 ? 0 : totalWaitNanos.get() / count / 1000);
+        stats.put("maxWaitMicros", maxWaitNanos.get() / 1000);
+        return stats;
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
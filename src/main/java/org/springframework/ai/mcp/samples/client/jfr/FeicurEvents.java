@@ -0,0 +1,166 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Feicur处理流水线的JFR事件
+ * 事件覆盖轮询、拉取评论、解析、生成快照、变更检测、指令入队出队和指令执行，均携带docToken和数据量，
+ * 可以在JMC中与GC、线程停顿、I/O事件按时间对齐分析。不记录堆栈，未开启录制时commit几乎没有开销
+ */
+public final class FeicurEvents {
+
+    private FeicurEvents() {
+    }
+
+    @Name("feicur.Poll")
+    @Label("Poll Comments")
+    @Category({"Feicur", "Pipeline"})
+    @Description("一次文档评论轮询，从发起到结果处理完成（包括重试等待）")
+    @StackTrace(false)
+    public static class PollEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Comments")
+        public int comments;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("feicur.ListComments")
+    @Label("List Comments")
+    @Category({"Feicur", "Pipeline"})
+    @Description("一次评论列表MCP调用，包括限流等待、断路器和舱壁")
+    @StackTrace(false)
+    public static class ListCommentsEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Comments")
+        public int comments;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("feicur.ParseComments")
+    @Label("Parse Comments")
+    @Category({"Feicur", "Pipeline"})
+    @Description("解析评论列表MCP响应")
+    @StackTrace(false)
+    public static class ParseCommentsEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Response Length")
+        @Description("响应文本的字符数")
+        public long responseLength;
+
+        @Label("Comments")
+        public int comments;
+    }
+
+    @Name("feicur.Snapshot")
+    @Label("Build Snapshot")
+    @Category({"Feicur", "Pipeline"})
+    @Description("由评论列表生成快照")
+    @StackTrace(false)
+    public static class SnapshotEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Comments")
+        public int comments;
+
+        @Label("Reused Comments")
+        @Description("与上一次快照相同、复用旧对象的评论数")
+        public int reused;
+    }
+
+    @Name("feicur.DetectChanges")
+    @Label("Detect Changes")
+    @Category({"Feicur", "Pipeline"})
+    @Description("比较两次快照生成评论变更事件")
+    @StackTrace(false)
+    public static class DetectEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Old Comments")
+        public int oldComments;
+
+        @Label("New Comments")
+        public int newComments;
+
+        @Label("Events")
+        public int events;
+    }
+
+    @Name("feicur.CommandQueue")
+    @Label("Command Queue")
+    @Category({"Feicur", "Queue"})
+    @Description("指令入队（offer）或出队（poll，只记录取到指令的调用，耗时包括等待）")
+    @StackTrace(false)
+    public static class QueueEvent extends Event {
+        @Label("Operation")
+        public String operation;
+
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Tenant")
+        public String tenant;
+
+        @Label("Command Type")
+        public String commandType;
+
+        @Label("Queue Size")
+        public int queueSize;
+
+        @Label("Accepted")
+        public boolean accepted;
+    }
+
+    @Name("feicur.CommandExecution")
+    @Label("Command Execution")
+    @Category({"Feicur", "Command"})
+    @Description("一条指令的执行（不包括回写）")
+    @StackTrace(false)
+    public static class CommandExecutionEvent extends Event {
+        @Label("Doc Token")
+        public String docToken;
+
+        @Label("Comment Id")
+        public String commentId;
+
+        @Label("Command Type")
+        public String commandType;
+
+        @Label("Complexity")
+        public String complexity;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+}
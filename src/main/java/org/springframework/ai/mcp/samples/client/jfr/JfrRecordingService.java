@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行时开启和导出JFR录制，不需要重启或重新部署
+ * 录制使用JDK自带的default/profile配置（GC、线程停顿、I/O等）并开启Feicur流水线事件，
+ * 按max-age/max-size保留最近的数据，导出的文件可直接用JMC打开
+ */
+@Component
+@Slf4j
+public class JfrRecordingService {
+
+    private static final List<Class<? extends jdk.jfr.Event>> FEICUR_EVENTS = List.of(
+            FeicurEvents.PollEvent.class,
+            FeicurEvents.ListCommentsEvent.class,
+            FeicurEvents.ParseCommentsEvent.class,
+            FeicurEvents.SnapshotEvent.class,
+            FeicurEvents.DetectEvent.class,
+            FeicurEvents.QueueEvent.class,
+            FeicurEvents.CommandExecutionEvent.class);
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${feicur.jfr.start-on-boot:false}")
+    private boolean startOnBoot;
+
+    @Value("${feicur.jfr.settings:default}")
+    private String defaultSettings;
+
+    @Value("${feicur.jfr.max-age:30m}")
+    private Duration maxAge;
+
+    @Value("${feicur.jfr.max-size-mb:256}")
+    private long maxSizeMb;
+
+    @Value("${feicur.jfr.threshold:0ms}")
+    private Duration threshold;
+
+    @Value("${feicur.jfr.dump-dir:${java.io.tmpdir}}")
+    private String dumpDir;
+
+    private Recording recording;
+    private Path lastDump;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void startOnBoot() {
+        if (startOnBoot) {
+            start(null);
+        }
+    }
+
+    /**
+     * 开始录制；已在录制时保持不变
+     *
+     * @param settings JDK录制配置名（default或profile），为空时使用feicur.jfr.settings
+     * @return 录制状态
+     */
+    public synchronized Map<String, Object> start(String settings) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return getStatus();
+        }
+        String name = settings == null || settings.isBlank() ? defaultSettings : settings;
+        Recording started;
+        try {
+            started = new Recording(Configuration.getConfiguration(name));
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + name, e);
+        }
+        started.setName("feicur");
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeMb * 1024 * 1024);
+        for (Class<? extends jdk.jfr.Event> event : FEICUR_EVENTS) {
+            started.enable(event).withThreshold(threshold);
+        }
+        started.start();
+        recording = started;
+        log.info("JFR recording started with {} settings (max age {}, max size {}MB)", name, maxAge, maxSizeMb);
+        return getStatus();
+    }
+
+    /**
+     * 把当前录制的数据导出到文件，录制继续进行
+     *
+     * @return 导出文件路径
+     * @throws IllegalStateException 没有进行中的录制
+     */
+    public synchronized Path dump() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No JFR recording in progress");
+        }
+        try {
+            Path dir = Paths.get(dumpDir);
+            Files.createDirectories(dir);
+            Path file = dir.resolve("feicur-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            recording.dump(file);
+            lastDump = file;
+            log.info("JFR recording dumped to {}", file);
+            return file;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to dump JFR recording: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 停止并丢弃当前录制（需要保留时先导出）
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            log.info("JFR recording stopped");
+        }
+    }
+
+    /**
+     * 获取录制状态
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        boolean running = recording != null && recording.getState() == RecordingState.RUNNING;
+        status.put("recording", running);
+        if (running) {
+            status.put("startTime", String.valueOf(recording.getStartTime()));
+            status.put("sizeBytes", recording.getSize());
+        }
+        status.put("maxAge", maxAge.toString());
+        status.put("lastDump", lastDump != null ? lastDump.toString() : null);
+        return status;
+    }
+}
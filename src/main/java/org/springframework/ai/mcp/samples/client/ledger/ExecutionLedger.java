@@ -0,0 +1,277 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指令执行台账（幂等去重）
+ * 以 (docToken, commentId, 指令类型, 评论修订时间) 的64位指纹记录每条已执行的指令，
+ * 内存中按指纹精确查找；索引以定长记录（指纹 + 执行时间）追加写入本地文件，启动时加载，按TTL定期压缩重写
+ */
+@Component
+@Slf4j
+public class ExecutionLedger {
+
+    /**
+     * 单条记录长度：指纹(8) + 执行时间(8)
+     */
+    private static final int RECORD_BYTES = 16;
+
+    @Value("${feicur.ledger.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.ledger.file:${user.home}/.feicur/ledger.bin}")
+    private String ledgerFile;
+
+    @Value("${feicur.ledger.ttl:604800000}")
+    private long ttl;
+
+    /**
+     * 已执行指令：指纹 -> 执行时间（epoch毫秒）
+     */
+    private final Map<Long, Long> index = new ConcurrentHashMap<>();
+
+    /**
+     * 已入队但尚未执行完成的指令，防止重复入队
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private DataOutputStream appender;
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile Instant lastCompaction;
+
+    /**
+     * 加载磁盘索引（过期记录直接丢弃）
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Path path = Path.of(ledgerFile);
+        long cutoff = System.currentTimeMillis() - ttl;
+        int expired = 0;
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    long fingerprint = in.readLong();
+                    long executedAt = in.readLong();
+                    if (executedAt >= cutoff) {
+                        index.merge(fingerprint, executedAt, Math::max);
+                    } else {
+                        expired++;
+                    }
+                }
+            } catch (EOFException e) {
+                // 读到文件末尾（崩溃时写了一半的记录也在这里被丢弃）
+            } catch (IOException e) {
+                log.error("Failed to load execution ledger from {}", path, e);
+            }
+        }
+
+        synchronized (this) {
+            // 启动时压缩一次，去掉过期和重复的记录
+            rewrite(path);
+        }
+        log.info("Execution ledger loaded: {} entries ({} expired) from {}", index.size(), expired, path);
+    }
+
+    /**
+     * 入队前登记指令
+     *
+     * @return 新指令返回true；已执行过或已在队列中返回false
+     */
+    public boolean tryClaim(UserCommand command) {
+        if (!enabled) {
+            return true;
+        }
+        long fingerprint = fingerprint(command);
+        if (index.containsKey(fingerprint) || !inFlight.add(fingerprint)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 释放登记（入队失败或执行失败，允许之后再次执行）
+     */
+    public void release(UserCommand command) {
+        if (enabled) {
+            inFlight.remove(fingerprint(command));
+        }
+    }
+
+    /**
+     * 记录指令已执行，并追加写入磁盘
+     */
+    public void markExecuted(UserCommand command) {
+        if (!enabled) {
+            return;
+        }
+        long fingerprint = fingerprint(command);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            index.put(fingerprint, now);
+            append(fingerprint, now);
+        }
+        inFlight.remove(fingerprint);
+    }
+
+    /**
+     * 按TTL压缩：移除过期记录并重写索引文件
+     */
+    @Scheduled(fixedDelayString = "${feicur.ledger.compact-interval:3600000}",
+               initialDelayString = "${feicur.ledger.compact-interval:3600000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - ttl;
+        synchronized (this) {
+            int before = index.size();
+            index.values().removeIf(executedAt -> executedAt < cutoff);
+            rewrite(Path.of(ledgerFile));
+            log.info("Execution ledger compacted: {} -> {} entries", before, index.size());
+        }
+    }
+
+    /**
+     * 指令指纹：同一评论的同一修订只对应一个指纹；修订时间取秒级，与变更检测的精度一致
+     */
+    static long fingerprint(UserCommand command) {
+        RawComment comment = command.getSourceComment();
+        Instant revision = comment == null ? null :
+                comment.getUpdateTime() != null ? comment.getUpdateTime() : comment.getCreateTime();
+        String key = command.getDocToken() + '\u0000' +
+                     (comment != null ? comment.getCommentId() : null) + '\u0000' +
+                     command.getCommandType() + '\u0000' +
+                     (revision != null ? revision.getEpochSecond() : 0);
+        // FNV-1a 64位哈希，再经fmix64打散
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * 64位混合函数（MurmurHash3 fmix64）
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void append(long fingerprint, long executedAt) {
+        try {
+            if (appender == null) {
+                Path path = Path.of(ledgerFile);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                appender = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND), RECORD_BYTES * 64));
+            }
+            appender.writeLong(fingerprint);
+            appender.writeLong(executedAt);
+            appender.flush();
+        } catch (IOException e) {
+            // 写盘失败时仍保留内存索引，本进程内的去重不受影响
+            log.warn("Failed to append to execution ledger {}: {}", ledgerFile, e.getMessage());
+            closeAppender();
+        }
+    }
+
+    /**
+     * 重写索引文件（调用方需持有锁）：先写临时文件再原子替换
+     */
+    private void rewrite(Path path) {
+        closeAppender();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                for (Map.Entry<Long, Long> entry : index.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastCompaction = Instant.now();
+        } catch (IOException e) {
+            log.warn("Failed to rewrite execution ledger {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void closeAppender() {
+        if (appender != null) {
+            try {
+                appender.close();
+            } catch (IOException e) {
+                log.debug("Failed to close execution ledger appender: {}", e.getMessage());
+            }
+            appender = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeAppender();
+    }
+
+    /**
+     * 获取台账统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", index.size());
+        stats.put("inFlight", inFlight.size());
+        stats.put("duplicatesRejected", duplicates.get());
+        stats.put("lastCompaction", lastCompaction);
+        return stats;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.llm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模型路由配置（feicur.llm.*）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "feicur.llm")
+public class LlmRoutingProperties {
+
+    /**
+     * 可用的服务商+模型，未配置时使用所有已启用的服务商及其默认模型
+     */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * 每个路由统计延迟和错误率的最近调用数
+     */
+    private int window = 50;
+
+    /**
+     * 窗口内至少有这么多次调用才按错误率熔断
+     */
+    private int minSamples = 5;
+
+    /**
+     * 窗口内错误率达到该值时熔断
+     */
+    private double errorThreshold = 0.5;
+
+    /**
+     * 熔断后的冷却时间（毫秒）
+     */
+    private long cooldown = 30000;
+
+    /**
+     * 收到429/过载错误后的冷却时间（毫秒）
+     */
+    private long rateLimitCooldown = 10000;
+
+    /**
+     * 等待路由并发名额的最长时间（毫秒），超时后尝试下一个路由
+     */
+    private long acquireTimeout = 2000;
+
+    /**
+     * 单个路由
+     */
+    @Data
+    public static class Route {
+
+        /**
+         * 服务商：openai / anthropic
+         */
+        private String provider;
+
+        /**
+         * 模型名，为空时使用服务商的默认模型
+         */
+        private String model;
+
+        /**
+         * 最大并发请求数
+         */
+        private int maxConcurrency = 8;
+
+        /**
+         * 只服务明确指定了该模型的请求（例如分诊用的快速模型），不参与未指定模型的请求的路由
+         */
+        private boolean explicitOnly = false;
+    }
+}
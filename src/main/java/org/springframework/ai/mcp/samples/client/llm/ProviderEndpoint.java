@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.llm;
+
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 一个路由目标（服务商+模型）
+ * 记录最近window次调用的延迟和结果，按延迟、错误率、429比例和当前并发计算得分，得分越低越优先
+ */
+class ProviderEndpoint {
+
+    enum Outcome { SUCCESS, ERROR, RATE_LIMITED }
+
+    private final String provider;
+    private final String model;
+    private final ChatModel chatModel;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final boolean explicitOnly;
+
+    private final long[] latencies;
+    private final Outcome[] outcomes;
+    private int next = 0;
+    private int size = 0;
+    private long cooldownUntil = 0;
+
+    ProviderEndpoint(String provider, String model, ChatModel chatModel, int maxConcurrency, boolean explicitOnly,
+                     int window) {
+        this.provider = provider;
+        this.model = model;
+        this.chatModel = chatModel;
+        this.maxConcurrency = maxConcurrency;
+        this.explicitOnly = explicitOnly;
+        this.permits = new Semaphore(maxConcurrency);
+        this.latencies = new long[window];
+        this.outcomes = new Outcome[window];
+    }
+
+    String getName() {
+        return model != null ? provider + "/" + model : provider;
+    }
+
+    String getModel() {
+        return model;
+    }
+
+    /**
+     * 是否只服务明确指定了本路由模型的请求
+     */
+    boolean isExplicitOnly() {
+        return explicitOnly;
+    }
+
+    ChatModel getChatModel() {
+        return chatModel;
+    }
+
+    Semaphore getPermits() {
+        return permits;
+    }
+
+    /**
+     * 记录一次调用结果，返回记录后窗口内的错误率
+     */
+    synchronized double record(long latencyMillis, Outcome outcome) {
+        latencies[next] = latencyMillis;
+        outcomes[next] = outcome;
+        next = (next + 1) % latencies.length;
+        size = Math.min(size + 1, latencies.length);
+        return rate(Outcome.ERROR) + rate(Outcome.RATE_LIMITED);
+    }
+
+    synchronized int getSamples() {
+        return size;
+    }
+
+    synchronized void coolDown(long millis) {
+        cooldownUntil = Math.max(cooldownUntil, System.currentTimeMillis() + millis);
+    }
+
+    synchronized boolean isCoolingDown() {
+        return System.currentTimeMillis() < cooldownUntil;
+    }
+
+    /**
+     * 路由得分：平均成功延迟按错误率、429比例和并发占用放大；冷却中的路由排在最后
+     */
+    synchronized double score() {
+        double latency = averageSuccessLatency();
+        double load = 1.0 + (double) (maxConcurrency - permits.availablePermits()) / maxConcurrency;
+        double score = latency * (1 + 4 * rate(Outcome.ERROR) + 8 * rate(Outcome.RATE_LIMITED)) * load;
+        return isCoolingDown() ? Double.MAX_VALUE / 2 + score : score;
+    }
+
+    private double averageSuccessLatency() {
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == Outcome.SUCCESS) {
+                total += latencies[i];
+                count++;
+            }
+        }
+        // 没有成功样本的路由按1秒估计，新路由也能分到流量
+        return count == 0 ? 1000.0 : (double) total / count;
+    }
+
+    private double rate(Outcome outcome) {
+        if (size == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == outcome) {
+                count++;
+            }
+        }
+        return (double) count / size;
+    }
+
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("samples", size);
+        stats.put("avgLatencyMillis", Math.round(averageSuccessLatency()));
+        stats.put("errorRate", Math.round(rate(Outcome.ERROR) * 1000) / 1000.0);
+        stats.put("rateLimitedRate", Math.round(rate(Outcome.RATE_LIMITED) * 1000) / 1000.0);
+        stats.put("inFlight", maxConcurrency - permits.availablePermits());
+        stats.put("coolingDown", isCoolingDown());
+        stats.put("explicitOnly", explicitOnly);
+        return stats;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.llm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按延迟和健康状况在多个模型服务商之间路由
+ * 每次请求按得分（最近延迟、错误率、429比例、并发占用）依次尝试各路由，出错时立即换下一个路由；
+ * 错误率超过阈值或收到429/过载错误的路由进入冷却期。每个路由有独立的并发上限，
+ * 拿不到并发名额时同样换下一个路由，一个服务商变慢或限流时指令吞吐不会随之下降。
+ * 失败切换会重新发送整个请求；流式Agent（默认）已关闭框架内部的工具执行，切换路由不会重复执行工具。
+ * 非流式请求由服务商在call()内部执行工具循环，一旦本次请求调用过工具（见markToolInvoked）就不再切换路由，
+ * 直接报告错误，避免换路由后重新执行整个工具循环、重复修改文档。
+ * 请求指定了路由中配置的模型时只在这些路由间切换；未指定模型或指定了未配置的模型时只使用默认路由（未标记explicit-only的路由），
+ * 各路由使用自己的模型。分诊用的快速模型声明为explicit-only路由，不会因为延迟低而接管完整的Agent执行
+ */
+@Component
+@Primary
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    /**
+     * Spring AI错误处理器的异常消息格式：“状态码 - 响应体”
+     */
+    private static final Pattern ERROR_STATUS = Pattern.compile("(\\d{3}) - ");
+
+    private final ListableBeanFactory beanFactory;
+    private final LlmRoutingProperties properties;
+
+    private volatile List<ProviderEndpoint> endpoints;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong failedAfterTools = new AtomicLong();
+
+    /**
+     * 当前线程上正在进行的非流式请求是否已调用过工具
+     */
+    private static final ThreadLocal<AtomicBoolean> TOOL_INVOKED = new ThreadLocal<>();
+
+    public RoutingChatModel(ListableBeanFactory beanFactory, LlmRoutingProperties properties) {
+        this.beanFactory = beanFactory;
+        this.properties = properties;
+    }
+
+    /**
+     * 工具回调在执行前调用：标记当前线程上的非流式请求已调用过工具，此后出错不再切换路由
+     */
+    public static void markToolInvoked() {
+        AtomicBoolean invoked = TOOL_INVOKED.get();
+        if (invoked != null) {
+            invoked.set(true);
+        }
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        requests.incrementAndGet();
+        AtomicBoolean toolInvoked = new AtomicBoolean(false);
+        AtomicBoolean outer = TOOL_INVOKED.get();
+        TOOL_INVOKED.set(toolInvoked);
+        try {
+            RuntimeException lastError = null;
+            for (ProviderEndpoint endpoint : candidates(prompt)) {
+                if (!acquire(endpoint)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    ChatResponse response = endpoint.getChatModel().call(routed(prompt, endpoint));
+                    onSuccess(endpoint, start);
+                    return response;
+                } catch (RuntimeException e) {
+                    onError(endpoint, start, e);
+                    if (toolInvoked.get()) {
+                        failedAfterTools.incrementAndGet();
+                        log.warn("Model route {} failed after tools were invoked, not failing over", endpoint.getName());
+                        throw e;
+                    }
+                    failovers.incrementAndGet();
+                    lastError = e;
+                } finally {
+                    endpoint.getPermits().release();
+                }
+            }
+            exhausted.incrementAndGet();
+            throw lastError != null ? lastError : new IllegalStateException("No model provider available");
+        } finally {
+            if (outer != null) {
+                TOOL_INVOKED.set(outer);
+            } else {
+                TOOL_INVOKED.remove();
+            }
+        }
+    }
+
+    /**
+     * 流式请求：只有在收到第一个响应之前出错才切换路由，延迟按首个响应的到达时间计算
+     */
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        requests.incrementAndGet();
+        return streamFrom(prompt, candidates(prompt).iterator(), null);
+    }
+
+    private Flux<ChatResponse> streamFrom(Prompt prompt, Iterator<ProviderEndpoint> remaining, Throwable lastError) {
+        return Flux.defer(() -> {
+            while (remaining.hasNext()) {
+                ProviderEndpoint endpoint = remaining.next();
+                if (!acquire(endpoint)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                AtomicBoolean started = new AtomicBoolean(false);
+                return endpoint.getChatModel().stream(routed(prompt, endpoint))
+                        .doOnNext(response -> {
+                            if (started.compareAndSet(false, true)) {
+                                onSuccess(endpoint, start);
+                            }
+                        })
+                        .doFinally(signal -> endpoint.getPermits().release())
+                        .onErrorResume(e -> {
+                            if (started.get()) {
+                                return Flux.error(e);
+                            }
+                            onError(endpoint, start, e);
+                            failovers.incrementAndGet();
+                            return streamFrom(prompt, remaining, e);
+                        });
+            }
+            exhausted.incrementAndGet();
+            return Flux.error(lastError != null ? lastError : new IllegalStateException("No model provider available"));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    /**
+     * 按得分排序的候选路由；请求指定了已配置的模型时只使用该模型的路由，否则只使用默认路由
+     */
+    private List<ProviderEndpoint> candidates(Prompt prompt) {
+        List<ProviderEndpoint> all = getEndpoints();
+        String requested = prompt.getOptions() != null ? prompt.getOptions().getModel() : null;
+        List<ProviderEndpoint> candidates = new ArrayList<>();
+        if (requested != null) {
+            for (ProviderEndpoint endpoint : all) {
+                if (requested.equals(endpoint.getModel())) {
+                    candidates.add(endpoint);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (ProviderEndpoint endpoint : all) {
+                if (!endpoint.isExplicitOnly()) {
+                    candidates.add(endpoint);
+                }
+            }
+        }
+        Map<ProviderEndpoint, Double> scores = new HashMap<>();
+        candidates.forEach(endpoint -> scores.put(endpoint, endpoint.score()));
+        candidates.sort(Comparator.comparingDouble(scores::get));
+        return candidates;
+    }
+
+    private boolean acquire(ProviderEndpoint endpoint) {
+        try {
+            if (endpoint.getPermits().tryAcquire(properties.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            log.debug("Model route {} at concurrency cap, trying next", endpoint.getName());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model route " + endpoint.getName(), e);
+        }
+    }
+
+    private void onSuccess(ProviderEndpoint endpoint, long startNanos) {
+        endpoint.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), ProviderEndpoint.Outcome.SUCCESS);
+    }
+
+    private void onError(ProviderEndpoint endpoint, long startNanos, Throwable error) {
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (isRateLimited(error)) {
+            endpoint.record(latency, ProviderEndpoint.Outcome.RATE_LIMITED);
+            endpoint.coolDown(properties.getRateLimitCooldown());
+            log.warn("Model route {} rate limited, cooling down for {}ms", endpoint.getName(), properties.getRateLimitCooldown());
+            return;
+        }
+        double errorRate = endpoint.record(latency, ProviderEndpoint.Outcome.ERROR);
+        if (endpoint.getSamples() >= properties.getMinSamples() && errorRate >= properties.getErrorThreshold()) {
+            endpoint.coolDown(properties.getCooldown());
+            log.warn("Model route {} error rate {} over threshold, cooling down for {}ms",
+                    endpoint.getName(), errorRate, properties.getCooldown());
+        } else {
+            log.warn("Model route {} failed: {}", endpoint.getName(), error.getMessage());
+        }
+    }
+
+    /**
+     * 429或服务商过载（Anthropic 529）：按HTTP状态码判断——HTTP客户端异常的状态码，
+     * 或Spring AI错误处理器生成的“状态码 - 响应体”消息开头的状态码；Anthropic错误响应体中的错误类型也可识别
+     */
+    static boolean isRateLimited(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof RestClientResponseException response && isRateLimitStatus(response.getStatusCode().value())) {
+                return true;
+            }
+            if (e instanceof WebClientResponseException response && isRateLimitStatus(response.getStatusCode().value())) {
+                return true;
+            }
+            String message = e.getMessage();
+            if (message == null) {
+                continue;
+            }
+            Matcher status = ERROR_STATUS.matcher(message);
+            if (status.lookingAt() && isRateLimitStatus(Integer.parseInt(status.group(1)))) {
+                return true;
+            }
+            if (message.contains("\"type\":\"rate_limit_error\"") ||
+                    message.contains("\"type\":\"overloaded_error\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRateLimitStatus(int status) {
+        return status == 429 || status == 529;
+    }
+
+    /**
+     * 把请求的模型替换为路由的模型；路由未指定模型时去掉请求中的模型，使用服务商的默认模型。
+     * 请求的模型只用于选择路由（见candidates），不会原样转发给没有声明它的服务商
+     */
+    private Prompt routed(Prompt prompt, ProviderEndpoint endpoint) {
+        ChatOptions options = prompt.getOptions();
+        String requested = options != null ? options.getModel() : null;
+        if (Objects.equals(requested, endpoint.getModel())) {
+            return prompt;
+        }
+        if (requested != null && endpoint.getModel() == null) {
+            log.debug("Model {} is not declared by route {}, using the provider default", requested, endpoint.getName());
+        }
+        ChatOptions routed;
+        if (options instanceof ToolCallingChatOptions tools) {
+            routed = ToolCallingChatOptions.builder()
+                    .toolCallbacks(tools.getToolCallbacks())
+                    .toolNames(tools.getToolNames())
+                    .internalToolExecutionEnabled(tools.getInternalToolExecutionEnabled())
+                    .toolContext(tools.getToolContext())
+                    .model(endpoint.getModel())
+                    .temperature(tools.getTemperature())
+                    .maxTokens(tools.getMaxTokens())
+                    .topP(tools.getTopP())
+                    .stopSequences(tools.getStopSequences())
+                    .build();
+        } else {
+            routed = ChatOptions.builder()
+                    .model(endpoint.getModel())
+                    .temperature(options != null ? options.getTemperature() : null)
+                    .maxTokens(options != null ? options.getMaxTokens() : null)
+                    .topP(options != null ? options.getTopP() : null)
+                    .stopSequences(options != null ? options.getStopSequences() : null)
+                    .build();
+        }
+        return new Prompt(prompt.getInstructions(), routed);
+    }
+
+    /**
+     * 首次使用时查找服务商的ChatModel（各服务商starter注册的bean，不包括本路由器）
+     */
+    private List<ProviderEndpoint> getEndpoints() {
+        if (endpoints == null) {
+            synchronized (this) {
+                if (endpoints == null) {
+                    endpoints = resolveEndpoints();
+                }
+            }
+        }
+        return endpoints;
+    }
+
+    private List<ProviderEndpoint> resolveEndpoints() {
+        Map<String, ChatModel> providers = new LinkedHashMap<>();
+        beanFactory.getBeansOfType(ChatModel.class).values().stream()
+                .filter(model -> model != this)
+                .forEach(model -> providers.put(providerOf(model), model));
+
+        List<ProviderEndpoint> resolved = new ArrayList<>();
+        if (properties.getRoutes().isEmpty()) {
+            providers.forEach((provider, model) -> resolved.add(new ProviderEndpoint(provider, null, model,
+                    new LlmRoutingProperties.Route().getMaxConcurrency(), false, properties.getWindow())));
+        }
+        for (LlmRoutingProperties.Route route : properties.getRoutes()) {
+            ChatModel model = providers.get(route.getProvider());
+            if (model == null) {
+                log.warn("Model provider {} configured in feicur.llm.routes is not available", route.getProvider());
+                continue;
+            }
+            resolved.add(new ProviderEndpoint(route.getProvider(),
+                    StringUtils.hasText(route.getModel()) ? route.getModel() : null,
+                    model, route.getMaxConcurrency(), route.isExplicitOnly(), properties.getWindow()));
+        }
+        if (resolved.stream().allMatch(ProviderEndpoint::isExplicitOnly)) {
+            throw new IllegalStateException("No default chat model route configured");
+        }
+        log.info("Model routes: {}", resolved.stream().map(ProviderEndpoint::getName).toList());
+        return List.copyOf(resolved);
+    }
+
+    private static String providerOf(ChatModel model) {
+        String name = model.getClass().getSimpleName().toLowerCase(Locale.ROOT);
+        return name.endsWith("chatmodel") ? name.substring(0, name.length() - "chatmodel".length()) : name;
+    }
+
+    /**
+     * 获取路由统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("failovers", failovers.get());
+        stats.put("exhausted", exhausted.get());
+        stats.put("failedAfterTools", failedAfterTools.get());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        List<ProviderEndpoint> current = endpoints;
+        if (current != null) {
+            current.forEach(endpoint -> routes.put(endpoint.getName(), endpoint.getStats()));
+        }
+        stats.put("routes", routes);
+        return stats;
+    }
+}
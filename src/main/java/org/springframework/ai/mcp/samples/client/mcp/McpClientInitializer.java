@@ -0,0 +1,240 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.mcp;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * MCP客户端后台初始化器
+ * Spring上下文不再等待MCP握手（spring.ai.mcp.client.initialized=false），
+ * 启动完成后并行初始化各MCP客户端，失败的客户端按间隔重试，互不阻塞
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class McpClientInitializer {
+
+    /**
+     * 单个MCP服务器的初始化状态
+     */
+    public enum State {
+        PENDING,
+        INITIALIZING,
+        READY,
+        FAILED
+    }
+
+    private final ObjectProvider<List<McpSyncClient>> mcpClientsProvider;
+
+    @Value("${feicur.mcp.init.retry-delay:10000}")
+    private long retryDelay;
+
+    private final Map<String, ServerStatus> serverStatus = new ConcurrentHashMap<>();
+
+    private final List<Consumer<McpSyncClient>> readyListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ScheduledExecutorService initExecutor;
+
+    /**
+     * 上下文启动后立即在后台并行初始化所有MCP客户端
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void initializeAsync() {
+        List<McpSyncClient> clients = getClients();
+        if (clients.isEmpty()) {
+            log.warn("No MCP clients configured");
+            return;
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        initExecutor = Executors.newScheduledThreadPool(clients.size(), r -> {
+            Thread thread = new Thread(r, "mcp-init-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (McpSyncClient client : clients) {
+            String serverName = getServerName(client);
+            serverStatus.put(serverName, new ServerStatus(serverName));
+            initExecutor.execute(() -> initialize(client, serverName));
+        }
+        log.info("Started background initialization of {} MCP clients", clients.size());
+    }
+
+    /**
+     * 初始化单个客户端，失败后延迟重试
+     */
+    private void initialize(McpSyncClient client, String serverName) {
+        ServerStatus status = serverStatus.get(serverName);
+        status.markInitializing();
+        long start = System.currentTimeMillis();
+        try {
+            if (!client.isInitialized()) {
+                client.initialize();
+            }
+            status.markReady(System.currentTimeMillis() - start);
+            log.info("MCP client {} ready in {}ms", serverName, status.getInitMillis());
+            readyListeners.forEach(listener -> listener.accept(client));
+        } catch (Exception e) {
+            status.markFailed(System.currentTimeMillis() - start, e.getMessage());
+            log.warn("MCP client {} initialization failed (attempt {}), retrying in {}ms: {}",
+                    serverName, status.getAttempts(), retryDelay, e.getMessage());
+            ScheduledExecutorService executor = initExecutor;
+            if (executor != null && !executor.isShutdown()) {
+                executor.schedule(() -> initialize(client, serverName), retryDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 注册客户端就绪回调
+     */
+    public void addReadyListener(Consumer<McpSyncClient> listener) {
+        readyListeners.add(listener);
+    }
+
+    /**
+     * 获取已就绪的客户端
+     */
+    public List<McpSyncClient> getReadyClients() {
+        List<McpSyncClient> ready = new ArrayList<>();
+        for (McpSyncClient client : getClients()) {
+            ServerStatus status = serverStatus.get(getServerName(client));
+            if (status != null && status.getState() == State.READY) {
+                ready.add(client);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * 所有MCP客户端是否都已就绪
+     */
+    public boolean isAllReady() {
+        return !serverStatus.isEmpty() &&
+               serverStatus.values().stream().allMatch(s -> s.getState() == State.READY);
+    }
+
+    /**
+     * 获取各MCP服务器的初始化状态
+     */
+    public Map<String, Object> getReadinessStatus() {
+        Map<String, Object> servers = new HashMap<>();
+        for (ServerStatus status : serverStatus.values()) {
+            servers.put(status.getServerName(), status.toMap());
+        }
+
+        Map<String, Object> readiness = new HashMap<>();
+        readiness.put("ready", isAllReady());
+        readiness.put("servers", servers);
+        return readiness;
+    }
+
+    private List<McpSyncClient> getClients() {
+        List<McpSyncClient> clients = mcpClientsProvider.getIfAvailable();
+        return clients != null ? clients : Collections.emptyList();
+    }
+
+    private String getServerName(McpSyncClient client) {
+        return client.getClientInfo().name();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (initExecutor != null) {
+            initExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 单个服务器的初始化状态记录
+     */
+    private static class ServerStatus {
+
+        private final String serverName;
+        private volatile State state = State.PENDING;
+        private volatile long initMillis = -1;
+        private volatile String lastError;
+        private volatile Instant readyTime;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        ServerStatus(String serverName) {
+            this.serverName = serverName;
+        }
+
+        void markInitializing() {
+            attempts.incrementAndGet();
+            state = State.INITIALIZING;
+        }
+
+        void markReady(long millis) {
+            initMillis = millis;
+            readyTime = Instant.now();
+            lastError = null;
+            state = State.READY;
+        }
+
+        void markFailed(long millis, String error) {
+            initMillis = millis;
+            lastError = error;
+            state = State.FAILED;
+        }
+
+        String getServerName() {
+            return serverName;
+        }
+
+        State getState() {
+            return state;
+        }
+
+        long getInitMillis() {
+            return initMillis;
+        }
+
+        int getAttempts() {
+            return attempts.get();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("state", state);
+            map.put("attempts", attempts.get());
+            map.put("initMillis", initMillis);
+            map.put("readyTime", readyTime);
+            map.put("lastError", lastError);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MCP流量录制与回放
+ * 录制模式（record）：包装所有MCP工具回调，把工具定义、请求、响应和耗时写入gzip压缩的JSON行文件；
+ * 回放模式（replay）：不连接MCP服务器，按录制文件提供同名工具，响应取自录制内容。
+ * replay-speed大于0时按录制时间线回放（加速倍数），每次调用返回录制时间线上此刻之前最近的一次响应，
+ * 并按原耗时/倍数等待；等于0时按顺序逐条返回，不等待
+ */
+@Component
+@Slf4j
+public class McpTrafficRecorder {
+
+    public enum Mode { OFF, RECORD, REPLAY }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper canonicalMapper = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    @Value("${feicur.mcp.traffic.mode:off}")
+    private String modeName;
+
+    @Value("${feicur.mcp.traffic.file:${user.home}/.feicur/mcp-traffic.jsonl.gz}")
+    private String trafficFile;
+
+    @Value("${feicur.mcp.traffic.replay-speed:1.0}")
+    private double replaySpeed;
+
+    private Mode mode = Mode.OFF;
+
+    // 录制
+    private Writer writer;
+    private long recordingStartedAt;
+    private final Set<String> recordedTools = ConcurrentHashMap.newKeySet();
+    private final AtomicLong recordedCalls = new AtomicLong();
+
+    // 回放
+    private final Map<String, ToolDefinition> replayTools = new LinkedHashMap<>();
+    private final Map<String, List<RecordedCall>> callsByRequest = new HashMap<>();
+    private final Map<String, List<RecordedCall>> callsByTool = new HashMap<>();
+    private final Map<String, AtomicInteger> sequentialCursors = new ConcurrentHashMap<>();
+    private long firstRecordedOffset = Long.MAX_VALUE;
+    private volatile long replayStartedAt = 0;
+    private final AtomicLong replayedCalls = new AtomicLong();
+    private final AtomicLong replayMisses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        mode = Mode.valueOf(modeName.trim().toUpperCase(Locale.ROOT));
+        Path path = Path.of(trafficFile);
+        try {
+            if (mode == Mode.RECORD) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Files.newOutputStream(path), true), StandardCharsets.UTF_8));
+                recordingStartedAt = System.currentTimeMillis();
+                log.info("Recording MCP traffic to {}", path);
+            } else if (mode == Mode.REPLAY) {
+                load(path);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open MCP traffic file " + path, e);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isReplay() {
+        return mode == Mode.REPLAY;
+    }
+
+    /**
+     * 录制模式下包装工具回调，其他模式原样返回
+     */
+    public ToolCallback[] wrap(ToolCallback[] callbacks) {
+        if (mode != Mode.RECORD) {
+            return callbacks;
+        }
+        ToolCallback[] wrapped = new ToolCallback[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            recordTool(callbacks[i].getToolDefinition());
+            wrapped[i] = new RecordingToolCallback(callbacks[i], this);
+        }
+        return wrapped;
+    }
+
+    /**
+     * 回放模式下的工具回调（录制文件中出现过的所有工具）
+     */
+    public ToolCallback[] getReplayCallbacks() {
+        return replayTools.values().stream()
+                .map(definition -> new ReplayToolCallback(definition, this))
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 录制文件中列出过评论的文档（回放时自动监听）
+     */
+    public Set<String> getReplayDocTokens() {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (List<RecordedCall> calls : callsByTool.values()) {
+            for (RecordedCall call : calls) {
+                if (call.docToken != null && call.tool.endsWith("driveV1FileCommentList")) {
+                    tokens.add(call.docToken);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private void recordTool(ToolDefinition definition) {
+        if (!recordedTools.add(definition.name())) {
+            return;
+        }
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("type", "tool");
+        line.put("name", definition.name());
+        line.put("description", definition.description());
+        line.put("inputSchema", definition.inputSchema());
+        writeLine(line);
+    }
+
+    void recordCall(String tool, String request, long startedAt, long durationMillis, String response, String error) {
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("type", "call");
+        line.put("tool", tool);
+        line.put("offset", startedAt - recordingStartedAt);
+        line.put("duration", durationMillis);
+        line.put("request", request);
+        if (error != null) {
+            line.put("error", error);
+        } else {
+            line.put("response", response);
+        }
+        writeLine(line);
+        recordedCalls.incrementAndGet();
+    }
+
+    private synchronized void writeLine(JsonNode line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(objectMapper.writeValueAsString(line));
+            writer.write('\n');
+        } catch (IOException e) {
+            log.warn("Failed to record MCP traffic: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期刷盘，崩溃时最多丢失最近一秒的录制内容
+     */
+    @Scheduled(fixedDelay = 1000)
+    public synchronized void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                log.warn("Failed to flush MCP traffic file: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+                log.info("MCP traffic recording closed: {} calls", recordedCalls.get());
+            } catch (IOException e) {
+                log.warn("Failed to close MCP traffic file: {}", e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * 回放一次调用：只返回相同工具、相同请求的录制响应；录制中没有该请求时抛出异常，
+     * 不拿同一工具的其他响应顶替（否则可能把另一个文档的评论当作这个文档的返回）
+     */
+    String replayCall(String tool, String request) {
+        long now = System.currentTimeMillis();
+        if (replayStartedAt == 0) {
+            synchronized (this) {
+                if (replayStartedAt == 0) {
+                    replayStartedAt = now;
+                }
+            }
+        }
+
+        String key = requestKey(tool, request);
+        List<RecordedCall> candidates = callsByRequest.get(key);
+        if (candidates == null || candidates.isEmpty()) {
+            replayMisses.incrementAndGet();
+            log.debug("No recorded MCP response for tool {} with request {}", tool, request);
+            throw new IllegalStateException("No recorded MCP response for this request to tool " + tool);
+        }
+
+        RecordedCall call;
+        if (replaySpeed > 0) {
+            long recordedClock = (long) ((now - replayStartedAt) * replaySpeed) + firstRecordedOffset;
+            call = latestAtOrBefore(candidates, recordedClock);
+            sleep((long) (call.duration / replaySpeed));
+        } else {
+            int index = sequentialCursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+            call = candidates.get(Math.min(index, candidates.size() - 1));
+        }
+
+        replayedCalls.incrementAndGet();
+        if (call.error != null) {
+            throw new IllegalStateException(call.error);
+        }
+        return call.response;
+    }
+
+    private RecordedCall latestAtOrBefore(List<RecordedCall> calls, long offset) {
+        int low = 0;
+        int high = calls.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (calls.get(mid).offset <= offset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return calls.get(found);
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load(Path path) throws IOException {
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            String text;
+            while ((text = readLine(reader)) != null) {
+                JsonNode line = objectMapper.readTree(text);
+                if ("tool".equals(line.path("type").asText())) {
+                    replayTools.put(line.path("name").asText(), ToolDefinition.builder()
+                            .name(line.path("name").asText())
+                            .description(line.path("description").asText())
+                            .inputSchema(line.path("inputSchema").asText())
+                            .build());
+                } else if ("call".equals(line.path("type").asText())) {
+                    RecordedCall call = new RecordedCall(line);
+                    callsByRequest.computeIfAbsent(requestKey(call.tool, call.request), k -> new ArrayList<>()).add(call);
+                    callsByTool.computeIfAbsent(call.tool, k -> new ArrayList<>()).add(call);
+                    firstRecordedOffset = Math.min(firstRecordedOffset, call.offset);
+                }
+                lines++;
+            }
+        }
+        // 录制时并发调用的写入顺序不一定与开始时间一致
+        Comparator<RecordedCall> byOffset = Comparator.comparingLong(c -> c.offset);
+        callsByRequest.values().forEach(calls -> calls.sort(byOffset));
+        callsByTool.values().forEach(calls -> calls.sort(byOffset));
+        log.info("Replaying MCP traffic from {}: {} records, {} tools, {} distinct requests, speed={}",
+                path, lines, replayTools.size(), callsByRequest.size(), replaySpeed);
+    }
+
+    /**
+     * 读取一行；录制进程被强制结束时文件末尾可能不完整，读到的完整记录仍然可用
+     */
+    private String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            log.warn("MCP traffic file is truncated, replaying records read so far: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 请求匹配键：JSON按字段名排序后比较，不受Map迭代顺序影响
+     */
+    private String requestKey(String tool, String request) {
+        try {
+            Object value = canonicalMapper.readValue(request, Object.class);
+            return tool + '\n' + canonicalMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            return tool + '\n' + request;
+        }
+    }
+
+    /**
+     * 获取录制/回放统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", mode);
+        stats.put("file", trafficFile);
+        if (mode == Mode.RECORD) {
+            stats.put("recordedCalls", recordedCalls.get());
+        } else if (mode == Mode.REPLAY) {
+            stats.put("replaySpeed", replaySpeed);
+            stats.put("replayedCalls", replayedCalls.get());
+            stats.put("replayMisses", replayMisses.get());
+        }
+        return stats;
+    }
+
+    private static class RecordedCall {
+        private static final ObjectMapper REQUEST_MAPPER = new ObjectMapper();
+
+        final String tool;
+        final long offset;
+        final long duration;
+        final String request;
+        final String response;
+        final String error;
+        final String docToken;
+
+        RecordedCall(JsonNode line) {
+            this.tool = line.path("tool").asText();
+            this.offset = line.path("offset").asLong();
+            this.duration = line.path("duration").asLong();
+            this.request = line.path("request").asText();
+            this.response = line.hasNonNull("response") ? line.get("response").asText() : null;
+            this.error = line.hasNonNull("error") ? line.get("error").asText() : null;
+            this.docToken = extractDocToken(request);
+        }
+
+        private static String extractDocToken(String request) {
+            try {
+                JsonNode token = REQUEST_MAPPER.readTree(request).path("path").path("file_token");
+                return token.isTextual() ? token.asText() : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.mcp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 只暴露已就绪MCP客户端工具的ToolCallbackProvider
+ * 替代自动配置的SyncMcpToolCallbackProvider（spring.ai.mcp.client.toolcallback.enabled=false），
+ * 未完成握手的服务器不会导致listTools失败；工具列表在客户端就绪时刷新并缓存，避免每次轮询都发起listTools请求。
+ * 流量录制模式下工具回调由McpTrafficRecorder包装，回放模式下直接使用录制文件中的工具
+ */
+@Component
+@Slf4j
+public class ReadyMcpToolCallbackProvider implements ToolCallbackProvider {
+
+    private final McpClientInitializer mcpClientInitializer;
+    private final McpTrafficRecorder trafficRecorder;
+
+    private final AtomicReference<ToolCallback[]> cachedCallbacks = new AtomicReference<>(new ToolCallback[0]);
+
+    public ReadyMcpToolCallbackProvider(McpClientInitializer mcpClientInitializer,
+                                        McpTrafficRecorder trafficRecorder) {
+        this.mcpClientInitializer = mcpClientInitializer;
+        this.trafficRecorder = trafficRecorder;
+        if (trafficRecorder.isReplay()) {
+            refresh();
+        } else {
+            mcpClientInitializer.addReadyListener(client -> refresh());
+        }
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        return cachedCallbacks.get();
+    }
+
+    /**
+     * 根据当前已就绪的客户端重建工具列表
+     */
+    public synchronized void refresh() {
+        if (trafficRecorder.isReplay()) {
+            ToolCallback[] callbacks = trafficRecorder.getReplayCallbacks();
+            cachedCallbacks.set(callbacks);
+            log.info("MCP tool callbacks replayed from recording: {} tools", callbacks.length);
+            return;
+        }
+        try {
+            var readyClients = mcpClientInitializer.getReadyClients();
+            ToolCallback[] callbacks = readyClients.isEmpty() ?
+                    new ToolCallback[0] :
+                    trafficRecorder.wrap(new SyncMcpToolCallbackProvider(readyClients).getToolCallbacks());
+            cachedCallbacks.set(callbacks);
+            log.info("MCP tool callbacks refreshed: {} tools from {} ready clients",
+                    callbacks.length, readyClients.size());
+        } catch (Exception e) {
+            log.warn("Failed to refresh MCP tool callbacks, keeping previous list", e);
+        }
+    }
+
+    /**
+     * 获取当前可用的工具名称
+     */
+    public List<String> getToolNames() {
+        List<String> names = new ArrayList<>();
+        for (ToolCallback callback : cachedCallbacks.get()) {
+            names.add(callback.getToolDefinition().name());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.mcp;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.function.Supplier;
+
+/**
+ * 录制模式下包装MCP工具回调：透传调用，并把请求、响应（或异常）和耗时交给录制器
+ */
+class RecordingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final McpTrafficRecorder recorder;
+
+    RecordingToolCallback(ToolCallback delegate, McpTrafficRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return record(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return record(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String record(String toolInput, Supplier<String> call) {
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            String response = call.get();
+            recorder.recordCall(getToolDefinition().name(), toolInput, startedAt,
+                    (System.nanoTime() - start) / 1_000_000, response, null);
+            return response;
+        } catch (RuntimeException e) {
+            recorder.recordCall(getToolDefinition().name(), toolInput, startedAt,
+                    (System.nanoTime() - start) / 1_000_000, null, String.valueOf(e.getMessage()));
+            throw e;
+        }
+    }
+}
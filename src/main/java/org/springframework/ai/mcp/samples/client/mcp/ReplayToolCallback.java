@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.mcp;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+/**
+ * 回放模式下的工具回调：不访问MCP服务器，从录制文件中取出对应的响应
+ */
+class ReplayToolCallback implements ToolCallback {
+
+    private final ToolDefinition toolDefinition;
+    private final McpTrafficRecorder recorder;
+
+    ReplayToolCallback(ToolDefinition toolDefinition, McpTrafficRecorder recorder) {
+        this.toolDefinition = toolDefinition;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return recorder.replayCall(toolDefinition.name(), toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return call(toolInput);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 处理流水线耗时统计
+ * 按阶段（解析、检测、执行）累计调用次数和耗时，退出时输出 PIPELINE 日志行，
+ * 用于在录制流量回放时对比不同构建的处理开销
+ */
+@Component
+@Slf4j
+public class PipelineMetrics {
+
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_DETECT = "detect";
+    public static final String STAGE_EXECUTE = "execute";
+
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次阶段耗时
+     */
+    public void record(String stage, long nanos) {
+        stages.computeIfAbsent(stage, k -> new Stage()).record(nanos);
+    }
+
+    /**
+     * 获取各阶段统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        stages.forEach((name, stage) -> stats.put(name, stage.toMap()));
+        return stats;
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void logSummary() {
+        new TreeMap<>(stages).forEach((name, stage) ->
+                log.info("PIPELINE stage={} count={} avgMicros={} maxMicros={} totalMillis={}",
+                        name, stage.count.get(), stage.avgMicros(), stage.maxNanos.get() / 1000,
+                        stage.totalNanos.get() / 1_000_000));
+    }
+
+    private static class Stage {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long avgMicros() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / n / 1000;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new TreeMap<>();
+            map.put("count", count.get());
+            map.put("avgMicros", avgMicros());
+            map.put("maxMicros", maxNanos.get() / 1000);
+            map.put("totalMillis", totalNanos.get() / 1_000_000);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 启动耗时统计
+ * 记录JVM启动 → Spring上下文就绪 → 首次轮询完成 的耗时，用于对比 JVM / AOT / CDS / Native 各启动模式
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupMetrics {
+
+    private final ApplicationContext applicationContext;
+
+    /**
+     * 首次轮询完成后是否自动退出（仅用于启动基准测试）
+     */
+    @Value("${feicur.startup.exit-after-first-poll:false}")
+    private boolean exitAfterFirstPoll;
+
+    private final AtomicBoolean firstPollRecorded = new AtomicBoolean(false);
+
+    private volatile long contextStartedMillis = -1;
+
+    private volatile long firstPollMillis = -1;
+
+    /**
+     * Spring上下文启动完成（CommandLineRunner执行之前）
+     */
+    @EventListener
+    public void onApplicationStarted(ApplicationStartedEvent event) {
+        contextStartedMillis = System.currentTimeMillis() - getJvmStartTime();
+        log.info("STARTUP context-started={}ms", contextStartedMillis);
+    }
+
+    /**
+     * 记录首次轮询完成，只有第一次调用生效
+     */
+    public void recordFirstPoll(String docToken) {
+        if (!firstPollRecorded.compareAndSet(false, true)) {
+            return;
+        }
+        firstPollMillis = System.currentTimeMillis() - getJvmStartTime();
+        log.info("STARTUP time-to-first-poll={}ms doc={}", firstPollMillis, docToken);
+
+        if (exitAfterFirstPoll) {
+            // 在独立线程中退出，避免在调度线程上等待调度器自身关闭
+            Thread exitThread = new Thread(() -> System.exit(SpringApplication.exit(applicationContext)),
+                    "startup-bench-exit");
+            exitThread.setDaemon(false);
+            exitThread.start();
+        }
+    }
+
+    /**
+     * 获取启动耗时信息
+     */
+    public Map<String, Object> getStartupStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("contextStartedMillis", contextStartedMillis);
+        stats.put("timeToFirstPollMillis", firstPollMillis);
+        stats.put("aotEnabled", Boolean.getBoolean("spring.aot.enabled"));
+        stats.put("nativeImage", System.getProperty("org.graalvm.nativeimage.imagecode") != null);
+        return stats;
+    }
+
+    /**
+     * JVM启动时间；Native Image下RuntimeMXBean同样可用
+     */
+    private long getJvmStartTime() {
+        return ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
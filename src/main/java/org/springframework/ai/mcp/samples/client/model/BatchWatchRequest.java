@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.model;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量监听请求
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchWatchRequest {
+    
+    /**
+     * 飞书文档URL列表
+     */
+    private List<String> urls = new ArrayList<>();
+    
+    /**
+     * 文档token列表
+     */
+    private List<String> tokens = new ArrayList<>();
+    
+    /**
+     * 文档所属租户，为空时属于默认租户
+     */
+    private String tenant;
+}
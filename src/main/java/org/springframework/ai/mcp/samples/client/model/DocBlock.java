@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+/**
+ * 飞书docx文档块（只保留定位评论引用和块修改所需的字段）
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocBlock {
+    
+    /**
+     * 块ID
+     */
+    private String blockId;
+    
+    /**
+     * 父块ID
+     */
+    private String parentId;
+    
+    /**
+     * 块类型（飞书block_type）
+     */
+    private Integer blockType;
+    
+    /**
+     * 块内的纯文本（各文本元素拼接）
+     */
+    private String text;
+    
+    /**
+     * 块内容的文本元素（飞书elements原样保留，含样式、链接、@人员和公式），无文本内容时为null
+     */
+    private JsonNode elements;
+}
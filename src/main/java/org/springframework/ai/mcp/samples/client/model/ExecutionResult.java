@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.model;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+
+/**
+ * 指令执行结果（回写到源评论）
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutionResult {
+    
+    /**
+     * 文档token
+     */
+    private String docToken;
+    
+    /**
+     * 源评论ID
+     */
+    private String commentId;
+    
+    /**
+     * 指令类型
+     */
+    private String commandType;
+    
+    /**
+     * 是否执行成功
+     */
+    private boolean success;
+    
+    /**
+     * 回复内容
+     */
+    private String message;
+    
+    /**
+     * 回写后是否将评论标记为已解决
+     */
+    private boolean resolve;
+    
+    /**
+     * 执行完成时间
+     */
+    private Instant completedAt;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.model;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+
+/**
+ * 知识空间节点或云空间文件夹中的一项
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpaceEntry {
+    
+    /**
+     * 文档token（知识空间节点的obj_token），文件夹为文件夹token
+     */
+    private String token;
+    
+    /**
+     * 文档类型：docx、doc、sheet、bitable、folder等
+     */
+    private String type;
+    
+    /**
+     * 标题
+     */
+    private String title;
+    
+    /**
+     * 最近编辑时间，未知时为null
+     */
+    private Instant editTime;
+    
+    /**
+     * 有子项时用于列出子项的token（知识空间节点的node_token、子文件夹token），没有子项时为null
+     */
+    private String childToken;
+}
@@ -28,6 +28,20 @@ import java.time.Instant;
 @NoArgsConstructor
 public class UserCommand {
     
+    /**
+     * 指令复杂度（由分诊阶段估计）
+     */
+    public enum Complexity {
+        /**
+         * 简单指令（改错字、替换词句等），使用更快的模型
+         */
+        SIMPLE,
+        /**
+         * 复杂指令，使用默认模型
+         */
+        COMPLEX
+    }
+    
     /**
      * 指令类型
      */
@@ -53,6 +67,21 @@ public class UserCommand {
      */
     private String docToken;
     
+    /**
+     * 文档所属租户，决定使用哪个租户的MCP工具、配额和队列分区
+     */
+    private String tenantId;
+    
+    /**
+     * 执行截止时间（包括排队等待），超过后不再执行，执行中的模型和工具调用被中断
+     */
+    private Instant deadline;
+    
+    /**
+     * 指令复杂度，未经分诊时为null（按复杂指令处理）
+     */
+    private Complexity complexity;
+    
     /**
      * 构造函数，自动设置时间戳
      */
@@ -65,6 +94,20 @@ public class UserCommand {
         }
     }
     
+    /**
+     * 是否已超过截止时间
+     */
+    public boolean isExpired() {
+        return deadline != null && Instant.now().isAfter(deadline);
+    }
+    
+    /**
+     * 距截止时间的剩余毫秒数，未设置截止时间时返回Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        return deadline == null ? Long.MAX_VALUE : Math.max(0, deadline.toEpochMilli() - System.currentTimeMillis());
+    }
+    
     /**
      * 获取格式化的指令描述
      */
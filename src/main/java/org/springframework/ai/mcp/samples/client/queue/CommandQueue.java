@@ -15,58 +15,129 @@
  */
 package org.springframework.ai.mcp.samples.client.queue;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
 import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 指令队列封装类
+ * 按租户分区，每个租户有独立的容量；出队时在有待执行指令且未达并发上限的租户之间按权重平滑轮转，
+ * 一个租户积压大量指令不会让其他租户的指令一直排在后面。指令执行线程数是各租户并发上限之和，
+ * 一个租户占满自己的并发名额也不会占用其他租户的线程。分区在租户没有排队和执行中的指令时回收
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class CommandQueue {
     
-    private final BlockingQueue<UserCommand> queue;
+    private final TenantProperties tenantProperties;
+    
+    /**
+     * 未限制并发的租户同时执行的指令数
+     */
+    @Value("${feicur.executor.command.pool-size:1}")
+    private int commandPoolSize;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();
+    private int size;
     
-    public CommandQueue() {
-        // 创建容量为1000的有界队列
-        this.queue = new LinkedBlockingQueue<>(1000);
-        log.info("Command queue initialized with capacity: 1000");
+    /**
+     * 单个租户的队列分区
+     */
+    private static final class Partition {
+        private final ArrayDeque<UserCommand> commands = new ArrayDeque<>();
+        private final int weight;
+        private final int capacity;
+        private final int maxRunning;
+        private int currentWeight;
+        private int running;
+        
+        Partition(int weight, int capacity, int maxRunning) {
+            this.weight = weight;
+            this.capacity = capacity;
+            this.maxRunning = maxRunning;
+        }
+        
+        boolean isEligible() {
+            return !commands.isEmpty() && running < maxRunning;
+        }
+        
+        boolean isIdle() {
+            return commands.isEmpty() && running == 0;
+        }
     }
     
     /**
-     * 非阻塞添加指令到队列
+     * 非阻塞添加指令到所属租户的分区
      * 
      * @param command 用户指令
-     * @return 成功返回true，队列满返回false
+     * @return 成功返回true，分区满返回false
      */
     public boolean offer(UserCommand command) {
-        boolean success = queue.offer(command);
+        FeicurEvents.QueueEvent event = new FeicurEvents.QueueEvent();
+        event.begin();
+        String tenant = tenantOf(command);
+        boolean success;
+        lock.lock();
+        try {
+            Partition partition = partitionOf(tenant);
+            success = partition.commands.size() < partition.capacity;
+            if (success) {
+                partition.commands.addLast(command);
+                size++;
+                available.signal();
+            } else if (partition.isIdle()) {
+                partitions.remove(tenant);
+            }
+        } finally {
+            lock.unlock();
+        }
+        commit(event, "offer", command, success);
         if (success) {
-            log.debug("Command offered to queue: {}", command.getCommandType());
+            log.debug("Command offered to queue of tenant {}: {}", tenant, command.getCommandType());
         } else {
-            log.warn("Failed to offer command to queue, queue is full. Command: {}", command.getCommandType());
+            log.warn("Failed to offer command to queue, queue of tenant {} is full. Command: {}",
+                    tenant, command.getCommandType());
         }
         return success;
     }
     
     /**
-     * 阻塞获取队列中的指令
+     * 阻塞获取队列中的指令，取到的指令执行完后必须调用complete
      * 
-     * @return 用户指令，如果队列为空则阻塞等待
+     * @return 用户指令，如果没有可执行的指令则阻塞等待
      * @throws InterruptedException 如果等待被中断
      */
     public UserCommand take() throws InterruptedException {
-        UserCommand command = queue.take();
-        log.debug("Command taken from queue: {}", command.getCommandType());
-        return command;
+        lock.lockInterruptibly();
+        try {
+            UserCommand command;
+            while ((command = next()) == null) {
+                available.await();
+            }
+            log.debug("Command taken from queue: {}", command.getCommandType());
+            return command;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
-     * 带超时的获取队列中的指令
+     * 带超时的获取队列中的指令，取到的指令执行完后必须调用complete
      * 
      * @param timeout 超时时间
      * @param unit 时间单位
@@ -74,33 +145,179 @@ public class CommandQueue {
      * @throws InterruptedException 如果等待被中断
      */
     public UserCommand poll(long timeout, TimeUnit unit) throws InterruptedException {
-        UserCommand command = queue.poll(timeout, unit);
-        if (command != null) {
-            log.debug("Command polled from queue: {}", command.getCommandType());
+        FeicurEvents.QueueEvent event = new FeicurEvents.QueueEvent();
+        event.begin();
+        UserCommand command;
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while ((command = next()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = available.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
         }
+        commit(event, "poll", command, true);
+        log.debug("Command polled from queue: {}", command.getCommandType());
         return command;
     }
     
     /**
-     * 获取队列当前大小
+     * 取出后未能交给执行线程的指令放回所属分区的队首并释放并发名额
+     * 不受分区容量限制，指令保持原来的先后顺序
+     */
+    public void requeue(UserCommand command) {
+        lock.lock();
+        try {
+            Partition partition = partitionOf(tenantOf(command));
+            if (partition.running > 0) {
+                partition.running--;
+            }
+            partition.commands.addFirst(command);
+            size++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Command requeued at head: {}", command.getCommandType());
+    }
+    
+    /**
+     * 指令执行结束（或未能交给执行线程），释放所属租户的并发名额
+     */
+    public void complete(UserCommand command) {
+        String tenant = tenantOf(command);
+        lock.lock();
+        try {
+            Partition partition = partitions.get(tenant);
+            if (partition == null || partition.running == 0) {
+                return;
+            }
+            partition.running--;
+            if (partition.isIdle()) {
+                partitions.remove(tenant);
+            } else if (partition.isEligible()) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 平滑加权轮询：每个可调度分区的当前权重加上自身权重，取当前权重最大者，再减去总权重
+     * 调用方必须持有锁
+     */
+    private UserCommand next() {
+        Partition best = null;
+        int total = 0;
+        for (Partition partition : partitions.values()) {
+            if (!partition.isEligible()) {
+                continue;
+            }
+            partition.currentWeight += partition.weight;
+            total += partition.weight;
+            if (best == null || partition.currentWeight > best.currentWeight) {
+                best = partition;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.currentWeight -= total;
+        best.running++;
+        size--;
+        return best.commands.pollFirst();
+    }
+    
+    /**
+     * 租户的分区，不存在时按租户配置创建；调用方必须持有锁
+     */
+    private Partition partitionOf(String tenant) {
+        return partitions.computeIfAbsent(tenant, id -> new Partition(
+                tenantProperties.weightOf(id),
+                tenantProperties.queueCapacityOf(id),
+                tenantProperties.maxConcurrentCommandsOf(id, commandPoolSize)));
+    }
+    
+    private static String tenantOf(UserCommand command) {
+        return command.getTenantId() != null ? command.getTenantId() : TenantProperties.DEFAULT_TENANT;
+    }
+    
+    private void commit(FeicurEvents.QueueEvent event, String operation, UserCommand command, boolean accepted) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.docToken = command.getDocToken();
+            event.tenant = tenantOf(command);
+            event.commandType = command.getCommandType();
+            event.queueSize = size();
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 获取队列当前大小（所有租户）
      */
     public int size() {
-        return queue.size();
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
      * 检查队列是否为空
      */
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return size() == 0;
     }
     
     /**
-     * 清空队列
+     * 清空队列（执行中的指令仍占用租户并发名额，直到complete）
      */
     public void clear() {
-        int size = queue.size();
-        queue.clear();
-        log.info("Command queue cleared, removed {} commands", size);
+        int removed;
+        lock.lock();
+        try {
+            removed = size;
+            partitions.values().forEach(partition -> partition.commands.clear());
+            partitions.values().removeIf(Partition::isIdle);
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Command queue cleared, removed {} commands", removed);
+    }
+    
+    /**
+     * 获取各租户分区的排队和执行中指令数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> tenants = new HashMap<>();
+        Map<String, Object> stats = new HashMap<>();
+        lock.lock();
+        try {
+            partitions.forEach((tenant, partition) -> {
+                Map<String, Object> partitionStats = new HashMap<>();
+                partitionStats.put("queued", partition.commands.size());
+                partitionStats.put("running", partition.running);
+                partitionStats.put("capacity", partition.capacity);
+                partitionStats.put("weight", partition.weight);
+                partitionStats.put("maxRunning", partition.maxRunning);
+                tenants.put(tenant, partitionStats);
+            });
+            stats.put("size", size);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("tenants", tenants);
+        return stats;
     }
-} 
\ No newline at end of file
+}
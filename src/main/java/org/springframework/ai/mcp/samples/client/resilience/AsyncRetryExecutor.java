@@ -0,0 +1,150 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 非阻塞重试执行器
+ * 每次尝试在feishu-io线程池中执行，失败后通过TaskScheduler按带抖动的指数退避重新提交，
+ * 等待期间不占用任何线程；默认断路器打开、舱壁已满和配额不足的异常不重试，
+ * 非幂等的写操作则相反，只重试这些可以确定请求没有发出（或被飞书直接拒绝）的失败
+ */
+@Component
+@Slf4j
+public class AsyncRetryExecutor {
+
+    private final Executor feishuIoExecutor;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${feicur.feishu.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${feicur.feishu.retry.initial-delay:1000}")
+    private long initialDelay;
+
+    @Value("${feicur.feishu.retry.multiplier:2}")
+    private double multiplier;
+
+    @Value("${feicur.feishu.retry.max-delay:8000}")
+    private long maxDelay;
+
+    public AsyncRetryExecutor(@Qualifier("feishuIoExecutor") Executor feishuIoExecutor,
+                              @Qualifier("taskScheduler") TaskScheduler taskScheduler) {
+        this.feishuIoExecutor = feishuIoExecutor;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * 异步执行调用，失败时按退避策略重试
+     *
+     * @param name 调用名称（用于日志）
+     * @param call 实际调用（在feishu-io线程中执行，可以阻塞等待MCP响应）
+     * @return 最终结果；所有重试失败后以最后一次异常完成
+     */
+    public <T> CompletableFuture<T> submit(String name, Supplier<T> call) {
+        return submit(name, feishuIoExecutor, call);
+    }
+
+    /**
+     * 在指定线程池中异步执行调用，失败时按退避策略重试
+     *
+     * @param executor 执行每次尝试的线程池（例如回写使用独立的线程池，不与轮询争抢feishu-io线程）
+     */
+    public <T> CompletableFuture<T> submit(String name, Executor executor, Supplier<T> call) {
+        return submit(name, executor, call, this::isRetryable);
+    }
+
+    /**
+     * 在指定线程池中异步执行调用，只重试retryable接受的失败
+     *
+     * @param retryable 判断失败是否可以重试，例如非幂等写操作使用{@link #isRejectedBeforeSend}
+     */
+    public <T> CompletableFuture<T> submit(String name, Executor executor, Supplier<T> call,
+                                           Predicate<Exception> retryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submitAttempt(name, executor, call, retryable, 1, result);
+        return result;
+    }
+
+    /**
+     * 请求确定没有被飞书执行：断路器打开、舱壁已满、本地配额不足或飞书返回频率限制。
+     * 其他失败（如超时）可能发生在飞书已经执行之后，非幂等写操作不能重试
+     */
+    public static boolean isRejectedBeforeSend(Exception e) {
+        return e instanceof CallNotPermittedException ||
+               e instanceof BulkheadFullException ||
+               e instanceof RateLimitedException;
+    }
+
+    private <T> void submitAttempt(String name, Executor executor, Supplier<T> call, Predicate<Exception> retryable,
+                                   int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // 调用方已取消
+            return;
+        }
+        try {
+            executor.execute(() -> runAttempt(name, executor, call, retryable, attempt, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private <T> void runAttempt(String name, Executor executor, Supplier<T> call, Predicate<Exception> retryable,
+                                int attempt, CompletableFuture<T> result) {
+        try {
+            result.complete(call.get());
+        } catch (Exception e) {
+            if (!retryable.test(e) || attempt >= maxAttempts) {
+                result.completeExceptionally(e);
+                return;
+            }
+            long delay = backoffDelay(attempt);
+            log.debug("{} failed (attempt {}/{}), retrying in {}ms: {}",
+                    name, attempt, maxAttempts, delay, e.getMessage());
+            taskScheduler.schedule(() -> submitAttempt(name, executor, call, retryable, attempt + 1, result),
+                    Instant.now().plusMillis(delay));
+        }
+    }
+
+    /**
+     * 带抖动的指数退避：在[base/2, base]之间随机，避免大量文档同时重试
+     */
+    private long backoffDelay(int attempt) {
+        double base = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 1));
+        return (long) ThreadLocalRandom.current().nextDouble(base / 2, base + 1);
+    }
+
+    private boolean isRetryable(Exception e) {
+        return !(e instanceof CallNotPermittedException) &&
+               !(e instanceof BulkheadFullException) &&
+               !(e instanceof RateLimitedException);
+    }
+}
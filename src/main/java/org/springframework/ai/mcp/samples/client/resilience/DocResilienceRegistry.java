@@ -0,0 +1,322 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 按文档隔离的断路器与舱壁注册表
+ * 每个docToken按需创建独立的断路器和舱壁，空闲后自动回收；
+ * 默认租户的MCP调用另外共享一个全局舱壁，限制并发调用总数；其他租户使用各自的舱壁（feishu-mcp-<租户>），
+ * 一个租户占满并发不影响其他租户
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocResilienceRegistry {
+
+    /**
+     * 文档级断路器/舱壁使用的配置名（resilience4j.*.configs.feishu-doc）
+     */
+    public static final String DOC_CONFIG = "feishu-doc";
+
+    /**
+     * 全局MCP舱壁实例名（resilience4j.bulkhead.instances.feishu-mcp）
+     */
+    public static final String GLOBAL_BULKHEAD = "feishu-mcp";
+
+    private static final String DOC_PREFIX = "feishu-doc-";
+
+    private static final String TENANT_PREFIX = GLOBAL_BULKHEAD + "-";
+
+    private static final int MAX_TRANSITIONS = 10;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final TenantProperties tenantProperties;
+
+    @Value("${feicur.resilience.idle-evict:600000}")
+    private long idleEvictMillis;
+
+    private final Map<String, DocResilience> docs = new ConcurrentHashMap<>();
+
+    private final Map<String, Bulkhead> tenantBulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * 在文档级舱壁、全局舱壁和文档级断路器的保护下执行调用（默认租户）
+     */
+    public <T> T executeForDoc(String docToken, Supplier<T> call) {
+        return executeForDoc(TenantProperties.DEFAULT_TENANT, docToken, call);
+    }
+
+    /**
+     * 在文档级舱壁、租户舱壁和文档级断路器的保护下执行调用
+     * 断路器打开或舱壁已满时抛出CallNotPermittedException / BulkheadFullException
+     */
+    public <T> T executeForDoc(String tenantId, String docToken, Supplier<T> call) {
+        DocResilience resilience = getOrCreate(docToken);
+        resilience.touch();
+
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(resilience.circuitBreaker, call);
+        guarded = Bulkhead.decorateSupplier(getTenantBulkhead(tenantId), guarded);
+        guarded = Bulkhead.decorateSupplier(resilience.bulkhead, guarded);
+        return guarded.get();
+    }
+
+    /**
+     * 获取租户舱壁和文档级断路器的许可，用于跨线程完成的调用（代理工具调用及其对冲请求）
+     * 不占用文档级舱壁：它只属于轮询，代理的并发只读调用和写调用不与轮询互相排队；
+     * 租户舱壁已满时按其max-wait-duration阻塞等待。调用结束后必须通过返回的DocPermit释放
+     */
+    public DocPermit acquireForDoc(String tenantId, String docToken) {
+        DocResilience resilience = getOrCreate(docToken);
+        resilience.touch();
+
+        Bulkhead tenantBulkhead = getTenantBulkhead(tenantId);
+        tenantBulkhead.acquirePermission();
+        try {
+            resilience.circuitBreaker.acquirePermission();
+        } catch (RuntimeException e) {
+            tenantBulkhead.onComplete();
+            throw e;
+        }
+        return new DocPermit(resilience.circuitBreaker, tenantBulkhead);
+    }
+
+    /**
+     * 只在全局舱壁保护下执行调用（默认租户不属于特定文档的MCP调用）
+     */
+    public <T> T executeGlobal(Supplier<T> call) {
+        return executeGlobal(TenantProperties.DEFAULT_TENANT, call);
+    }
+
+    /**
+     * 只在租户舱壁保护下执行调用（不属于特定文档的MCP调用）
+     */
+    public <T> T executeGlobal(String tenantId, Supplier<T> call) {
+        return Bulkhead.decorateSupplier(getTenantBulkhead(tenantId), call).get();
+    }
+
+    /**
+     * 获取全局MCP舱壁
+     */
+    public Bulkhead getGlobalBulkhead() {
+        return bulkheadRegistry.bulkhead(GLOBAL_BULKHEAD);
+    }
+
+    /**
+     * 获取租户的MCP舱壁：默认租户使用全局舱壁，其他租户按max-concurrent-calls创建独立舱壁
+     */
+    public Bulkhead getTenantBulkhead(String tenantId) {
+        TenantProperties.Tenant tenant = tenantId == null ? null : tenantProperties.getTenants().get(tenantId);
+        if (tenant == null) {
+            return getGlobalBulkhead();
+        }
+        return tenantBulkheads.computeIfAbsent(tenantId, id -> {
+            BulkheadConfig config = BulkheadConfig.from(getGlobalBulkhead().getBulkheadConfig())
+                    .maxConcurrentCalls(tenant.getMaxConcurrentCalls())
+                    .build();
+            return bulkheadRegistry.bulkhead(TENANT_PREFIX + id, config);
+        });
+    }
+
+    /**
+     * 租户停用后释放它的舱壁
+     */
+    public void removeTenant(String tenantId) {
+        Bulkhead bulkhead = tenantBulkheads.remove(tenantId);
+        if (bulkhead != null) {
+            bulkheadRegistry.remove(bulkhead.getName());
+        }
+    }
+
+    /**
+     * 获取指定文档的断路器状态（不存在时返回CLOSED）
+     */
+    public CircuitBreaker.State getState(String docToken) {
+        DocResilience resilience = docs.get(docToken);
+        return resilience != null ? resilience.circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    private DocResilience getOrCreate(String docToken) {
+        return docs.computeIfAbsent(docToken, token -> {
+            String name = DOC_PREFIX + token;
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name, DOC_CONFIG);
+            Bulkhead bulkhead = bulkheadRegistry.bulkhead(name, DOC_CONFIG);
+            DocResilience resilience = new DocResilience(circuitBreaker, bulkhead);
+            circuitBreaker.getEventPublisher().onStateTransition(event -> {
+                log.warn("Circuit breaker for doc {} transitioned: {}", token, event.getStateTransition());
+                resilience.recordTransition(event.getStateTransition().toString());
+            });
+            log.debug("Created circuit breaker and bulkhead for doc: {}", token);
+            return resilience;
+        });
+    }
+
+    /**
+     * 定期回收空闲的文档级断路器和舱壁
+     * 只回收CLOSED状态的断路器，避免重置正在保护中的文档
+     */
+    @Scheduled(fixedDelayString = "${feicur.resilience.evict-interval:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        docs.entrySet().removeIf(entry -> {
+            DocResilience resilience = entry.getValue();
+            boolean evict = now - resilience.lastAccess >= idleEvictMillis &&
+                            resilience.circuitBreaker.getState() == CircuitBreaker.State.CLOSED &&
+                            resilience.bulkhead.getMetrics().getAvailableConcurrentCalls() ==
+                            resilience.bulkhead.getMetrics().getMaxAllowedConcurrentCalls();
+            if (evict) {
+                circuitBreakerRegistry.remove(resilience.circuitBreaker.getName());
+                bulkheadRegistry.remove(resilience.bulkhead.getName());
+                log.debug("Evicted idle circuit breaker and bulkhead for doc: {}", entry.getKey());
+            }
+            return evict;
+        });
+    }
+
+    /**
+     * 获取断路器与舱壁状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> perDoc = new HashMap<>();
+        docs.forEach((token, resilience) -> perDoc.put(token, resilience.toMap()));
+
+        Bulkhead global = getGlobalBulkhead();
+        Map<String, Object> globalStatus = new HashMap<>();
+        globalStatus.put("availableConcurrentCalls", global.getMetrics().getAvailableConcurrentCalls());
+        globalStatus.put("maxAllowedConcurrentCalls", global.getMetrics().getMaxAllowedConcurrentCalls());
+
+        Map<String, Object> tenants = new HashMap<>();
+        tenantBulkheads.forEach((tenant, bulkhead) -> {
+            Map<String, Object> tenantStatus = new HashMap<>();
+            tenantStatus.put("availableConcurrentCalls", bulkhead.getMetrics().getAvailableConcurrentCalls());
+            tenantStatus.put("maxAllowedConcurrentCalls", bulkhead.getMetrics().getMaxAllowedConcurrentCalls());
+            tenants.put(tenant, tenantStatus);
+        });
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("globalBulkhead", globalStatus);
+        status.put("tenantBulkheads", tenants);
+        status.put("documents", perDoc);
+        return status;
+    }
+
+    /**
+     * acquireForDoc拿到的许可：释放时归还租户舱壁并向断路器记录调用结果，只生效一次
+     */
+    public static final class DocPermit {
+
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private DocPermit(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+
+        /**
+         * 调用结束：error为null时记为成功，否则记为失败（断路器配置忽略的异常不计入）
+         */
+        public void release(Throwable error) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long duration = System.nanoTime() - startNanos;
+            if (error == null) {
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+            } else {
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, error);
+            }
+            bulkhead.onComplete();
+        }
+
+        /**
+         * 调用被取消：归还许可，不向断路器记录结果
+         */
+        public void cancel() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            circuitBreaker.releasePermission();
+            bulkhead.onComplete();
+        }
+    }
+
+    /**
+     * 单个文档的断路器、舱壁与状态转换记录
+     */
+    private static class DocResilience {
+
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final Deque<String> transitions = new ArrayDeque<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        DocResilience(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        synchronized void recordTransition(String transition) {
+            transitions.addLast(Instant.now() + " " + transition);
+            while (transitions.size() > MAX_TRANSITIONS) {
+                transitions.removeFirst();
+            }
+        }
+
+        synchronized List<String> getTransitions() {
+            return new ArrayList<>(transitions);
+        }
+
+        Map<String, Object> toMap() {
+            CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+            Map<String, Object> map = new HashMap<>();
+            map.put("state", circuitBreaker.getState());
+            map.put("failureRate", metrics.getFailureRate());
+            map.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+            map.put("failedCalls", metrics.getNumberOfFailedCalls());
+            map.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+            map.put("bulkheadAvailableCalls", bulkhead.getMetrics().getAvailableConcurrentCalls());
+            map.put("lastAccess", Instant.ofEpochMilli(lastAccess));
+            map.put("transitions", getTransitions());
+            return map;
+        }
+    }
+}
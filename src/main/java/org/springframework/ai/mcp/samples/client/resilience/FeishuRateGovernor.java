@@ -0,0 +1,399 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 飞书OpenAPI全局限流器
+ * 每个租户（飞书应用）的MCP调用共享一个应用级令牌桶，并按接口各自限流，租户之间互不占用配额；
+ * 前台写操作可以使用全部令牌并短暂等待，后台轮询只能使用预留部分之外的令牌、拿不到立即放弃；
+ * 后台请求被拒绝或收到429时提高轮询减速倍数（每个调整周期最多提高一次），配额恢复后逐步回落
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FeishuRateGovernor {
+
+    /**
+     * 评论列表接口
+     */
+    public static final String ENDPOINT_COMMENT_LIST = "comment-list";
+
+    /**
+     * 评论回复接口
+     */
+    public static final String ENDPOINT_COMMENT_REPLY = "comment-reply";
+
+    /**
+     * 评论更新（解决/重新打开）接口
+     */
+    public static final String ENDPOINT_COMMENT_PATCH = "comment-patch";
+
+    /**
+     * 文档基本信息（版本号）接口
+     */
+    public static final String ENDPOINT_DOCUMENT_GET = "document-get";
+
+    /**
+     * 文档块列表接口
+     */
+    public static final String ENDPOINT_BLOCK_LIST = "block-list";
+
+    /**
+     * 文档块写接口（批量更新、插入、删除子块）
+     */
+    public static final String ENDPOINT_BLOCK_WRITE = "block-write";
+
+    /**
+     * 知识空间节点、文件夹文件列表接口（空间发现）
+     */
+    public static final String ENDPOINT_SPACE_LIST = "space-list";
+
+    /**
+     * 指令执行期间模型调用的MCP工具
+     */
+    public static final String ENDPOINT_AGENT_TOOL = "agent-tool";
+
+    /**
+     * 飞书频率限制错误码
+     */
+    private static final long RATE_LIMIT_CODE = 99991400L;
+    private static final Pattern RATE_LIMIT_CODE_PATTERN = Pattern.compile("\"code\"\\s*:\\s*99991400\\b");
+    private static final Pattern HTTP_429_PATTERN = Pattern.compile("(?i)status(?:\\s+code)?\\s*[:=]?\\s*429\\b");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 请求优先级
+     */
+    public enum Priority {
+        /**
+         * 前台写操作（指令执行结果回写等）
+         */
+        FOREGROUND,
+        /**
+         * 后台轮询
+         */
+        BACKGROUND
+    }
+
+    private final RateGovernorProperties properties;
+    private final TenantProperties tenantProperties;
+
+    /**
+     * 各租户独立的令牌桶与减速倍数，默认租户之外的租户在首次调用时创建
+     */
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * 获取默认租户的调用许可，拿不到时抛出RateLimitedException
+     */
+    public void acquire(String endpoint, Priority priority) {
+        acquire(TenantProperties.DEFAULT_TENANT, endpoint, priority);
+    }
+
+    /**
+     * 获取调用许可，拿不到时抛出RateLimitedException
+     * 后台请求不等待；前台请求最多等待foregroundMaxWait；各租户只消耗自己的配额
+     */
+    public void acquire(String tenantId, String endpoint, Priority priority) {
+        Budget budget = budgetOf(tenantId);
+        boolean acquired = priority == Priority.FOREGROUND ?
+                budget.acquireForeground(endpoint) :
+                budget.tryAcquire(endpoint, budget.getBackgroundReserve());
+        if (!acquired) {
+            budget.deniedSinceLastAdjust.incrementAndGet();
+            if (priority == Priority.FOREGROUND) {
+                budget.foregroundDenied.incrementAndGet();
+            } else {
+                budget.backgroundDenied.incrementAndGet();
+                budget.increaseSlowdown();
+            }
+            throw new RateLimitedException(endpoint, "Local rate budget exhausted for endpoint " + endpoint +
+                    " of tenant " + budget.tenantId);
+        }
+    }
+
+    /**
+     * 为对冲请求获取后台配额：拿不到时返回false，不等待，也不计入拒绝次数、不提高轮询减速倍数
+     */
+    public boolean tryAcquireHedge(String tenantId, String endpoint) {
+        Budget budget = budgetOf(tenantId);
+        return budget.tryAcquire(endpoint, budget.getBackgroundReserve());
+    }
+
+    /**
+     * 默认租户收到飞书频率限制错误
+     */
+    public void onRateLimited(String endpoint) {
+        onRateLimited(TenantProperties.DEFAULT_TENANT, endpoint);
+    }
+
+    /**
+     * 飞书返回频率限制错误：清空该租户的令牌并冷却，同时降低该租户的轮询频率
+     */
+    public void onRateLimited(String tenantId, String endpoint) {
+        Budget budget = budgetOf(tenantId);
+        budget.rateLimitResponses.incrementAndGet();
+        budget.deniedSinceLastAdjust.incrementAndGet();
+        budget.getEndpointBucket(endpoint).drain(properties.getRateLimitCooldown());
+        budget.increaseSlowdown();
+        log.warn("Feishu rate limit hit on endpoint {} of tenant {}, cooling down for {}ms, poll slowdown x{}",
+                endpoint, budget.tenantId, properties.getRateLimitCooldown(), String.format("%.1f", budget.pollSlowdown));
+    }
+
+    /**
+     * 判断MCP工具的失败响应或异常信息是否为飞书频率限制错误
+     * 只判定失败：成功响应（"Success: "开头）的正文包含评论和文档内容，不论内容如何都不算限流；
+     * 失败信息中解析出的错误码为99991400、或HTTP状态为429时才算限流
+     */
+    public static boolean isRateLimitError(String text) {
+        String error = failureOf(text);
+        if (error == null) {
+            return false;
+        }
+        JsonNode body = errorBodyOf(error);
+        if (body != null) {
+            JsonNode nested = body.path("error");
+            if (body.path("code").asLong() == RATE_LIMIT_CODE || nested.path("code").asLong() == RATE_LIMIT_CODE ||
+                body.path("status").asInt() == 429 || body.path("http_status").asInt() == 429) {
+                return true;
+            }
+        }
+        return RATE_LIMIT_CODE_PATTERN.matcher(error).find() || HTTP_429_PATTERN.matcher(error).find();
+    }
+
+    /**
+     * 失败信息：MCP响应 [{"text": "..."}] 取出文本，以"Success: "开头时返回null；不是该格式时（异常信息）原样返回
+     */
+    private static String failureOf(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String content = text;
+        try {
+            JsonNode node = MAPPER.readTree(text);
+            if (node.isArray() && !node.isEmpty() && node.get(0).has("text")) {
+                content = node.get(0).get("text").asText();
+            }
+        } catch (JsonProcessingException e) {
+            // 异常信息不是JSON，按原文判断
+        }
+        return content.startsWith("Success: ") ? null : content;
+    }
+
+    /**
+     * 失败信息中的错误体（第一个"{"到最后一个"}"），无法解析时返回null
+     */
+    private static JsonNode errorBodyOf(String error) {
+        int start = error.indexOf('{');
+        int end = error.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            return MAPPER.readTree(error.substring(start, end + 1));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 默认租户当前轮询减速倍数（1表示正常频率）
+     */
+    public double getPollSlowdown() {
+        return getPollSlowdown(TenantProperties.DEFAULT_TENANT);
+    }
+
+    /**
+     * 租户当前轮询减速倍数（1表示正常频率）
+     */
+    public double getPollSlowdown(String tenantId) {
+        Budget budget = budgets.get(tenantId);
+        return budget != null ? budget.pollSlowdown : 1.0;
+    }
+
+    /**
+     * 定期回落减速倍数：上个周期没有被拒绝的请求时减半
+     */
+    @Scheduled(fixedDelayString = "${feicur.rate.adjust-interval:5000}")
+    public void adjustSlowdown() {
+        budgets.values().forEach(Budget::adjustSlowdown);
+    }
+
+    /**
+     * 租户停用后释放它的令牌桶
+     */
+    public void removeTenant(String tenantId) {
+        if (!TenantProperties.DEFAULT_TENANT.equals(tenantId)) {
+            budgets.remove(tenantId);
+        }
+    }
+
+    private Budget budgetOf(String tenantId) {
+        String tenant = tenantId != null ? tenantId : TenantProperties.DEFAULT_TENANT;
+        return budgets.computeIfAbsent(tenant, Budget::new);
+    }
+
+    /**
+     * 获取限流器状态：默认租户的状态，其他活跃租户在tenants下
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = budgetOf(TenantProperties.DEFAULT_TENANT).toMap();
+        Map<String, Object> tenants = new HashMap<>();
+        budgets.forEach((tenant, budget) -> {
+            if (!TenantProperties.DEFAULT_TENANT.equals(tenant)) {
+                tenants.put(tenant, budget.toMap());
+            }
+        });
+        status.put("tenants", tenants);
+        return status;
+    }
+
+    /**
+     * 单个租户的配额：应用级令牌桶、按接口的令牌桶和轮询减速倍数
+     */
+    private class Budget {
+
+        private final String tenantId;
+        private final TokenBucket appBucket;
+        private final double appBurst;
+        private final Map<String, TokenBucket> endpointBuckets = new ConcurrentHashMap<>();
+
+        private volatile double pollSlowdown = 1.0;
+
+        private final AtomicLong backgroundDenied = new AtomicLong();
+        private final AtomicLong foregroundDenied = new AtomicLong();
+        private final AtomicLong rateLimitResponses = new AtomicLong();
+        private final AtomicLong deniedSinceLastAdjust = new AtomicLong();
+        private final AtomicBoolean escalatedSinceLastAdjust = new AtomicBoolean();
+
+        Budget(String tenantId) {
+            this.tenantId = tenantId;
+            TenantProperties.Tenant tenant = tenantProperties.getTenants().get(tenantId);
+            double permitsPerSecond = tenant != null && tenant.getAppPermitsPerSecond() != null ?
+                    tenant.getAppPermitsPerSecond() : properties.getAppPermitsPerSecond();
+            this.appBurst = tenant != null && tenant.getAppBurst() != null ?
+                    tenant.getAppBurst() : properties.getAppBurst();
+            this.appBucket = new TokenBucket(permitsPerSecond, appBurst);
+        }
+
+        private boolean acquireForeground(String endpoint) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getForegroundMaxWait());
+            while (true) {
+                if (tryAcquire(endpoint, 0)) {
+                    return true;
+                }
+                long wait = Math.max(appBucket.nanosUntilAvailable(0),
+                        getEndpointBucket(endpoint).nanosUntilAvailable(0));
+                if (System.nanoTime() + wait > deadline) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * 应用级和接口级令牌都拿到才算成功；先拿接口级令牌，应用级拿不到时归还，
+         * 避免某个接口受限时白白消耗其他接口共享的应用级令牌
+         */
+        private boolean tryAcquire(String endpoint, double appReserve) {
+            TokenBucket endpointBucket = getEndpointBucket(endpoint);
+            if (!endpointBucket.tryAcquire(0)) {
+                return false;
+            }
+            if (!appBucket.tryAcquire(appReserve)) {
+                endpointBucket.release();
+                return false;
+            }
+            return true;
+        }
+
+        private double getBackgroundReserve() {
+            return appBurst * properties.getForegroundReserve();
+        }
+
+        private TokenBucket getEndpointBucket(String endpoint) {
+            return endpointBuckets.computeIfAbsent(endpoint, name -> {
+                RateGovernorProperties.Budget budget = properties.getEndpoints()
+                        .getOrDefault(name, new RateGovernorProperties.Budget());
+                return new TokenBucket(budget.getPermitsPerSecond(), budget.getBurst());
+            });
+        }
+
+        /**
+         * 每个调整周期最多加倍一次，同一周期内的一连串拒绝不会直接升到上限
+         */
+        private void increaseSlowdown() {
+            if (!escalatedSinceLastAdjust.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                pollSlowdown = Math.min(properties.getMaxPollSlowdown(), pollSlowdown * 2);
+            }
+        }
+
+        private void adjustSlowdown() {
+            escalatedSinceLastAdjust.set(false);
+            long denied = deniedSinceLastAdjust.getAndSet(0);
+            if (denied == 0 && pollSlowdown > 1.0 && appBucket.fillRatio() > properties.getForegroundReserve()) {
+                pollSlowdown = Math.max(1.0, pollSlowdown / 2);
+                log.info("Rate budget of tenant {} recovered, poll slowdown reduced to x{}",
+                        tenantId, String.format("%.1f", pollSlowdown));
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> endpoints = new HashMap<>();
+            endpointBuckets.forEach((name, bucket) -> {
+                Map<String, Object> endpoint = new HashMap<>();
+                endpoint.put("permitsPerSecond", bucket.getPermitsPerSecond());
+                endpoint.put("fillRatio", bucket.fillRatio());
+                endpoints.put(name, endpoint);
+            });
+
+            Map<String, Object> status = new HashMap<>();
+            status.put("appPermitsPerSecond", appBucket.getPermitsPerSecond());
+            status.put("appFillRatio", appBucket.fillRatio());
+            status.put("pollSlowdown", pollSlowdown);
+            status.put("backgroundDenied", backgroundDenied.get());
+            status.put("foregroundDenied", foregroundDenied.get());
+            status.put("rateLimitResponses", rateLimitResponses.get());
+            status.put("endpoints", endpoints);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 带截止时间和对冲请求的工具调用
+ * 调用在tool-call线程池中执行，调用方最多等到截止时间；超时或被中断时，只读调用会被中断，
+ * 写调用（不对冲的调用）只让调用方不再等待，已开始的写调用继续执行完，不会在写到一半时被中断；
+ * 对只读调用可启用对冲：首次调用超过hedge-delay仍未返回时再发起一次相同调用，先成功的结果生效。
+ * 对冲次数不超过调用总数的max-ratio，避免在下游整体变慢时放大负载；发起对冲前还要拿到调用方给出的配额，拿不到时不对冲
+ */
+@Component
+@Slf4j
+public class HedgedCallExecutor {
+
+    private final AsyncTaskExecutor toolCallExecutor;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${feicur.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${feicur.hedge.delay:1000}")
+    private long hedgeDelay;
+
+    @Value("${feicur.hedge.max-ratio:0.1}")
+    private double maxHedgeRatio;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesSkipped = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public HedgedCallExecutor(@Qualifier("toolCallExecutor") AsyncTaskExecutor toolCallExecutor,
+                              @Qualifier("taskScheduler") TaskScheduler taskScheduler) {
+        this.toolCallExecutor = toolCallExecutor;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    /**
+     * 执行调用并等待结果
+     *
+     * @param name 调用名称（用于日志）
+     * @param call 实际调用
+     * @param timeoutMillis 最长等待时间
+     * @param hedgePermit 发起对冲前获取配额，返回false时放弃对冲；为null时不对冲（只对幂等的只读调用提供）
+     * @throws TimeoutException 超过等待时间
+     * @throws InterruptedException 调用方被中断（例如指令被取消）
+     */
+    public <T> T call(String name, Supplier<T> call, long timeoutMillis, BooleanSupplier hedgePermit)
+            throws TimeoutException, InterruptedException {
+        calls.incrementAndGet();
+        Attempts<T> attempts = new Attempts<>();
+        attempts.launch(call, false);
+        ScheduledFuture<?> hedgeTask = scheduleHedge(name, call, attempts, timeoutMillis, hedgePermit);
+
+        try {
+            return attempts.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (hedgeTask != null) {
+                hedgeTask.cancel(false);
+            }
+            attempts.cancelAll(hedgePermit != null);
+        }
+    }
+
+    /**
+     * 异步执行调用，不阻塞调用方
+     * 返回的Future超过等待时间时以TimeoutException完成；超时或取消时中断执行中的只读调用，写调用不中断
+     */
+    public <T> CompletableFuture<T> callAsync(String name, Supplier<T> call, long timeoutMillis,
+                                              BooleanSupplier hedgePermit) {
+        calls.incrementAndGet();
+        Attempts<T> attempts = new Attempts<>();
+        attempts.launch(call, false);
+        ScheduledFuture<?> hedgeTask = scheduleHedge(name, call, attempts, timeoutMillis, hedgePermit);
+
+        attempts.result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, e) -> {
+            if (e instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            }
+            if (hedgeTask != null) {
+                hedgeTask.cancel(false);
+            }
+            attempts.cancelAll(hedgePermit != null);
+        });
+        return attempts.result;
+    }
+
+    private <T> ScheduledFuture<?> scheduleHedge(String name, Supplier<T> call, Attempts<T> attempts,
+                                                 long timeoutMillis, BooleanSupplier hedgePermit) {
+        if (hedgePermit == null || !hedgeEnabled || hedgeDelay >= timeoutMillis) {
+            return null;
+        }
+        return taskScheduler.schedule(() -> {
+            try {
+                if (attempts.result.isDone() || hedges.get() >= maxHedgeRatio * calls.get()) {
+                    return;
+                }
+                if (!hedgePermit.getAsBoolean()) {
+                    // 配额不足时放弃对冲，不让重复请求挤占其他调用的配额
+                    hedgesSkipped.incrementAndGet();
+                    log.debug("No permit left for hedging {}", name);
+                    return;
+                }
+                if (attempts.launch(call, true)) {
+                    hedges.incrementAndGet();
+                    log.debug("Hedging slow call {} after {}ms", name, hedgeDelay);
+                }
+            } catch (RejectedExecutionException e) {
+                // 线程池已满时放弃对冲
+                log.debug("Tool call pool saturated, not hedging {}", name);
+            }
+        }, Instant.now().plusMillis(hedgeDelay));
+    }
+
+    /**
+     * 同一逻辑调用的所有尝试：任一成功即完成；全部失败时以最后一个异常完成
+     */
+    private class Attempts<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<Future<?>> futures = new ArrayList<>();
+        private int pending = 0;
+
+        synchronized boolean launch(Supplier<T> call, boolean isHedge) {
+            if (result.isDone()) {
+                return false;
+            }
+            futures.add(toolCallExecutor.submit(() -> run(call, isHedge)));
+            pending++;
+            return true;
+        }
+
+        private void run(Supplier<T> call, boolean isHedge) {
+            try {
+                T value = call.get();
+                if (result.complete(value) && isHedge) {
+                    hedgeWins.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                synchronized (this) {
+                    if (--pending == 0) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 取消所有尝试：尚未开始的不再执行；mayInterrupt为false时不中断已开始的尝试
+         */
+        synchronized void cancelAll(boolean mayInterrupt) {
+            for (Future<?> future : futures) {
+                future.cancel(mayInterrupt);
+            }
+        }
+    }
+
+    /**
+     * 获取统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hedgeEnabled", hedgeEnabled);
+        stats.put("hedgeDelay", hedgeDelay);
+        stats.put("calls", calls.get());
+        stats.put("hedges", hedges.get());
+        stats.put("hedgesSkipped", hedgesSkipped.get());
+        stats.put("hedgeWins", hedgeWins.get());
+        stats.put("timeouts", timeouts.get());
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 飞书OpenAPI配额配置（feicur.rate.*）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "feicur.rate")
+public class RateGovernorProperties {
+
+    /**
+     * 应用级总配额（每秒请求数）
+     */
+    private double appPermitsPerSecond = 50;
+
+    /**
+     * 应用级突发容量
+     */
+    private double appBurst = 50;
+
+    /**
+     * 为前台写操作预留的令牌比例，后台轮询不能使用这部分令牌
+     */
+    private double foregroundReserve = 0.3;
+
+    /**
+     * 前台请求等待令牌的最长时间（毫秒）
+     */
+    private long foregroundMaxWait = 5000;
+
+    /**
+     * 收到飞书频率限制错误后的冷却时间（毫秒）
+     */
+    private long rateLimitCooldown = 2000;
+
+    /**
+     * 轮询减速倍数上限
+     */
+    private double maxPollSlowdown = 8;
+
+    /**
+     * 按接口划分的配额，key为接口名（如 comment-list）
+     */
+    private Map<String, Budget> endpoints = new HashMap<>();
+
+    /**
+     * 单个接口的配额
+     */
+    @Data
+    public static class Budget {
+
+        /**
+         * 每秒请求数
+         */
+        private double permitsPerSecond = 10;
+
+        /**
+         * 突发容量
+         */
+        private double burst = 10;
+    }
+}
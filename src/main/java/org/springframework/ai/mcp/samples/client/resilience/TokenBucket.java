@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 简单的令牌桶：按固定速率补充令牌，容量即允许的突发量
+ */
+class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * 令牌桶暂停补充直到该时间点（收到429后冷却）
+     */
+    private long pausedUntilNanos;
+
+    TokenBucket(double permitsPerSecond, double capacity) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌，获取后桶内至少保留reserve个令牌
+     */
+    synchronized boolean tryAcquire(double reserve) {
+        refill();
+        if (tokens - 1 >= reserve) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 归还一个令牌（获取后因其他限制未能发出请求）
+     */
+    synchronized void release() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * 距离下一个令牌可用还需等待的纳秒数
+     */
+    synchronized long nanosUntilAvailable(double reserve) {
+        refill();
+        long now = System.nanoTime();
+        long pauseWait = Math.max(0, pausedUntilNanos - now);
+        double missing = reserve + 1 - tokens;
+        if (missing <= 0) {
+            return pauseWait;
+        }
+        return pauseWait + (long) (missing / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * 清空令牌并暂停补充一段时间
+     */
+    synchronized void drain(long pauseMillis) {
+        refill();
+        tokens = 0;
+        pausedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pauseMillis);
+        lastRefillNanos = pausedUntilNanos;
+    }
+
+    /**
+     * 当前令牌占容量的比例
+     */
+    synchronized double fillRatio() {
+        refill();
+        return tokens / capacity;
+    }
+
+    double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    double getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (now <= lastRefillNanos) {
+            return;
+        }
+        double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(capacity, tokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+}
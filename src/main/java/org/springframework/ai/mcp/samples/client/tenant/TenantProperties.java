@@ -0,0 +1,178 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.tenant;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多租户配置（feicur.tenancy.*）
+ * 未配置租户时只有default租户，使用spring.ai.mcp.client下的MCP服务器和feicur.rate下的配额
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "feicur.tenancy")
+public class TenantProperties {
+
+    /**
+     * 默认租户ID：未指定租户的文档都属于该租户
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    /**
+     * 默认租户的调度权重
+     */
+    private int defaultWeight = 1;
+
+    /**
+     * 默认租户的指令队列容量
+     */
+    private int defaultQueueCapacity = 1000;
+
+    /**
+     * 默认租户同时执行的指令数上限，0表示取feicur.executor.command.pool-size
+     */
+    private int defaultMaxConcurrentCommands = 0;
+
+    /**
+     * 没有监听文档的租户空闲多久后释放MCP客户端、配额和舱壁（毫秒）
+     */
+    private long idleTimeout = 600000;
+
+    /**
+     * MCP客户端初始化失败后的重试间隔（毫秒）
+     */
+    private long initRetryDelay = 10000;
+
+    /**
+     * 按租户ID配置的租户，default不能在这里配置
+     */
+    private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    /**
+     * 是否为已知租户（default或已配置的租户）
+     */
+    public boolean isKnown(String tenantId) {
+        return DEFAULT_TENANT.equals(tenantId) || tenants.containsKey(tenantId);
+    }
+
+    public int weightOf(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return Math.max(1, tenant != null ? tenant.getWeight() : defaultWeight);
+    }
+
+    public int queueCapacityOf(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return tenant != null ? tenant.getQueueCapacity() : defaultQueueCapacity;
+    }
+
+    /**
+     * 租户同时执行的指令数上限
+     *
+     * @param unlimited 未限制（配置为0）时的取值
+     */
+    public int maxConcurrentCommandsOf(String tenantId, int unlimited) {
+        Tenant tenant = tenants.get(tenantId);
+        int max = tenant != null ? tenant.getMaxConcurrentCommands() : defaultMaxConcurrentCommands;
+        return max > 0 ? max : Math.max(1, unlimited);
+    }
+
+    /**
+     * 指令执行线程总数：default租户和各已配置租户的并发上限之和
+     * 每个租户都有自己的执行名额，一个租户占满自己的名额时其他租户的指令仍有线程可用
+     *
+     * @param unlimited 未限制并发的租户按该值计
+     */
+    public int totalConcurrentCommands(int unlimited) {
+        int total = maxConcurrentCommandsOf(DEFAULT_TENANT, unlimited);
+        for (String tenantId : tenants.keySet()) {
+            total += maxConcurrentCommandsOf(tenantId, unlimited);
+        }
+        return total;
+    }
+
+    /**
+     * 单个租户
+     */
+    @Data
+    public static class Tenant {
+
+        /**
+         * 调度权重：多个租户都有待执行指令时，按权重比例分配执行机会
+         */
+        private int weight = 1;
+
+        /**
+         * 指令队列容量，队列满时该租户的新指令被丢弃，不影响其他租户
+         */
+        private int queueCapacity = 200;
+
+        /**
+         * 同时执行的指令数上限，0表示取feicur.executor.command.pool-size
+         */
+        private int maxConcurrentCommands = 1;
+
+        /**
+         * 同时进行的MCP调用数上限（租户舱壁）
+         */
+        private int maxConcurrentCalls = 4;
+
+        /**
+         * 应用级配额（每秒请求数），未配置时使用feicur.rate.app-permits-per-second
+         */
+        private Double appPermitsPerSecond;
+
+        /**
+         * 应用级突发容量，未配置时使用feicur.rate.app-burst
+         */
+        private Double appBurst;
+
+        /**
+         * 该租户飞书应用的MCP服务器
+         */
+        private Mcp mcp = new Mcp();
+    }
+
+    /**
+     * 租户的stdio MCP服务器，与mcp-servers-config.json中的服务器配置格式相同
+     */
+    @Data
+    public static class Mcp {
+
+        /**
+         * 服务器名，决定工具名前缀（spring_ai_mcp_client_<server-name>_），需与默认服务器一致
+         */
+        private String serverName = "feishu";
+
+        private String command;
+
+        private List<String> args = new ArrayList<>();
+
+        private Map<String, String> env = new HashMap<>();
+
+        /**
+         * 单次MCP请求超时（毫秒）
+         */
+        private long requestTimeout = 20000;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.tenant;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.mcp.McpTrafficRecorder;
+import org.springframework.ai.mcp.samples.client.mcp.ReadyMcpToolCallbackProvider;
+import org.springframework.ai.mcp.samples.client.resilience.DocResilienceRegistry;
+import org.springframework.ai.mcp.samples.client.resilience.FeishuRateGovernor;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 租户注册表：文档到租户的绑定，以及各租户的MCP客户端
+ * 默认租户使用全局MCP客户端；其他租户在首次绑定文档或调用工具时才启动自己的MCP客户端，
+ * 没有监听文档且空闲超过idle-timeout后关闭客户端并释放配额和舱壁，内存和线程只随活跃租户数增长
+ */
+@Component
+@Slf4j
+public class TenantRegistry {
+
+    private final TenantProperties properties;
+    private final ReadyMcpToolCallbackProvider defaultToolCallbackProvider;
+    private final McpTrafficRecorder trafficRecorder;
+    private final FeishuRateGovernor rateGovernor;
+    private final DocResilienceRegistry docResilienceRegistry;
+
+    private final Map<String, Binding> bindings = new ConcurrentHashMap<>();
+    private final Map<String, TenantRuntime> runtimes = new ConcurrentHashMap<>();
+
+    /**
+     * 初始化MCP客户端的线程，空闲60秒后回收
+     */
+    private final ExecutorService initExecutor;
+
+    /**
+     * 文档所属租户；停止监听后保留idle-timeout，让进行中的指令仍使用原租户回写
+     */
+    private static final class Binding {
+        private final String tenantId;
+        private volatile long releasedAt;
+
+        Binding(String tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+
+    public TenantRegistry(TenantProperties properties,
+                          ReadyMcpToolCallbackProvider defaultToolCallbackProvider,
+                          McpTrafficRecorder trafficRecorder,
+                          FeishuRateGovernor rateGovernor,
+                          DocResilienceRegistry docResilienceRegistry) {
+        this.properties = properties;
+        this.defaultToolCallbackProvider = defaultToolCallbackProvider;
+        this.trafficRecorder = trafficRecorder;
+        this.rateGovernor = rateGovernor;
+        this.docResilienceRegistry = docResilienceRegistry;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.initExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "tenant-mcp-init-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 把文档绑定到租户，租户为空时绑定到默认租户
+     *
+     * @return 实际绑定的租户ID
+     * @throws IllegalArgumentException 租户未配置
+     */
+    public String bind(String docToken, String tenantId) {
+        String tenant = normalize(tenantId);
+        if (!properties.isKnown(tenant)) {
+            throw new IllegalArgumentException("Unknown tenant: " + tenant);
+        }
+        Binding previous = bindings.put(docToken, new Binding(tenant));
+        if (previous != null && !previous.tenantId.equals(tenant) && previous.releasedAt == 0) {
+            log.warn("Document {} moved from tenant {} to {}", docToken, previous.tenantId, tenant);
+        }
+        if (!isDefault(tenant)) {
+            runtime(tenant).touch();
+        }
+        return tenant;
+    }
+
+    /**
+     * 文档停止监听
+     */
+    public void release(String docToken) {
+        Binding binding = bindings.get(docToken);
+        if (binding != null) {
+            binding.releasedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 文档所属租户，未绑定的文档属于默认租户
+     */
+    public String tenantOf(String docToken) {
+        Binding binding = docToken == null ? null : bindings.get(docToken);
+        return binding != null ? binding.tenantId : TenantProperties.DEFAULT_TENANT;
+    }
+
+    /**
+     * 租户当前可用的MCP工具；租户的客户端未就绪时返回空数组
+     */
+    public ToolCallback[] toolCallbacks(String tenantId) {
+        String tenant = normalize(tenantId);
+        // 回放模式下所有租户共用录制文件中的工具
+        if (isDefault(tenant) || trafficRecorder.isReplay() || !properties.getTenants().containsKey(tenant)) {
+            return defaultToolCallbackProvider.getToolCallbacks();
+        }
+        TenantRuntime runtime = runtime(tenant);
+        runtime.touch();
+        return runtime.getToolCallbacks();
+    }
+
+    /**
+     * 租户的工具回调提供者，每次调用时解析当前可用的工具
+     */
+    public ToolCallbackProvider toolCallbackProvider(String tenantId) {
+        return () -> toolCallbacks(tenantId);
+    }
+
+    /**
+     * 获取（必要时启动）租户的MCP客户端；初始化失败的客户端超过重试间隔后重新初始化
+     */
+    private TenantRuntime runtime(String tenant) {
+        TenantRuntime runtime = runtimes.computeIfAbsent(tenant, id -> {
+            TenantRuntime created = new TenantRuntime(id, properties.getTenants().get(id).getMcp(), trafficRecorder::wrap);
+            initExecutor.execute(created::initialize);
+            log.info("Activated tenant {}", id);
+            return created;
+        });
+        if (runtime.needsRetry(properties.getInitRetryDelay())) {
+            initExecutor.execute(runtime::initialize);
+        }
+        return runtime;
+    }
+
+    /**
+     * 定期释放空闲租户：没有监听中的文档且空闲超过idle-timeout
+     */
+    @Scheduled(fixedDelayString = "${feicur.tenancy.evict-interval:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        long idleTimeout = properties.getIdleTimeout();
+        bindings.values().removeIf(binding -> binding.releasedAt > 0 && now - binding.releasedAt >= idleTimeout);
+        Set<String> bound = new HashSet<>();
+        bindings.values().forEach(binding -> bound.add(binding.tenantId));
+        runtimes.entrySet().removeIf(entry -> {
+            boolean idle = !bound.contains(entry.getKey()) && now - entry.getValue().getLastUsed() >= idleTimeout;
+            if (idle) {
+                deactivate(entry.getKey(), entry.getValue());
+            }
+            return idle;
+        });
+    }
+
+    private void deactivate(String tenant, TenantRuntime runtime) {
+        runtime.close();
+        rateGovernor.removeTenant(tenant);
+        docResilienceRegistry.removeTenant(tenant);
+        log.info("Deactivated idle tenant {}", tenant);
+    }
+
+    private static String normalize(String tenantId) {
+        return tenantId == null || tenantId.isBlank() ? TenantProperties.DEFAULT_TENANT : tenantId.trim();
+    }
+
+    private static boolean isDefault(String tenantId) {
+        return TenantProperties.DEFAULT_TENANT.equals(tenantId);
+    }
+
+    /**
+     * 获取租户统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> docs = new HashMap<>();
+        bindings.values().forEach(binding -> {
+            if (binding.releasedAt == 0) {
+                docs.merge(binding.tenantId, 1, Integer::sum);
+            }
+        });
+
+        Map<String, Object> tenants = new HashMap<>();
+        for (String tenant : properties.getTenants().keySet()) {
+            Map<String, Object> tenantStats = new HashMap<>();
+            TenantRuntime runtime = runtimes.get(tenant);
+            tenantStats.put("active", runtime != null);
+            tenantStats.put("weight", properties.weightOf(tenant));
+            tenantStats.put("watchedDocs", docs.getOrDefault(tenant, 0));
+            if (runtime != null) {
+                tenantStats.put("mcp", runtime.toMap());
+            }
+            tenants.put(tenant, tenantStats);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("configured", properties.getTenants().size());
+        stats.put("active", runtimes.size());
+        stats.put("defaultWatchedDocs", docs.getOrDefault(TenantProperties.DEFAULT_TENANT, 0));
+        stats.put("tenants", tenants);
+        return stats;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        initExecutor.shutdownNow();
+        runtimes.values().forEach(TenantRuntime::close);
+        runtimes.clear();
+    }
+}
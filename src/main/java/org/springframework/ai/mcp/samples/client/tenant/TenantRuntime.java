@@ -0,0 +1,147 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.tenant;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 单个活跃租户的MCP客户端
+ * 首次使用时创建，在后台完成握手；握手完成前工具列表为空（与默认租户启动时的行为一致）
+ */
+@Slf4j
+class TenantRuntime {
+
+    enum State {
+        INITIALIZING,
+        READY,
+        FAILED
+    }
+
+    private final String tenantId;
+    private final TenantProperties.Mcp config;
+    private final UnaryOperator<ToolCallback[]> wrapper;
+
+    private volatile McpSyncClient client;
+    private volatile ToolCallback[] callbacks = new ToolCallback[0];
+    private volatile State state = State.INITIALIZING;
+    private volatile String lastError;
+    private volatile long lastAttempt;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile Instant readyTime;
+    private volatile int attempts;
+
+    TenantRuntime(String tenantId, TenantProperties.Mcp config, UnaryOperator<ToolCallback[]> wrapper) {
+        this.tenantId = tenantId;
+        this.config = config;
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * 启动MCP服务器进程并握手，成功后缓存工具列表
+     */
+    synchronized void initialize() {
+        if (state == State.READY) {
+            return;
+        }
+        state = State.INITIALIZING;
+        lastAttempt = System.currentTimeMillis();
+        attempts++;
+        try {
+            closeClient();
+            ServerParameters parameters = ServerParameters.builder(config.getCommand())
+                    .args(config.getArgs())
+                    .env(config.getEnv())
+                    .build();
+            // 与自动配置的客户端同名，工具名前缀保持 spring_ai_mcp_client_<server-name>_
+            McpSyncClient created = McpClient.sync(new StdioClientTransport(parameters))
+                    .clientInfo(new McpSchema.Implementation("spring-ai-mcp-client - " + config.getServerName(), "1.0.0"))
+                    .requestTimeout(Duration.ofMillis(config.getRequestTimeout()))
+                    .build();
+            client = created;
+            created.initialize();
+            callbacks = wrapper.apply(new SyncMcpToolCallbackProvider(created).getToolCallbacks());
+            readyTime = Instant.now();
+            lastError = null;
+            state = State.READY;
+            log.info("MCP client for tenant {} ready with {} tools", tenantId, callbacks.length);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            state = State.FAILED;
+            closeClient();
+            log.warn("MCP client for tenant {} initialization failed (attempt {}): {}", tenantId, attempts, e.getMessage());
+        }
+    }
+
+    /**
+     * 初始化失败且超过重试间隔时需要重新初始化
+     */
+    boolean needsRetry(long retryDelay) {
+        return state == State.FAILED && System.currentTimeMillis() - lastAttempt >= retryDelay;
+    }
+
+    ToolCallback[] getToolCallbacks() {
+        return callbacks;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    synchronized void close() {
+        callbacks = new ToolCallback[0];
+        closeClient();
+    }
+
+    private void closeClient() {
+        McpSyncClient current = client;
+        client = null;
+        if (current != null) {
+            try {
+                current.closeGracefully();
+            } catch (Exception e) {
+                log.debug("Failed to close MCP client for tenant {}: {}", tenantId, e.getMessage());
+            }
+        }
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("state", state);
+        map.put("tools", callbacks.length);
+        map.put("attempts", attempts);
+        map.put("lastError", lastError);
+        map.put("readyTime", readyTime);
+        map.put("lastUsed", Instant.ofEpochMilli(lastUsed));
+        return map;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.triage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 指令分诊
+ * 入队前判断评论是否是需要执行的指令，并估计复杂度：
+ * 先用本地规则（“LGTM”“+1”等讨论性回复直接丢弃，@机器人或祈使句直接放行），
+ * 规则无法判断时再调用小模型分类；只有需要执行的指令进入队列，简单指令交给更快的模型执行
+ */
+@Component
+@Slf4j
+public class CommandTriage {
+
+    /**
+     * 需要分诊的指令类型（其余类型是评论生命周期事件，直接放行）
+     */
+    private static final Set<String> TRIAGED_TYPES =
+            Set.of("ADD_REQUIREMENT", "UPDATE_REQUIREMENT", "REOPEN_REQUIREMENT");
+
+    private static final Pattern ACKNOWLEDGEMENT = Pattern.compile(
+            "^(lgtm|\\+1|ok|okay|thanks|thank you|thx|nice|done|👍|好的?|收到|赞|谢谢|感谢|同意|已阅|嗯+|可以|没问题|辛苦了?)" +
+            "[\\s!！.。~～👍]*$");
+
+    private static final Pattern IMPERATIVE = Pattern.compile(
+            "^(请|帮我?|麻烦|把|将|改|修改|改成|删除|删掉|去掉|添加|增加|补充|翻译|润色|重写|调整|替换|精简|扩写|总结)|" +
+            "^(fix|add|remove|delete|rewrite|translate|change|update|replace|shorten|expand|summari[sz]e|make)\\b");
+
+    private static final String TRIAGE_PROMPT = """
+            判断下面的飞书文档评论是否是要求修改文档的指令，并估计修改的复杂度。
+            只输出JSON：{"actionable": true或false, "complexity": "simple"或"complex"}。
+            simple表示改错字、替换词句、调整一两句话这类局部修改；complex表示需要理解上下文、改写段落或跨多处修改。
+            """;
+
+    private final ObjectProvider<ChatClient.Builder> chatClientBuilderProvider;
+    private final AsyncTaskExecutor triageExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${feicur.triage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.triage.bot-mention:@feicur}")
+    private String botMention;
+
+    @Value("${feicur.triage.simple-max-length:60}")
+    private int simpleMaxLength;
+
+    @Value("${feicur.triage.model-enabled:false}")
+    private boolean modelEnabled;
+
+    @Value("${feicur.triage.model:}")
+    private String triageModel;
+
+    @Value("${feicur.triage.model-timeout:5000}")
+    private long modelTimeout;
+
+    private volatile ChatClient chatClient;
+
+    private final AtomicLong ruleAccepted = new AtomicLong();
+    private final AtomicLong ruleRejected = new AtomicLong();
+    private final AtomicLong modelAccepted = new AtomicLong();
+    private final AtomicLong modelRejected = new AtomicLong();
+    private final AtomicLong modelFailures = new AtomicLong();
+    private final AtomicLong modelSkipped = new AtomicLong();
+    private final AtomicLong simple = new AtomicLong();
+
+    public CommandTriage(ObjectProvider<ChatClient.Builder> chatClientBuilderProvider,
+                         @Qualifier("triageExecutor") AsyncTaskExecutor triageExecutor) {
+        this.chatClientBuilderProvider = chatClientBuilderProvider;
+        this.triageExecutor = triageExecutor;
+    }
+
+    /**
+     * 分诊结果
+     *
+     * @param actionable 是否需要执行
+     * @param complexity 复杂度
+     * @param source 判断来源：rule / model / default
+     */
+    public record Decision(boolean actionable, UserCommand.Complexity complexity, String source) {
+    }
+
+    /**
+     * 对指令分诊，返回是否需要执行及复杂度
+     */
+    public Decision triage(UserCommand command) {
+        if (!enabled || !TRIAGED_TYPES.contains(command.getCommandType())) {
+            return new Decision(true, UserCommand.Complexity.COMPLEX, "default");
+        }
+        String content = command.getContent() == null ? "" : command.getContent().trim();
+        String normalized = content.toLowerCase(Locale.ROOT);
+        UserCommand.Complexity estimated = estimateComplexity(content);
+
+        if (content.isEmpty() || ACKNOWLEDGEMENT.matcher(normalized).matches()) {
+            ruleRejected.incrementAndGet();
+            return new Decision(false, estimated, "rule");
+        }
+        boolean mentioned = StringUtils.hasText(botMention) &&
+                normalized.contains(botMention.toLowerCase(Locale.ROOT));
+        if (mentioned || IMPERATIVE.matcher(normalized).find()) {
+            ruleAccepted.incrementAndGet();
+            return count(new Decision(true, estimated, "rule"));
+        }
+        if (modelEnabled && chatClientBuilderProvider.getIfAvailable() != null) {
+            Decision decision = classifyWithModel(content, estimated);
+            if (decision != null) {
+                (decision.actionable() ? modelAccepted : modelRejected).incrementAndGet();
+                return decision.actionable() ? count(decision) : decision;
+            }
+        }
+        // 无法判断时放行，宁可多执行一次也不漏掉指令
+        return count(new Decision(true, estimated, "default"));
+    }
+
+    /**
+     * 本地复杂度估计：短小的单句指令视为简单
+     */
+    private UserCommand.Complexity estimateComplexity(String content) {
+        long sentences = content.chars().filter(c -> "。！？!?;；\n".indexOf(c) >= 0).count();
+        return content.length() <= simpleMaxLength && sentences <= 1 ?
+                UserCommand.Complexity.SIMPLE : UserCommand.Complexity.COMPLEX;
+    }
+
+    /**
+     * 调用小模型分类，超时、分诊线程池已满或结果无法解析时返回null
+     */
+    private Decision classifyWithModel(String content, UserCommand.Complexity estimated) {
+        Future<String> future;
+        try {
+            future = triageExecutor.submit(() -> {
+                var request = getChatClient().prompt()
+                        .system(TRIAGE_PROMPT)
+                        .user(content);
+                if (StringUtils.hasText(triageModel)) {
+                    request = request.options(ChatOptions.builder().model(triageModel).temperature(0.0).build());
+                }
+                return request.call().content();
+            });
+        } catch (RejectedExecutionException e) {
+            modelSkipped.incrementAndGet();
+            log.debug("Triage pool saturated, falling back to rules");
+            return null;
+        }
+        try {
+            String answer = future.get(modelTimeout, TimeUnit.MILLISECONDS);
+            int start = answer == null ? -1 : answer.indexOf('{');
+            int end = answer == null ? -1 : answer.lastIndexOf('}');
+            if (start < 0 || end <= start) {
+                throw new IllegalStateException("Unexpected triage answer: " + answer);
+            }
+            JsonNode node = objectMapper.readTree(answer.substring(start, end + 1));
+            UserCommand.Complexity complexity = "simple".equalsIgnoreCase(node.path("complexity").asText()) ?
+                    UserCommand.Complexity.SIMPLE : "complex".equalsIgnoreCase(node.path("complexity").asText()) ?
+                    UserCommand.Complexity.COMPLEX : estimated;
+            return new Decision(node.path("actionable").asBoolean(true), complexity, "model");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            future.cancel(true);
+            modelFailures.incrementAndGet();
+            log.debug("Triage model call failed, falling back to rules: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Decision count(Decision decision) {
+        if (decision.complexity() == UserCommand.Complexity.SIMPLE) {
+            simple.incrementAndGet();
+        }
+        return decision;
+    }
+
+    private ChatClient getChatClient() {
+        if (chatClient == null) {
+            synchronized (this) {
+                if (chatClient == null) {
+                    chatClient = chatClientBuilderProvider.getObject().build();
+                }
+            }
+        }
+        return chatClient;
+    }
+
+    /**
+     * 获取分诊统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ruleAccepted", ruleAccepted.get());
+        stats.put("ruleRejected", ruleRejected.get());
+        stats.put("modelAccepted", modelAccepted.get());
+        stats.put("modelRejected", modelRejected.get());
+        stats.put("modelFailures", modelFailures.get());
+        stats.put("modelSkipped", modelSkipped.get());
+        stats.put("simple", simple.get());
+        return stats;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.watch;
+
+import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个文档的监听状态与统计
+ * 统计字段只由该文档的轮询回调写入，读取不加锁，列表查询不会阻塞轮询
+ */
+public class DocWatch {
+
+    /**
+     * 事件速率EWMA平滑系数
+     */
+    private static final double RATE_ALPHA = 0.2;
+
+    private final String docToken;
+    private final Instant startedAt = Instant.now();
+
+    private final AtomicReference<CommentSnapshot> lastSnapshot = new AtomicReference<>();
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+    private final AtomicBoolean pollInFlight = new AtomicBoolean(false);
+
+    private volatile long pollInterval;
+    private volatile long nextPollAt = 0;
+    private volatile ScheduledFuture<?> scheduledTask;
+
+    // 由空间发现管理的文档：轮询间隔按活跃度分层调整，不因空闲自动停止监听
+    private volatile boolean managed;
+    private volatile String tier;
+    private volatile long lastChangeAt;
+
+    // 统计计数
+    private final AtomicLong pollCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong eventCount = new AtomicLong();
+    private volatile long lastPollStartNanos;
+    private volatile long lastPollLatencyMillis = -1;
+    private volatile Instant lastPollTime;
+    private volatile int commentCount;
+    private volatile double eventsPerMinute;
+    private volatile String lastError;
+    private volatile Instant lastErrorTime;
+
+    public DocWatch(String docToken, long pollInterval) {
+        this.docToken = docToken;
+        this.pollInterval = pollInterval;
+    }
+
+    public String getDocToken() {
+        return docToken;
+    }
+
+    public AtomicReference<CommentSnapshot> getLastSnapshotRef() {
+        return lastSnapshot;
+    }
+
+    public CommentSnapshot getLastSnapshot() {
+        return lastSnapshot.get();
+    }
+
+    public AtomicInteger getIdleCount() {
+        return idleCount;
+    }
+
+    public AtomicBoolean getPollInFlight() {
+        return pollInFlight;
+    }
+
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public long getNextPollAt() {
+        return nextPollAt;
+    }
+
+    public void setNextPollAt(long nextPollAt) {
+        this.nextPollAt = nextPollAt;
+    }
+
+    public ScheduledFuture<?> getScheduledTask() {
+        return scheduledTask;
+    }
+
+    public void setScheduledTask(ScheduledFuture<?> scheduledTask) {
+        this.scheduledTask = scheduledTask;
+    }
+
+    public boolean isManaged() {
+        return managed;
+    }
+
+    public void setManaged(boolean managed) {
+        this.managed = managed;
+    }
+
+    public String getTier() {
+        return tier;
+    }
+
+    public void setTier(String tier) {
+        this.tier = tier;
+    }
+
+    /**
+     * 最近一次检测到评论变更的时间（毫秒），没有变更过时为0
+     */
+    public long getLastChangeAt() {
+        return lastChangeAt;
+    }
+
+    /**
+     * 记录轮询开始
+     */
+    public void recordPollStart() {
+        lastPollStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 记录一次成功的轮询
+     */
+    public void recordPollSuccess(int comments, int events) {
+        lastPollLatencyMillis = (System.nanoTime() - lastPollStartNanos) / 1_000_000;
+        lastPollTime = Instant.now();
+        pollCount.incrementAndGet();
+        commentCount = comments;
+        eventCount.addAndGet(events);
+        if (events > 0) {
+            lastChangeAt = System.currentTimeMillis();
+        }
+        double instantRate = events * 60_000.0 / Math.max(1, pollInterval);
+        eventsPerMinute = RATE_ALPHA * instantRate + (1 - RATE_ALPHA) * eventsPerMinute;
+        lastError = null;
+    }
+
+    /**
+     * 记录一次失败的轮询
+     */
+    public void recordPollFailure(String error) {
+        lastPollLatencyMillis = (System.nanoTime() - lastPollStartNanos) / 1_000_000;
+        lastPollTime = Instant.now();
+        pollCount.incrementAndGet();
+        errorCount.incrementAndGet();
+        lastError = error;
+        lastErrorTime = lastPollTime;
+    }
+
+    /**
+     * 最近一次轮询是否失败
+     */
+    public boolean hasError() {
+        return lastError != null;
+    }
+
+    /**
+     * 获取统计信息快照
+     */
+    public Map<String, Object> toStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("docToken", docToken);
+        stats.put("startedAt", startedAt);
+        stats.put("pollInterval", pollInterval);
+        stats.put("managed", managed);
+        stats.put("tier", tier);
+        stats.put("pollCount", pollCount.get());
+        stats.put("lastPollTime", lastPollTime);
+        stats.put("lastPollLatencyMillis", lastPollLatencyMillis);
+        stats.put("commentCount", commentCount);
+        stats.put("eventCount", eventCount.get());
+        stats.put("eventsPerMinute", Math.round(eventsPerMinute * 100) / 100.0);
+        stats.put("idleCount", idleCount.get());
+        stats.put("errorCount", errorCount.get());
+        stats.put("lastError", lastError);
+        stats.put("lastErrorTime", lastErrorTime);
+        stats.put("state", lastError != null ? "ERROR" : "OK");
+        return stats;
+    }
+}
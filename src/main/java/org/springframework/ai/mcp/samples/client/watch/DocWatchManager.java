@@ -17,58 +17,274 @@ package org.springframework.ai.mcp.samples.client.watch;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.agent.PromptCacheMetrics;
+import org.springframework.ai.mcp.samples.client.agent.ResultCache;
+import org.springframework.ai.mcp.samples.client.agent.ToolSelector;
+import org.springframework.ai.mcp.samples.client.anchor.QuoteAnchorIndex;
+import org.springframework.ai.mcp.samples.client.api.StringInterner;
+import org.springframework.ai.mcp.samples.client.edit.BlockPatchApplier;
+import org.springframework.ai.mcp.samples.client.triage.CommandTriage;
+import org.springframework.ai.mcp.samples.client.jfr.JfrRecordingService;
+import org.springframework.ai.mcp.samples.client.executor.CommandTracker;
+import org.springframework.ai.mcp.samples.client.executor.ExecutorPools;
+import org.springframework.ai.mcp.samples.client.ledger.ExecutionLedger;
+import org.springframework.ai.mcp.samples.client.llm.RoutingChatModel;
+import org.springframework.ai.mcp.samples.client.mcp.McpTrafficRecorder;
+import org.springframework.ai.mcp.samples.client.metrics.PipelineMetrics;
+import org.springframework.ai.mcp.samples.client.metrics.StartupMetrics;
+import org.springframework.ai.mcp.samples.client.queue.CommandQueue;
+import org.springframework.ai.mcp.samples.client.resilience.DocResilienceRegistry;
+import org.springframework.ai.mcp.samples.client.resilience.FeishuRateGovernor;
+import org.springframework.ai.mcp.samples.client.resilience.HedgedCallExecutor;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
+import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
+import org.springframework.ai.mcp.samples.client.writeback.CommentWriteBack;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.PreDestroy;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 文档监听管理器 - 管理多个文档的监听器
- * MVP版本只支持单文档监听
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DocWatchManager {
     
+    /**
+     * 批量注册结果
+     */
+    public enum RegisterResult {
+        STARTED,
+        ALREADY_WATCHING,
+        INVALID
+    }
+    
     private final DocWatcher docWatcher;
+    private final StartupMetrics startupMetrics;
+    private final DocResilienceRegistry docResilienceRegistry;
+    private final FeishuRateGovernor rateGovernor;
+    private final CommentWriteBack commentWriteBack;
+    private final ExecutionLedger executionLedger;
+    private final StringInterner stringInterner;
+    private final PipelineMetrics pipelineMetrics;
+    private final McpTrafficRecorder trafficRecorder;
+    private final CommandTracker commandTracker;
+    private final HedgedCallExecutor hedgedCallExecutor;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final ResultCache resultCache;
+    private final ToolSelector toolSelector;
+    private final CommandTriage commandTriage;
+    private final RoutingChatModel routingChatModel;
+    private final QuoteAnchorIndex quoteAnchorIndex;
+    private final BlockPatchApplier blockPatchApplier;
+    private final JfrRecordingService jfrRecordingService;
+    private final ExecutorPools executorPools;
+    private final TenantRegistry tenantRegistry;
+    private final CommandQueue commandQueue;
     
-    // 当前监听的文档列表（MVP版本只有一个）
-    private final Set<String> watchedDocs = ConcurrentHashMap.newKeySet();
+    /**
+     * 用户要求监听的文档及其租户，与正在轮询的文档分开记录：
+     * 因空闲自动停止的文档仍在这里，持久化后重启时恢复；只有用户停止监听时才移除
+     */
+    private final Map<String, String> requestedWatches = new ConcurrentHashMap<>();
     
     /**
-     * 开始监听文档
-     * MVP版本：只支持一个文档，新的文档会替换旧的
+     * 开始监听文档（默认租户），已在监听的文档保持不变
      */
     public void startWatching(String docToken) {
+        startWatching(docToken, null);
+    }
+    
+    /**
+     * 开始监听属于指定租户的文档，已在监听的文档保持不变
+     * 
+     * @param tenantId 租户ID，为空时属于默认租户
+     * @throws IllegalArgumentException token为空或租户未配置
+     */
+    public void startWatching(String docToken, String tenantId) {
         if (docToken == null || docToken.trim().isEmpty()) {
             throw new IllegalArgumentException("Document token cannot be null or empty");
         }
         
-        // MVP版本：先停止之前的监听
-        stopAllWatching();
-        
-        // 开始新的监听
-        docWatcher.startWatching(docToken);
-        watchedDocs.add(docToken);
+        if (docWatcher.isWatching(docToken)) {
+            requestedWatches.putIfAbsent(docToken, tenantRegistry.tenantOf(docToken));
+            return;
+        }
+        String tenant = tenantRegistry.bind(docToken, tenantId);
+        requestedWatches.put(docToken, tenant);
+        if (docWatcher.startWatching(docToken)) {
+            log.info("DocWatchManager started watching document: {} (tenant {})", docToken, tenant);
+        }
+    }
+    
+    /**
+     * 开始监听由空间发现管理的文档：使用指定的轮询间隔（首次轮询在间隔内随机错开），不因空闲自动停止；
+     * 已由空间管理的文档按新间隔重新调度。用户自己要求监听、正在轮询的文档不受空间管理，保持原有间隔和空闲自动停止
+     * 
+     * @return 新开始监听返回true
+     * @throws IllegalArgumentException 租户未配置
+     */
+    public boolean startManagedWatching(String docToken, String tenantId, long pollInterval) {
+        DocWatch watch = docWatcher.getWatch(docToken);
+        if (watch != null) {
+            if (watch.isManaged() && watch.getPollInterval() != pollInterval) {
+                docWatcher.reschedule(docToken, pollInterval);
+            }
+            return false;
+        }
+        tenantRegistry.bind(docToken, tenantId);
+        long offset = ThreadLocalRandom.current().nextLong(Math.max(1, pollInterval));
+        boolean started = docWatcher.startWatching(docToken, offset, null, pollInterval);
+        watch = docWatcher.getWatch(docToken);
+        if (watch != null) {
+            watch.setManaged(true);
+        }
+        return started;
+    }
+    
+    /**
+     * 空间不再管理文档：只处理由空间创建的监听。用户也要求监听的文档改回普通监听（默认间隔，空闲自动停止），
+     * 否则停止监听；用户自己的监听不受影响
+     * 
+     * @return 停止了监听返回true
+     */
+    public boolean releaseManagedWatching(String docToken) {
+        DocWatch watch = docWatcher.getWatch(docToken);
+        if (watch == null || !watch.isManaged()) {
+            return false;
+        }
+        if (requestedWatches.containsKey(docToken)) {
+            watch.setManaged(false);
+            watch.setTier(null);
+            watch.getIdleCount().set(0);
+            docWatcher.reschedule(docToken, docWatcher.getPollInterval());
+            log.info("Document {} left its space, keeping the user's watch", docToken);
+            return false;
+        }
+        stopWatching(docToken);
+        return true;
+    }
+    
+    /**
+     * 是否为用户要求监听的文档（包括因空闲暂停轮询的文档）
+     */
+    public boolean isRequested(String docToken) {
+        return requestedWatches.containsKey(docToken);
+    }
+    
+    /**
+     * 回放MCP流量时，自动监听录制文件中出现过的文档
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void watchReplayedDocuments() {
+        if (trafficRecorder.isReplay()) {
+            Set<String> tokens = trafficRecorder.getReplayDocTokens();
+            startWatchingAll(tokens);
+            log.info("Watching {} documents from MCP traffic recording", tokens.size());
+        }
+    }
+    
+    /**
+     * 批量开始监听文档
+     * 
+     * @return 每个token的注册结果（保持传入顺序）
+     */
+    public Map<String, RegisterResult> startWatchingAll(Collection<String> docTokens) {
+        return startWatchingAll(docTokens, null);
+    }
+    
+    /**
+     * 批量开始监听属于指定租户的文档
+     * 
+     * @param tenantId 租户ID，为空时属于默认租户
+     * @return 每个token的注册结果（保持传入顺序）
+     */
+    public Map<String, RegisterResult> startWatchingAll(Collection<String> docTokens, String tenantId) {
+        Map<String, String> tenants = new HashMap<>();
+        if (tenantId != null) {
+            docTokens.stream().filter(Objects::nonNull).forEach(token -> tenants.put(token, tenantId));
+        }
+        return startWatchingStaggered(docTokens, Collections.emptyMap(), tenants);
+    }
+    
+    /**
+     * 批量开始监听文档，首次轮询均匀分布在一个轮询间隔内并加随机抖动，避免所有文档同时请求MCP
+     * 
+     * @param docTokens 文档token
+     * @param snapshots 需要恢复的快照（按token），没有的文档从空快照开始
+     * @param tenants 文档所属租户（按token），没有的文档属于默认租户；租户未配置的文档不监听（INVALID）
+     * @return 每个token的注册结果（保持传入顺序）
+     */
+    public Map<String, RegisterResult> startWatchingStaggered(Collection<String> docTokens,
+                                                             Map<String, CommentSnapshot> snapshots,
+                                                             Map<String, String> tenants) {
+        return startWatchingStaggered(docTokens, snapshots, tenants, null);
+    }
+    
+    /**
+     * 批量开始监听文档（首次轮询错开），只把requested中的文档记为用户要求监听
+     * 
+     * @param requested 用户要求监听的文档，为null时全部记为用户要求监听
+     * @return 每个token的注册结果（保持传入顺序）
+     */
+    public Map<String, RegisterResult> startWatchingStaggered(Collection<String> docTokens,
+                                                             Map<String, CommentSnapshot> snapshots,
+                                                             Map<String, String> tenants,
+                                                             Set<String> requested) {
+        List<String> tokens = docTokens.stream()
+                .filter(token -> token != null && !token.trim().isEmpty())
+                .distinct()
+                .toList();
         
-        log.info("DocWatchManager started watching document: {}", docToken);
+        Map<String, RegisterResult> results = new LinkedHashMap<>();
+        long interval = docWatcher.getPollInterval();
+        double slot = tokens.isEmpty() ? 0 : (double) interval / tokens.size();
+        for (int i = 0; i < tokens.size(); i++) {
+            String docToken = tokens.get(i);
+            long offset = (long) (i * slot + ThreadLocalRandom.current().nextDouble() * slot);
+            boolean request = requested == null || requested.contains(docToken);
+            if (docWatcher.isWatching(docToken)) {
+                if (request) {
+                    requestedWatches.putIfAbsent(docToken, tenantRegistry.tenantOf(docToken));
+                }
+                results.put(docToken, RegisterResult.ALREADY_WATCHING);
+                continue;
+            }
+            String tenant;
+            try {
+                tenant = tenantRegistry.bind(docToken, tenants.get(docToken));
+            } catch (IllegalArgumentException e) {
+                log.warn("Not watching document {}: {}", docToken, e.getMessage());
+                results.put(docToken, RegisterResult.INVALID);
+                continue;
+            }
+            if (request) {
+                requestedWatches.put(docToken, tenant);
+            }
+            boolean started = docWatcher.startWatching(docToken, offset, snapshots.get(docToken));
+            results.put(docToken, started ? RegisterResult.STARTED : RegisterResult.ALREADY_WATCHING);
+        }
+        log.info("DocWatchManager registered {} documents in batch, spread over {}ms", results.size(), interval);
+        return results;
     }
     
     /**
-     * 停止监听指定文档
+     * 停止监听指定文档，之后重启也不再恢复
      */
     public void stopWatching(String docToken) {
         if (docToken == null) {
             return;
         }
         
-        if (watchedDocs.remove(docToken)) {
-            // 检查是否是当前监听的文档
-            if (docToken.equals(docWatcher.getCurrentDocToken())) {
-                docWatcher.stopWatching();
-                log.info("DocWatchManager stopped watching document: {}", docToken);
-            }
+        requestedWatches.remove(docToken);
+        if (docWatcher.stopWatching(docToken)) {
+            quoteAnchorIndex.remove(docToken);
+            log.info("DocWatchManager stopped watching document: {}", docToken);
         } else {
             log.warn("Document {} is not being watched", docToken);
         }
@@ -78,52 +294,103 @@ public class DocWatchManager {
      * 停止所有监听
      */
     public void stopAllWatching() {
-        if (!watchedDocs.isEmpty()) {
+        if (docWatcher.isWatching()) {
             docWatcher.stopWatching();
-            watchedDocs.clear();
             log.info("DocWatchManager stopped watching all documents");
         }
     }
     
+    /**
+     * 用户要求监听的文档及其租户（包括因空闲暂停轮询的文档）
+     */
+    public Map<String, String> getRequestedWatches() {
+        return new HashMap<>(requestedWatches);
+    }
+    
     /**
      * 检查是否正在监听指定文档
      */
     public boolean isWatching(String docToken) {
-        return watchedDocs.contains(docToken) && 
-               docToken.equals(docWatcher.getCurrentDocToken()) && 
-               docWatcher.isWatching();
+        return docWatcher.isWatching(docToken);
     }
     
     /**
      * 获取当前监听的文档列表
      */
     public Set<String> getWatchedDocuments() {
-        return new HashSet<>(watchedDocs);
+        return docWatcher.getWatchedDocTokens();
     }
     
     /**
      * 获取当前监听的文档数量
      */
     public int getWatchedDocumentCount() {
-        return watchedDocs.size();
+        return docWatcher.getWatches().size();
     }
     
     /**
-     * 获取当前活跃的监听器状态
+     * 分页获取各文档的监听统计（按token排序）
+     * 
+     * @param page 页码，从0开始
+     * @param size 每页数量
+     */
+    public Map<String, Object> listWatches(int page, int size) {
+        List<DocWatch> all = new ArrayList<>(docWatcher.getWatches());
+        all.sort(Comparator.comparing(DocWatch::getDocToken));
+        
+        int from = Math.min(page * size, all.size());
+        int to = Math.min(from + size, all.size());
+        List<Map<String, Object>> items = new ArrayList<>(to - from);
+        for (DocWatch watch : all.subList(from, to)) {
+            Map<String, Object> stats = watch.toStats();
+            stats.put("circuitBreakerState", docResilienceRegistry.getState(watch.getDocToken()));
+            stats.put("tenant", tenantRegistry.tenantOf(watch.getDocToken()));
+            items.add(stats);
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("page", page);
+        result.put("size", size);
+        result.put("total", all.size());
+        result.put("items", items);
+        return result;
+    }
+    
+    /**
+     * 获取监听器总体状态
      */
     public Map<String, Object> getWatcherStatus() {
         Map<String, Object> status = new HashMap<>();
         
-        String currentDoc = docWatcher.getCurrentDocToken();
-        status.put("currentDocument", currentDoc);
+        long erroring = docWatcher.getWatches().stream()
+                .filter(DocWatch::hasError)
+                .count();
         status.put("isWatching", docWatcher.isWatching());
-        status.put("idleCount", docWatcher.getIdleCount());
+        status.put("watchCount", getWatchedDocumentCount());
+        status.put("requestedWatchCount", requestedWatches.size());
+        status.put("erroringWatchCount", erroring);
         status.put("watchedDocuments", getWatchedDocuments());
-        
-        if (docWatcher.getLastSnapshot() != null) {
-            status.put("lastSnapshotTime", docWatcher.getLastSnapshot().getTimestamp());
-            status.put("lastCommentCount", docWatcher.getLastSnapshot().getCommentCount());
-        }
+        status.put("startup", startupMetrics.getStartupStats());
+        status.put("resilience", docResilienceRegistry.getStatus());
+        status.put("rateGovernor", rateGovernor.getStatus());
+        status.put("writeBack", commentWriteBack.getStats());
+        status.put("ledger", executionLedger.getStats());
+        status.put("intern", stringInterner.getStats());
+        status.put("pipeline", pipelineMetrics.getStats());
+        status.put("mcpTraffic", trafficRecorder.getStats());
+        status.put("commands", commandTracker.getStats());
+        status.put("hedging", hedgedCallExecutor.getStats());
+        status.put("promptCache", promptCacheMetrics.getStats());
+        status.put("resultCache", resultCache.getStats());
+        status.put("toolSelection", toolSelector.getStats());
+        status.put("triage", commandTriage.getStats());
+        status.put("llmRouting", routingChatModel.getStats());
+        status.put("quoteAnchors", quoteAnchorIndex.getStats());
+        status.put("blockPatch", blockPatchApplier.getStats());
+        status.put("jfr", jfrRecordingService.getStatus());
+        status.put("executors", executorPools.getStats());
+        status.put("tenancy", tenantRegistry.getStats());
+        status.put("commandQueue", commandQueue.getStats());
         
         return status;
     }
@@ -136,4 +403,4 @@ public class DocWatchManager {
         log.info("DocWatchManager shutting down...");
         stopAllWatching();
     }
-} 
\ No newline at end of file
+}
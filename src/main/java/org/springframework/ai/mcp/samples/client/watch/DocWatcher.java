@@ -15,34 +15,48 @@
  */
 package org.springframework.ai.mcp.samples.client.watch;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
 import org.springframework.ai.mcp.samples.client.diff.CommentEventDetector;
 import org.springframework.ai.mcp.samples.client.event.CommentEventPublisher;
+import org.springframework.ai.mcp.samples.client.metrics.PipelineMetrics;
+import org.springframework.ai.mcp.samples.client.metrics.StartupMetrics;
 import org.springframework.ai.mcp.samples.client.model.CommentEvent;
 import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.resilience.FeishuRateGovernor;
+import org.springframework.ai.mcp.samples.client.resilience.RateLimitedException;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
 import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PreDestroy;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * 单文档监听器 - 定时轮询文档评论变更
+ * 文档监听器 - 为每个文档调度独立的定时轮询，检测评论变更
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class DocWatcher {
     
     private final FeishuApi feishuApi;
     private final CommentEventDetector eventDetector;
     private final CommentEventPublisher eventPublisher;
+    private final StartupMetrics startupMetrics;
+    private final PipelineMetrics pipelineMetrics;
+    private final FeishuRateGovernor rateGovernor;
+    private final TaskScheduler pollScheduler;
+    private final TenantRegistry tenantRegistry;
     
     @Value("${feicur.poll.interval:6000}")
     private long pollInterval;
@@ -50,95 +64,238 @@ public class DocWatcher {
     @Value("${feicur.idle.limit:10}")
     private int idleLimit;
     
-    // 当前监听的文档token
-    private final AtomicReference<String> currentDocToken = new AtomicReference<>();
+    // 正在监听的文档
+    private final Map<String, DocWatch> watches = new ConcurrentHashMap<>();
     
-    // 上一次的快照
-    private final AtomicReference<CommentSnapshot> lastSnapshot = new AtomicReference<>();
-    
-    // 空闲计数器（连续无变更的次数）
-    private final AtomicInteger idleCount = new AtomicInteger(0);
+    public DocWatcher(FeishuApi feishuApi,
+                      CommentEventDetector eventDetector,
+                      CommentEventPublisher eventPublisher,
+                      StartupMetrics startupMetrics,
+                      PipelineMetrics pipelineMetrics,
+                      FeishuRateGovernor rateGovernor,
+                      @Qualifier("pollScheduler") TaskScheduler pollScheduler,
+                      TenantRegistry tenantRegistry) {
+        this.feishuApi = feishuApi;
+        this.eventDetector = eventDetector;
+        this.eventPublisher = eventPublisher;
+        this.startupMetrics = startupMetrics;
+        this.pipelineMetrics = pipelineMetrics;
+        this.rateGovernor = rateGovernor;
+        this.pollScheduler = pollScheduler;
+        this.tenantRegistry = tenantRegistry;
+    }
     
-    // 监听状态
-    private volatile boolean isWatching = false;
+    /**
+     * 开始监听指定文档，已在监听时不做任何处理
+     * 
+     * @return 新开始监听返回true，已在监听返回false
+     */
+    public boolean startWatching(String docToken) {
+        return startWatching(docToken, 0, null);
+    }
     
     /**
      * 开始监听指定文档
+     * 
+     * @param initialDelayMillis 首次轮询前的延迟（用于错开大量文档的轮询相位）
+     * @param initialSnapshot 恢复的快照（重启后据此检测停机期间的变更），可以为null
+     * @return 新开始监听返回true，已在监听返回false
      */
-    public void startWatching(String docToken) {
+    public boolean startWatching(String docToken, long initialDelayMillis, CommentSnapshot initialSnapshot) {
+        return startWatching(docToken, initialDelayMillis, initialSnapshot, pollInterval);
+    }
+    
+    /**
+     * 以指定的轮询间隔开始监听文档
+     * 
+     * @param interval 轮询间隔（毫秒）
+     * @return 新开始监听返回true，已在监听返回false
+     */
+    public boolean startWatching(String docToken, long initialDelayMillis, CommentSnapshot initialSnapshot,
+                                 long interval) {
         if (docToken == null || docToken.trim().isEmpty()) {
             throw new IllegalArgumentException("Document token cannot be null or empty");
         }
         
-        String oldToken = currentDocToken.getAndSet(docToken);
-        if (oldToken != null && !oldToken.equals(docToken)) {
-            log.info("Switching from doc {} to doc {}", oldToken, docToken);
+        DocWatch watch = new DocWatch(docToken, interval);
+        if (initialSnapshot != null) {
+            watch.getLastSnapshotRef().set(initialSnapshot);
+        }
+        if (watches.putIfAbsent(docToken, watch) != null) {
+            log.debug("Document {} is already being watched", docToken);
+            return false;
         }
         
-        // 重置状态
-        lastSnapshot.set(null);
-        idleCount.set(0);
-        isWatching = true;
+        synchronized (watch) {
+            ScheduledFuture<?> task = pollScheduler.scheduleWithFixedDelay(
+                    () -> pollComments(watch),
+                    Instant.now().plusMillis(Math.max(0, initialDelayMillis)),
+                    Duration.ofMillis(watch.getPollInterval()));
+            watch.setScheduledTask(task);
+        }
         
-        log.info("Started watching document: {}", docToken);
+        log.info("Started watching document: {} (initial delay {}ms)", docToken, initialDelayMillis);
+        return true;
+    }
+    
+    /**
+     * 调整文档的轮询间隔并重新调度，下一次轮询在新间隔内随机错开
+     * 
+     * @return 文档不在监听时返回false
+     */
+    public boolean reschedule(String docToken, long interval) {
+        DocWatch watch = watches.get(docToken);
+        if (watch == null) {
+            return false;
+        }
+        synchronized (watch) {
+            if (watches.get(docToken) != watch) {
+                return false;
+            }
+            ScheduledFuture<?> task = watch.getScheduledTask();
+            if (task != null) {
+                task.cancel(false);
+            }
+            watch.setPollInterval(interval);
+            long delay = ThreadLocalRandom.current().nextLong(Math.max(1, interval));
+            watch.setScheduledTask(pollScheduler.scheduleWithFixedDelay(
+                    () -> pollComments(watch),
+                    Instant.now().plusMillis(delay),
+                    Duration.ofMillis(interval)));
+        }
+        log.debug("Rescheduled document {} with poll interval {}ms", docToken, interval);
+        return true;
+    }
+    
+    /**
+     * 默认轮询间隔
+     */
+    public long getPollInterval() {
+        return pollInterval;
     }
     
     /**
-     * 停止监听
+     * 停止监听指定文档
+     * 
+     * @return 之前在监听返回true
+     */
+    public boolean stopWatching(String docToken) {
+        if (docToken == null) {
+            return false;
+        }
+        DocWatch watch = watches.remove(docToken);
+        if (watch == null) {
+            return false;
+        }
+        synchronized (watch) {
+            ScheduledFuture<?> task = watch.getScheduledTask();
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+        tenantRegistry.release(docToken);
+        log.info("Stopped watching document: {}", docToken);
+        return true;
+    }
+    
+    /**
+     * 停止监听所有文档
      */
     public void stopWatching() {
-        isWatching = false;
-        String docToken = currentDocToken.getAndSet(null);
-        lastSnapshot.set(null);
-        idleCount.set(0);
-        
-        if (docToken != null) {
-            log.info("Stopped watching document: {}", docToken);
+        for (String docToken : new ArrayList<>(watches.keySet())) {
+            stopWatching(docToken);
         }
     }
     
     /**
-     * 定时轮询任务
+     * 单个文档的定时轮询任务
+     * 只负责发起异步轮询，调度线程不会等待MCP响应或重试退避
      */
-    @Scheduled(fixedDelayString = "${feicur.poll.interval:6000}")
-    public void pollComments() {
-        if (!isWatching) {
+    void pollComments(DocWatch watch) {
+        String docToken = watch.getDocToken();
+        if (watches.get(docToken) != watch) {
             return;
         }
         
-        String docToken = currentDocToken.get();
-        if (docToken == null) {
+        // MCP工具尚未就绪：保留监听但跳过本次轮询，不计入空闲次数
+        if (!feishuApi.isCommentToolAvailable(docToken)) {
+            log.debug("Feishu comment tool not ready yet, deferring poll for document: {}", docToken);
             return;
         }
         
+        // 所属租户配额紧张时按减速倍数跳过部分轮询
+        long now = System.currentTimeMillis();
+        if (now < watch.getNextPollAt()) {
+            return;
+        }
+        double slowdown = rateGovernor.getPollSlowdown(tenantRegistry.tenantOf(docToken));
+        watch.setNextPollAt(now + (long) (watch.getPollInterval() * (slowdown - 1)));
+        
+        // 上一次轮询尚未完成（包括等待重试中），跳过本次
+        if (!watch.getPollInFlight().compareAndSet(false, true)) {
+            log.debug("Previous poll still in flight for document: {}", docToken);
+            return;
+        }
+        
+        log.debug("Polling comments for document: {}", docToken);
+        watch.recordPollStart();
+        FeicurEvents.PollEvent pollEvent = new FeicurEvents.PollEvent();
+        pollEvent.begin();
+        feishuApi.listCommentsAsync(docToken).whenComplete((comments, error) -> {
+            try {
+                if (watches.get(docToken) != watch) {
+                    // 轮询期间监听已停止，丢弃结果
+                    pollEvent.outcome = "stopped";
+                    return;
+                }
+                if (error != null) {
+                    pollEvent.outcome = "error";
+                    handlePollFailure(watch, error);
+                } else {
+                    pollEvent.outcome = "ok";
+                    pollEvent.comments = comments.size();
+                    processComments(watch, comments);
+                }
+            } finally {
+                watch.getPollInFlight().set(false);
+                pollEvent.docToken = docToken;
+                pollEvent.commit();
+            }
+        });
+    }
+    
+    /**
+     * 处理一次轮询结果：生成快照、检测变更并发布事件
+     */
+    private void processComments(DocWatch watch, List<RawComment> currentComments) {
+        String docToken = watch.getDocToken();
         try {
-            log.debug("Polling comments for document: {}", docToken);
-            
-            // 获取当前评论
-            List<RawComment> currentComments = feishuApi.listComments(docToken);
-            
-            // 创建新快照
-            CommentSnapshot newSnapshot = CommentSnapshot.fromComments(docToken, currentComments);
-            CommentSnapshot oldSnapshot = lastSnapshot.get();
+            // 创建新快照（未变化的评论复用上一次快照中的对象）
+            long detectStart = System.nanoTime();
+            CommentSnapshot oldSnapshot = watch.getLastSnapshot();
+            CommentSnapshot newSnapshot = CommentSnapshot.fromComments(docToken, currentComments, oldSnapshot);
             
             // 检测变更
             List<CommentEvent> events = eventDetector.detectChanges(oldSnapshot, newSnapshot);
+            pipelineMetrics.record(PipelineMetrics.STAGE_DETECT, System.nanoTime() - detectStart);
+            watch.recordPollSuccess(newSnapshot.getCommentCount(), events.size());
             
             if (events.isEmpty()) {
                 // 无变更，增加空闲计数
-                int currentIdleCount = idleCount.incrementAndGet();
-                log.debug("No changes detected, idle count: {}/{}", currentIdleCount, idleLimit);
+                int currentIdleCount = watch.getIdleCount().incrementAndGet();
+                log.debug("No changes detected for document {}, idle count: {}/{}",
+                        docToken, currentIdleCount, idleLimit);
                 
-                if (currentIdleCount >= idleLimit) {
+                if (currentIdleCount >= idleLimit && !watch.isManaged()) {
                     log.info("Reached idle limit ({}) for document: {}, stopping watch", 
                             idleLimit, docToken);
                     // 达到空闲限制，自动停止监听
-                    stopWatching();
+                    stopWatching(docToken);
                     return; // 提前退出，避免更新快照
                 }
             } else {
                 // 有变更，重置空闲计数
-                idleCount.set(0);
+                watch.getIdleCount().set(0);
                 log.info("Detected {} comment events for document: {}", events.size(), docToken);
                 
                 // 发布事件
@@ -148,41 +305,64 @@ public class DocWatcher {
             }
             
             // 更新快照
-            lastSnapshot.set(newSnapshot);
+            watch.getLastSnapshotRef().set(newSnapshot);
+            startupMetrics.recordFirstPoll(docToken);
             
         } catch (Exception e) {
-            log.error("Error occurred while polling comments for document: {}", docToken, e);
-            // 发生错误时增加空闲计数，避免频繁重试
-            idleCount.incrementAndGet();
+            handlePollFailure(watch, e);
+        }
+    }
+    
+    /**
+     * 处理轮询失败
+     */
+    private void handlePollFailure(DocWatch watch, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                error.getCause() : error;
+        if (cause instanceof RateLimitedException) {
+            // 配额不足不算错误，保留快照等待下次轮询
+            log.debug("Poll for document {} throttled: {}", watch.getDocToken(), cause.getMessage());
+            return;
         }
+        log.error("Error occurred while polling comments for document: {}", watch.getDocToken(), cause);
+        watch.recordPollFailure(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        // 发生错误时增加空闲计数，避免频繁重试
+        watch.getIdleCount().incrementAndGet();
     }
     
     /**
-     * 获取当前监听状态
+     * 是否有文档正在监听
      */
     public boolean isWatching() {
-        return isWatching && currentDocToken.get() != null;
+        return !watches.isEmpty();
+    }
+    
+    /**
+     * 是否正在监听指定文档
+     */
+    public boolean isWatching(String docToken) {
+        return docToken != null && watches.containsKey(docToken);
     }
     
     /**
-     * 获取当前监听的文档token
+     * 获取指定文档的监听状态
      */
-    public String getCurrentDocToken() {
-        return currentDocToken.get();
+    public DocWatch getWatch(String docToken) {
+        return watches.get(docToken);
     }
     
     /**
-     * 获取当前空闲计数
+     * 获取所有正在监听的文档
      */
-    public int getIdleCount() {
-        return idleCount.get();
+    public Collection<DocWatch> getWatches() {
+        return Collections.unmodifiableCollection(watches.values());
     }
     
     /**
-     * 获取最后快照信息
+     * 获取正在监听的文档token
      */
-    public CommentSnapshot getLastSnapshot() {
-        return lastSnapshot.get();
+    public Set<String> getWatchedDocTokens() {
+        return new HashSet<>(watches.keySet());
     }
     
     /**
@@ -195,4 +375,4 @@ public class DocWatcher {
             stopWatching();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.watch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.api.StringInterner;
+import org.springframework.ai.mcp.samples.client.discovery.SpaceDiscovery;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.ai.mcp.samples.client.tenant.TenantRegistry;
+import org.springframework.ai.mcp.samples.client.watch.snapshot.CommentSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * 监听注册表持久化
+ * 定期把用户要求监听的文档（包括因空闲暂停轮询的文档）、空间管理的文档及其最近快照和空间写入本地文件，启动时自动恢复；
+ * 恢复的文档按轮询间隔错开首次轮询，并基于恢复的快照检测停机期间的评论变更
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WatchRegistryStore {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final DocWatcher docWatcher;
+    private final DocWatchManager watchManager;
+    private final ObjectMapper objectMapper;
+    private final StringInterner stringInterner;
+    private final TenantRegistry tenantRegistry;
+    private final SpaceDiscovery spaceDiscovery;
+    private final FeishuApi feishuApi;
+
+    @Value("${feicur.watch.registry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.watch.registry.file:${user.home}/.feicur/watches.json}")
+    private String registryFile;
+
+    @Value("${feicur.watch.registry.resume-snapshots:true}")
+    private boolean resumeSnapshots;
+
+    @Value("${feicur.watch.registry.checkpoint-interval:60000}")
+    private long checkpointInterval;
+
+    private Set<String> lastWrittenTokens = Collections.emptySet();
+
+    private Set<String> lastWrittenSpaces = Collections.emptySet();
+
+    private long lastWrittenAt = 0;
+
+    private volatile boolean closed = false;
+
+    /**
+     * 启动时恢复监听（在CLI模式的CommandLineRunner之前执行）
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void restore() {
+        if (!enabled) {
+            return;
+        }
+        Path path = Path.of(registryFile);
+        if (!Files.exists(path)) {
+            log.info("No watch registry found at {}, nothing to resume", path);
+            return;
+        }
+
+        try {
+            Registry registry = objectMapper.readValue(path.toFile(), Registry.class);
+            List<String> tokens = new ArrayList<>();
+            Map<String, CommentSnapshot> snapshots = new HashMap<>();
+            Map<String, String> tenants = new HashMap<>();
+            Set<String> requested = new HashSet<>();
+            for (PersistedWatch watch : registry.getWatches()) {
+                tokens.add(watch.getDocToken());
+                if (watch.getRequested() != null ? watch.getRequested() : watch.getSpace() == null) {
+                    requested.add(watch.getDocToken());
+                }
+                feishuApi.registerFileType(watch.getDocToken(), watch.getFileType());
+                if (watch.getTenant() != null) {
+                    tenants.put(watch.getDocToken(), watch.getTenant());
+                }
+                if (resumeSnapshots && watch.getComments() != null) {
+                    watch.getComments().forEach(this::internFields);
+                    snapshots.put(watch.getDocToken(),
+                            CommentSnapshot.fromComments(watch.getDocToken(), watch.getComments()));
+                }
+            }
+            watchManager.startWatchingStaggered(tokens, snapshots, tenants, requested);
+            Set<String> spaceKeys = new HashSet<>();
+            for (PersistedSpace space : registry.getSpaces()) {
+                try {
+                    spaceKeys.add(spaceDiscovery.watch(space.getKind(), space.getToken(), space.getTenant()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Not resuming space {} {}: {}", space.getKind(), space.getToken(), e.getMessage());
+                }
+            }
+            for (PersistedWatch watch : registry.getWatches()) {
+                if (watch.getSpace() != null) {
+                    spaceDiscovery.restoreMember(watch.getSpace(), watch.getDocToken());
+                }
+            }
+            synchronized (this) {
+                lastWrittenTokens = new HashSet<>(tokens);
+                lastWrittenSpaces = spaceKeys;
+                lastWrittenAt = System.currentTimeMillis();
+            }
+            log.info("Resumed {} watches and {} spaces from {} ({} with snapshots)",
+                    tokens.size(), spaceKeys.size(), path, snapshots.size());
+        } catch (Exception e) {
+            log.error("Failed to restore watch registry from {}", path, e);
+        }
+    }
+
+    /**
+     * 定期写入：监听集合变化时立即写入，否则按checkpoint间隔写入快照
+     */
+    @Scheduled(fixedDelayString = "${feicur.watch.registry.flush-interval:5000}")
+    public void flushIfNeeded() {
+        if (!enabled || closed) {
+            return;
+        }
+        Set<String> tokens = persistedTokens();
+        Set<String> spaceKeys = spaceKeys();
+        boolean changed;
+        synchronized (this) {
+            changed = !tokens.equals(lastWrittenTokens) || !spaceKeys.equals(lastWrittenSpaces) ||
+                      System.currentTimeMillis() - lastWrittenAt >= checkpointInterval;
+        }
+        if (changed) {
+            write();
+        }
+    }
+
+    /**
+     * 上下文关闭时（监听被停止之前）写入最终状态，之后不再写入
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        if (!enabled || closed) {
+            return;
+        }
+        write();
+        closed = true;
+    }
+
+    private synchronized void write() {
+        Registry registry = new Registry();
+        registry.setVersion(FORMAT_VERSION);
+        registry.setSavedAt(Instant.now());
+        for (SpaceDiscovery.SpaceRef space : spaceDiscovery.getSpaces()) {
+            registry.getSpaces().add(new PersistedSpace(space.kind(), space.token(), space.tenant()));
+        }
+        Map<String, String> requested = watchManager.getRequestedWatches();
+        Set<String> tokens = persistedTokens(requested);
+        for (String docToken : tokens) {
+            DocWatch watch = docWatcher.getWatch(docToken);
+            PersistedWatch persisted = new PersistedWatch();
+            persisted.setDocToken(docToken);
+            persisted.setRequested(requested.containsKey(docToken));
+            String tenant = requested.containsKey(docToken) ? requested.get(docToken) : tenantRegistry.tenantOf(docToken);
+            if (!TenantProperties.DEFAULT_TENANT.equals(tenant)) {
+                persisted.setTenant(tenant);
+            }
+            String fileType = feishuApi.fileTypeOf(docToken);
+            if (!"docx".equals(fileType)) {
+                persisted.setFileType(fileType);
+            }
+            if (watch != null && watch.isManaged()) {
+                persisted.setSpace(spaceDiscovery.spaceOf(docToken));
+            }
+            CommentSnapshot snapshot = watch != null ? watch.getLastSnapshot() : null;
+            if (resumeSnapshots && snapshot != null && snapshot.getCommentMap() != null) {
+                persisted.setComments(new ArrayList<>(snapshot.getCommentMap().values()));
+            }
+            registry.getWatches().add(persisted);
+        }
+
+        Path path = Path.of(registryFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            // 先写临时文件再原子替换，避免写入中途崩溃导致注册表损坏
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), registry);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastWrittenTokens = tokens;
+            lastWrittenSpaces = spaceKeys();
+            lastWrittenAt = System.currentTimeMillis();
+            log.debug("Watch registry saved: {} watches to {}", tokens.size(), path);
+        } catch (IOException e) {
+            log.warn("Failed to save watch registry to {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 需要持久化的文档：用户要求监听的文档加上正在轮询的文档（空间管理的文档）
+     */
+    private Set<String> persistedTokens() {
+        return persistedTokens(watchManager.getRequestedWatches());
+    }
+
+    private Set<String> persistedTokens(Map<String, String> requested) {
+        Set<String> tokens = new HashSet<>(requested.keySet());
+        tokens.addAll(docWatcher.getWatchedDocTokens());
+        return tokens;
+    }
+
+    private Set<String> spaceKeys() {
+        Set<String> keys = new HashSet<>();
+        spaceDiscovery.getSpaces().forEach(space -> keys.add(space.key()));
+        return keys;
+    }
+
+    /**
+     * 恢复的评论字段同样驻留，之后轮询解析出的相同评论可直接复用
+     */
+    private void internFields(RawComment comment) {
+        comment.setCommentId(stringInterner.intern(comment.getCommentId()));
+        comment.setAuthorId(stringInterner.intern(comment.getAuthorId()));
+        comment.setPosition(stringInterner.intern(comment.getPosition()));
+        comment.setContent(stringInterner.intern(comment.getContent()));
+    }
+
+    /**
+     * 注册表文件结构
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Registry {
+        private int version;
+        private Instant savedAt;
+        private List<PersistedWatch> watches = new ArrayList<>();
+        private List<PersistedSpace> spaces = new ArrayList<>();
+    }
+
+    /**
+     * 单个持久化的监听
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PersistedWatch {
+        private String docToken;
+        private List<RawComment> comments;
+
+        /**
+         * 所属租户，默认租户时为null
+         */
+        private String tenant;
+
+        /**
+         * 由空间发现管理时为所属空间的key
+         */
+        private String space;
+
+        /**
+         * 文档类型，docx时为null
+         */
+        private String fileType;
+
+        /**
+         * 是否由用户要求监听（而不只是空间中的文档），旧文件中没有该字段时按space是否为空判断
+         */
+        private Boolean requested;
+    }
+
+    /**
+     * 单个持久化的空间
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PersistedSpace {
+        private SpaceDiscovery.Kind kind;
+        private String token;
+        private String tenant;
+    }
+}
@@ -18,6 +18,7 @@ package org.springframework.ai.mcp.samples.client.watch.snapshot;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.springframework.ai.mcp.samples.client.jfr.FeicurEvents;
 import org.springframework.ai.mcp.samples.client.model.RawComment;
 import java.time.Instant;
 import java.util.Map;
@@ -56,6 +57,17 @@ public class CommentSnapshot {
      * 通过评论列表创建快照
      */
     public static CommentSnapshot fromComments(String docToken, List<RawComment> comments) {
+        return fromComments(docToken, comments, null);
+    }
+    
+    /**
+     * 通过评论列表创建快照，与上一次快照中完全相同的评论复用旧对象，
+     * 本次解析出的重复对象随即成为垃圾，快照长期持有的对象数量不随轮询次数增长
+     */
+    public static CommentSnapshot fromComments(String docToken, List<RawComment> comments, CommentSnapshot previous) {
+        FeicurEvents.SnapshotEvent event = new FeicurEvents.SnapshotEvent();
+        event.begin();
+        int reused = 0;
         CommentSnapshot snapshot = new CommentSnapshot();
         snapshot.setTimestamp(Instant.now());
         snapshot.setDocToken(docToken);
@@ -64,6 +76,11 @@ public class CommentSnapshot {
         
         for (RawComment comment : comments) {
             if (comment.getCommentId() != null) {
+                RawComment previousComment = previous != null ? previous.getComment(comment.getCommentId()) : null;
+                if (comment.equals(previousComment)) {
+                    comment = previousComment;
+                    reused++;
+                }
                 snapshot.getCommentMap().put(comment.getCommentId(), comment);
                 if (comment.getUpdateTime() != null) {
                     snapshot.getUpdateTimeMap().put(comment.getCommentId(), comment.getUpdateTime());
@@ -73,6 +90,13 @@ public class CommentSnapshot {
             }
         }
         
+        event.end();
+        if (event.shouldCommit()) {
+            event.docToken = docToken;
+            event.comments = snapshot.getCommentCount();
+            event.reused = reused;
+            event.commit();
+        }
         return snapshot;
     }
     
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.writeback;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.samples.client.api.FeishuApi;
+import org.springframework.ai.mcp.samples.client.model.ExecutionResult;
+import org.springframework.ai.mcp.samples.client.resilience.AsyncRetryExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行结果回写
+ * 指令执行结果先进入有界队列（提交不阻塞执行线程），按固定窗口批量取出后按文档分组：
+ * 同一评论的多条结果合并为一条回复，每个文档的写操作依次执行，不同文档之间并行。
+ * 回写的MCP调用在独立的write-back线程池中执行，不与轮询争抢feishu-io线程
+ */
+@Component
+@Slf4j
+public class CommentWriteBack {
+
+    private final FeishuApi feishuApi;
+    private final AsyncRetryExecutor asyncRetryExecutor;
+    private final Executor writeBackExecutor;
+    private final BlockingQueue<ExecutionResult> pending;
+
+    /**
+     * 各文档最后一个未完成的回写链：新一批的写操作接在它之后，前一批仍在退避重试时也不会并行或乱序
+     */
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    @Value("${feicur.writeback.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feicur.writeback.max-batch:200}")
+    private int maxBatch;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong replies = new AtomicLong();
+    private final AtomicLong resolves = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public CommentWriteBack(FeishuApi feishuApi,
+                            AsyncRetryExecutor asyncRetryExecutor,
+                            @Qualifier("writeBackExecutor") Executor writeBackExecutor,
+                            @Value("${feicur.writeback.queue-capacity:500}") int queueCapacity) {
+        this.feishuApi = feishuApi;
+        this.asyncRetryExecutor = asyncRetryExecutor;
+        this.writeBackExecutor = writeBackExecutor;
+        this.pending = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 提交执行结果，队列已满时丢弃并返回false
+     */
+    public boolean submit(ExecutionResult result) {
+        if (!enabled || result.getCommentId() == null || result.getDocToken() == null) {
+            return false;
+        }
+        if (pending.offer(result)) {
+            submitted.incrementAndGet();
+            return true;
+        }
+        dropped.incrementAndGet();
+        log.warn("Write-back queue full, dropping result for comment {} in doc {}",
+                result.getCommentId(), result.getDocToken());
+        return false;
+    }
+
+    /**
+     * 按合并窗口批量回写：取出窗口内到达的结果，按文档分组后异步发送
+     */
+    @Scheduled(fixedDelayString = "${feicur.writeback.flush-interval:500}")
+    public void flush() {
+        List<ExecutionResult> batch = new ArrayList<>();
+        pending.drainTo(batch, maxBatch);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<ExecutionResult>> byDoc = new LinkedHashMap<>();
+        for (ExecutionResult result : batch) {
+            byDoc.computeIfAbsent(result.getDocToken(), k -> new ArrayList<>()).add(result);
+        }
+        log.debug("Flushing {} execution results for {} documents", batch.size(), byDoc.size());
+
+        byDoc.forEach(this::writeDocument);
+    }
+
+    /**
+     * 回写单个文档的结果：同一评论合并为一条回复，所有写操作串行并接在该文档之前批次的回写之后
+     * （避免与同文档的其他写操作交错）
+     */
+    private void writeDocument(String docToken, List<ExecutionResult> results) {
+        Map<String, List<ExecutionResult>> byComment = new LinkedHashMap<>();
+        for (ExecutionResult result : results) {
+            byComment.computeIfAbsent(result.getCommentId(), k -> new ArrayList<>()).add(result);
+        }
+
+        CompletableFuture<Void> chain = tails.getOrDefault(docToken, CompletableFuture.completedFuture(null));
+        for (Map.Entry<String, List<ExecutionResult>> entry : byComment.entrySet()) {
+            String commentId = entry.getKey();
+            List<ExecutionResult> commentResults = entry.getValue();
+            String reply = mergeMessages(commentResults);
+            boolean resolve = commentResults.stream().allMatch(ExecutionResult::isSuccess) &&
+                              commentResults.stream().anyMatch(ExecutionResult::isResolve);
+
+            // 回复不是幂等的：请求到达飞书后超时再重试会重复回复，只重试确定没有发出的失败；
+            // 解决评论可以重复执行，按默认策略重试
+            chain = chain
+                    .thenCompose(v -> asyncRetryExecutor.<Void>submit("replyComment(" + commentId + ")", writeBackExecutor, () -> {
+                        feishuApi.replyComment(docToken, commentId, reply);
+                        return null;
+                    }, AsyncRetryExecutor::isRejectedBeforeSend))
+                    .thenCompose(v -> {
+                        replies.incrementAndGet();
+                        if (!resolve) {
+                            return CompletableFuture.<Void>completedFuture(null);
+                        }
+                        return asyncRetryExecutor.<Void>submit("resolveComment(" + commentId + ")", writeBackExecutor, () -> {
+                            feishuApi.resolveComment(docToken, commentId);
+                            return null;
+                        }).thenRun(resolves::incrementAndGet);
+                    })
+                    .exceptionally(e -> {
+                        // 单条评论回写失败不影响同文档后续评论
+                        failures.incrementAndGet();
+                        log.warn("Failed to write back result for comment {} in doc {}: {}",
+                                commentId, docToken, e.getMessage());
+                        return null;
+                    });
+        }
+        CompletableFuture<Void> tail = chain;
+        tails.put(docToken, tail);
+        tail.whenComplete((v, e) -> tails.remove(docToken, tail));
+    }
+
+    /**
+     * 合并同一评论的多条结果
+     */
+    private String mergeMessages(List<ExecutionResult> results) {
+        if (results.size() == 1) {
+            return formatMessage(results.get(0));
+        }
+        StringBuilder merged = new StringBuilder();
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                merged.append("\n");
+            }
+            merged.append(i + 1).append(". ").append(formatMessage(results.get(i)));
+        }
+        return merged.toString();
+    }
+
+    private String formatMessage(ExecutionResult result) {
+        return (result.isSuccess() ? "✅ " : "❌ ") + result.getMessage();
+    }
+
+    /**
+     * 获取回写统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("writingDocs", tails.size());
+        stats.put("submitted", submitted.get());
+        stats.put("dropped", dropped.get());
+        stats.put("replies", replies.get());
+        stats.put("resolves", resolves.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheTest {
+
+    private ResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+    }
+
+    @Test
+    void hitsSameInstructionPastedOnAnotherComment() {
+        // 执行后的版本号为8，另一条评论上的相同指令（大小写、空白和结尾标点不同）在版本8上命中
+        cache.put(command("c1", "Fix typos in this section.", "第二节"), 8, "已修正3处错别字");
+
+        assertThat(cache.lookup(command("c2", "  fix   typos in this section", "第二节"), 8))
+                .isEqualTo("已修正3处错别字");
+    }
+
+    @Test
+    void missesOtherPositionOrRevision() {
+        cache.put(command("c1", "fix typos", "第二节"), 8, "已修正");
+
+        assertThat(cache.lookup(command("c2", "fix typos", "第三节"), 8)).isNull();
+        // 文档被修改后旧版本的缓存失效，回到旧版本号也不再命中
+        assertThat(cache.lookup(command("c2", "fix typos", "第二节"), 9)).isNull();
+        assertThat(cache.lookup(command("c2", "fix typos", "第二节"), 8)).isNull();
+        assertThat(cache.getStats().get("invalidations")).isEqualTo(1L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        cache.put(command("c1", "a", "p"), 8, "A");
+        cache.put(command("c2", "b", "p"), 8, "B");
+        cache.lookup(command("c3", "a", "p"), 8);
+        cache.put(command("c4", "c", "p"), 8, "C");
+
+        assertThat(cache.lookup(command("c5", "a", "p"), 8)).isEqualTo("A");
+        assertThat(cache.lookup(command("c6", "b", "p"), 8)).isNull();
+        assertThat(cache.getStats().get("evictions")).isEqualTo(1L);
+    }
+
+    private static UserCommand command(String commentId, String content, String position) {
+        RawComment comment = new RawComment();
+        comment.setCommentId(commentId);
+        comment.setContent(content);
+        comment.setPosition(position);
+        UserCommand command = new UserCommand("UPDATE_REQUIREMENT", comment);
+        command.setDocToken("doxcnCache");
+        return command;
+    }
+}
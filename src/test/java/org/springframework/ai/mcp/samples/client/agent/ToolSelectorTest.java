@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.agent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolSelectorTest {
+
+    private final ToolCallback[] tools = {
+            tool("core_documentGet", "Get document"),
+            tool("wikiCommentList", "List comments of a wiki node"),
+            tool("wikiCommentUpdate", "Update comments of a wiki node"),
+            tool("calendarEventCreate", "Create calendar event"),
+            tool("driveFileCopy", "Copy file"),
+    };
+
+    private ToolSelector selector;
+
+    @BeforeEach
+    void setUp() {
+        selector = new ToolSelector();
+        ReflectionTestUtils.setField(selector, "topK", 1);
+        ReflectionTestUtils.setField(selector, "coreToolPattern", "core_.*");
+    }
+
+    @Test
+    void fallsBackToAllToolsWhenCommentMatchesNothing() {
+        // 指令类型的关键词（update等）不能让没有匹配的中文评论缩到某个子集
+        ToolCallback[] selected = selector.select(command("把这一段改得更简洁", "UPDATE_REQUIREMENT"), tools);
+
+        assertThat(selected).isSameAs(tools);
+        assertThat(selector.getStats().get("fallbacks")).isEqualTo(1L);
+    }
+
+    @Test
+    void keepsTopScoringToolAndCoreTools() {
+        ToolCallback[] selected = selector.select(command("copy this file", "ADD_REQUIREMENT"), tools);
+
+        assertThat(names(selected)).containsExactly("core_documentGet", "driveFileCopy");
+    }
+
+    @Test
+    void commandTypeOnlyBreaksTies() {
+        ToolCallback[] selected = selector.select(command("wiki comment", "UPDATE_REQUIREMENT"), tools);
+
+        assertThat(names(selected)).containsExactly("core_documentGet", "wikiCommentUpdate");
+    }
+
+    private static UserCommand command(String content, String type) {
+        UserCommand command = new UserCommand();
+        command.setContent(content);
+        command.setCommandType(type);
+        command.setDocToken("doc");
+        return command;
+    }
+
+    private static String[] names(ToolCallback[] tools) {
+        return Arrays.stream(tools).map(tool -> tool.getToolDefinition().name()).toArray(String[]::new);
+    }
+
+    private static ToolCallback tool(String name, String description) {
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(description)
+                .inputSchema("{\"type\":\"object\",\"properties\":{}}")
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return "";
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.samples.client.model.DocBlock;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlockPatchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 页面p下依次是a、b、c、d四个文本块
+     */
+    private final List<DocBlock> current = List.of(
+            new DocBlock("p", "", 1, "", null),
+            block("a", "first"),
+            block("b", "second"),
+            block("c", "third"),
+            block("d", "fourth"));
+
+    @Test
+    void writesOnlyChangedBlocks() {
+        BlockPatch patch = BlockPatch.diff(current, List.of(
+                new BlockPatch.IntendedBlock("a", "first"),
+                new BlockPatch.IntendedBlock("b", "second!"),
+                new BlockPatch.IntendedBlock("d", "fourth")), null);
+
+        assertThat(patch.getUpdates()).containsOnlyKeys("b").containsEntry("b", "second!");
+        assertThat(patch.getUpdatedElements().get("b").toString())
+                .isEqualTo("[{\"text_run\":{\"content\":\"second!\"}}]");
+        assertThat(patch.getUnchanged()).isEqualTo(2);
+        // 未列出replaces时不删除任何块
+        assertThat(patch.getDeletes()).isEmpty();
+        assertThat(patch.getInserts()).isEmpty();
+    }
+
+    @Test
+    void deletesBeforeInsertingAtTheSamePosition() {
+        // c被新块x取代：先删除c，再在同一位置插入x
+        BlockPatch patch = BlockPatch.diff(current, List.of(
+                new BlockPatch.IntendedBlock("b", "second"),
+                new BlockPatch.IntendedBlock(null, "x"),
+                new BlockPatch.IntendedBlock("d", "fourth")), List.of("b", "c", "d"));
+
+        assertThat(patch.structuralOperations()).containsExactly(
+                new BlockPatch.Delete("p", 2, 3),
+                new BlockPatch.Insert("p", 2, List.of("x")));
+    }
+
+    @Test
+    void runsStructuralOperationsFromTheBackOfTheParent() {
+        // 开头插入的新块位于删除范围之前：先执行位置靠后的删除，插入不影响删除的下标
+        BlockPatch patch = BlockPatch.diff(current, List.of(
+                new BlockPatch.IntendedBlock(null, "x"),
+                new BlockPatch.IntendedBlock("a", "first"),
+                new BlockPatch.IntendedBlock("b", "second")), List.of("a", "b", "c", "d"));
+
+        assertThat(patch.structuralOperations()).containsExactly(
+                new BlockPatch.Delete("p", 2, 4),
+                new BlockPatch.Insert("p", 0, List.of("x")));
+    }
+
+    @Test
+    void replaysPatchOnTheBlocksItWasComputedAgainst() {
+        BlockPatch patch = BlockPatch.diff(current, List.of(
+                new BlockPatch.IntendedBlock("b", "SECOND"),
+                new BlockPatch.IntendedBlock(null, "x"),
+                new BlockPatch.IntendedBlock(null, "y"),
+                new BlockPatch.IntendedBlock("d", "fourth")), List.of("b", "c", "d"));
+        Map<BlockPatch.Insert, List<String>> created = new IdentityHashMap<>();
+        created.put(patch.getInserts().get(0), List.of("x1", "y1"));
+
+        List<DocBlock> written = patch.applyTo(current, created);
+
+        assertThat(written).extracting(DocBlock::getBlockId).containsExactly("p", "a", "b", "x1", "y1", "d");
+        assertThat(written).extracting(DocBlock::getText).containsExactly("", "first", "SECOND", "x", "y", "fourth");
+        assertThat(written.get(3).getParentId()).isEqualTo("p");
+        // 插入调用没有返回新块ID时无法得知写入后的块
+        assertThat(patch.applyTo(current, new IdentityHashMap<>())).isNull();
+    }
+
+    @Test
+    void rejectsReorderedBlocks() {
+        assertThatThrownBy(() -> BlockPatch.diff(current, List.of(
+                new BlockPatch.IntendedBlock("c", "third"),
+                new BlockPatch.IntendedBlock("b", "second")), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("out of document order");
+    }
+
+    private static DocBlock block(String blockId, String text) {
+        try {
+            JsonNode elements = MAPPER.readTree("[{\"text_run\":{\"content\":\"" + text + "\"}}]");
+            return new DocBlock(blockId, "p", 2, text, elements);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
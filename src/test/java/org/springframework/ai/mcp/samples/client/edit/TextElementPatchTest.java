@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.edit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextElementPatchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void keepsElementsOutsideTheChange() throws Exception {
+        // 只改开头的文字：链接样式的text_run和@人员原样保留
+        JsonNode elements = MAPPER.readTree("""
+                [{"text_run":{"content":"Hello "}},
+                 {"text_run":{"content":"world","text_element_style":{"link":{"url":"https%3A%2F%2Fexample.com"}}}},
+                 {"mention_user":{"user_id":"ou_1"}},
+                 {"text_run":{"content":" end"}}]
+                """);
+
+        JsonNode patched = TextElementPatch.patch(elements, "Hi world end");
+
+        assertThat(patched.size()).isEqualTo(4);
+        assertThat(patched.get(0).path("text_run").path("content").asText()).isEqualTo("Hi ");
+        assertThat(patched.get(1)).isEqualTo(elements.get(1));
+        assertThat(patched.get(2)).isEqualTo(elements.get(2));
+        assertThat(patched.get(3)).isEqualTo(elements.get(3));
+        // 原有elements不被修改
+        assertThat(elements.get(0).path("text_run").path("content").asText()).isEqualTo("Hello ");
+    }
+
+    @Test
+    void keepsStyleOfEachEditedRun() throws Exception {
+        JsonNode elements = MAPPER.readTree("""
+                [{"text_run":{"content":"abc","text_element_style":{"bold":true}}},
+                 {"text_run":{"content":"def","text_element_style":{"italic":true}}}]
+                """);
+
+        JsonNode patched = TextElementPatch.patch(elements, "abXef");
+
+        assertThat(patched.toString()).isEqualTo(
+                "[{\"text_run\":{\"content\":\"abX\",\"text_element_style\":{\"bold\":true}}}," +
+                "{\"text_run\":{\"content\":\"ef\",\"text_element_style\":{\"italic\":true}}}]");
+    }
+
+    @Test
+    void appendsAtBoundaryToPrecedingRun() throws Exception {
+        JsonNode elements = MAPPER.readTree("""
+                [{"text_run":{"content":"see "}},{"mention_doc":{"token":"doc"}}]
+                """);
+
+        JsonNode patched = TextElementPatch.patch(elements, "see also ");
+
+        assertThat(patched.toString()).isEqualTo(
+                "[{\"text_run\":{\"content\":\"see also \"}},{\"mention_doc\":{\"token\":\"doc\"}}]");
+    }
+
+    @Test
+    void editsEquationContentInPlace() throws Exception {
+        JsonNode elements = MAPPER.readTree("""
+                [{"text_run":{"content":"where "}},{"equation":{"content":"x+y"}}]
+                """);
+
+        JsonNode patched = TextElementPatch.patch(elements, "where x+z");
+
+        assertThat(patched.get(0)).isEqualTo(elements.get(0));
+        assertThat(patched.get(1).path("equation").path("content").asText()).isEqualTo("x+z");
+    }
+
+    @Test
+    void rejectsEditSpanningAnEquation() throws Exception {
+        JsonNode elements = MAPPER.readTree("""
+                [{"equation":{"content":"x+y"}},{"text_run":{"content":"b"}}]
+                """);
+
+        assertThatThrownBy(() -> TextElementPatch.patch(elements, "x+zc"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.mcp.samples.client.model.RawComment;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutionLedgerTest {
+
+    private static final Instant REVISION = Instant.parse("2025-06-01T08:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private ExecutionLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = newLedger(604800000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.close();
+    }
+
+    @Test
+    void rejectsSecondClaimWhileInFlight() {
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isTrue();
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isFalse();
+        assertThat(ledger.getStats().get("duplicatesRejected")).isEqualTo(1L);
+    }
+
+    @Test
+    void releaseAllowsClaimAgain() {
+        UserCommand command = command("c1", REVISION);
+        assertThat(ledger.tryClaim(command)).isTrue();
+
+        ledger.release(command);
+
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isTrue();
+    }
+
+    @Test
+    void executedCommandStaysClaimedAcrossRestart() {
+        UserCommand command = command("c1", REVISION);
+        assertThat(ledger.tryClaim(command)).isTrue();
+        ledger.markExecuted(command);
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isFalse();
+        ledger.close();
+
+        ledger = newLedger(604800000L);
+
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isFalse();
+        assertThat(ledger.getStats().get("entries")).isEqualTo(1);
+    }
+
+    @Test
+    void newRevisionOfSameCommentIsANewCommand() {
+        UserCommand command = command("c1", REVISION);
+        ledger.tryClaim(command);
+        ledger.markExecuted(command);
+
+        assertThat(ledger.tryClaim(command("c1", REVISION.plusSeconds(30)))).isTrue();
+        assertThat(ledger.tryClaim(command("c2", REVISION))).isTrue();
+    }
+
+    @Test
+    void dropsExpiredEntriesAndTruncatedRecordOnLoad() throws Exception {
+        UserCommand command = command("c1", REVISION);
+        ledger.tryClaim(command);
+        ledger.markExecuted(command);
+        ledger.close();
+        // 模拟写了一半时崩溃
+        Files.write(dir.resolve("ledger.bin"), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        ledger = newLedger(604800000L);
+        assertThat(ledger.getStats().get("entries")).isEqualTo(1);
+        ledger.close();
+        assertThat(Files.size(dir.resolve("ledger.bin"))).isEqualTo(16);
+
+        // TTL为负数时所有记录都已过期
+        ledger = newLedger(-60000L);
+        assertThat(ledger.getStats().get("entries")).isEqualTo(0);
+        assertThat(ledger.tryClaim(command("c1", REVISION))).isTrue();
+    }
+
+    private ExecutionLedger newLedger(long ttl) {
+        ExecutionLedger instance = new ExecutionLedger();
+        ReflectionTestUtils.setField(instance, "enabled", true);
+        ReflectionTestUtils.setField(instance, "ledgerFile", dir.resolve("ledger.bin").toString());
+        ReflectionTestUtils.setField(instance, "ttl", ttl);
+        instance.load();
+        return instance;
+    }
+
+    private static UserCommand command(String commentId, Instant updateTime) {
+        RawComment comment = new RawComment();
+        comment.setCommentId(commentId);
+        comment.setContent("把标题改成周报");
+        comment.setCreateTime(REVISION);
+        comment.setUpdateTime(updateTime);
+        UserCommand command = new UserCommand("ADD_REQUIREMENT", comment);
+        command.setDocToken("doxcnLedger");
+        return command;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.llm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoutingChatModelTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicReference<Prompt> lastPrompt = new AtomicReference<>();
+
+    @Test
+    void failsOverWhenNoToolWasInvoked() {
+        RoutingChatModel router = router(new FirstChatModel(false), new SecondChatModel(false));
+
+        ChatResponse response = router.call(new Prompt("hi"));
+
+        assertThat(response.getResult().getOutput().getText()).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(router.getStats().get("failovers")).isEqualTo(1L);
+    }
+
+    @Test
+    void doesNotFailOverAfterToolWasInvoked() {
+        RoutingChatModel router = router(new FirstChatModel(true), new SecondChatModel(true));
+
+        assertThatThrownBy(() -> router.call(new Prompt("hi"))).isInstanceOf(TransientAiException.class);
+
+        // 第一个路由已经执行过工具，不能把请求重发给第二个路由
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(router.getStats().get("failedAfterTools")).isEqualTo(1L);
+    }
+
+    @Test
+    void undeclaredModelIsNotForwarded() {
+        RoutingChatModel router = router(new FirstChatModel(false));
+        calls.set(1);
+
+        router.call(new Prompt("hi", ChatOptions.builder().model("fast-model").temperature(0.2).build()));
+
+        assertThat(lastPrompt.get().getOptions().getModel()).isNull();
+        assertThat(lastPrompt.get().getOptions().getTemperature()).isEqualTo(0.2);
+    }
+
+    @Test
+    void explicitOnlyRouteServesOnlyRequestsNamingItsModel() {
+        LlmRoutingProperties properties = new LlmRoutingProperties();
+        properties.getRoutes().add(route("first", "fast-model", true));
+        properties.getRoutes().add(route("second", "full-model", false));
+        RoutingChatModel router = router(properties, new FirstChatModel(false), new SecondChatModel(false));
+        calls.set(1);
+
+        // 未指定模型：快速模型的路由即使延迟更低也不参与
+        router.call(new Prompt("hi"));
+        assertThat(lastPrompt.get().getOptions().getModel()).isEqualTo("full-model");
+        // 指定了未声明的模型：同样只使用默认路由
+        router.call(new Prompt("hi", ChatOptions.builder().model("other-model").build()));
+        assertThat(lastPrompt.get().getOptions().getModel()).isEqualTo("full-model");
+
+        router.call(new Prompt("hi", ChatOptions.builder().model("fast-model").build()));
+        assertThat(lastPrompt.get().getOptions().getModel()).isEqualTo("fast-model");
+    }
+
+    @Test
+    void detectsRateLimitByStatusOnly() {
+        assertThat(RoutingChatModel.isRateLimited(new NonTransientAiException("429 - {\"error\":\"slow down\"}"))).isTrue();
+        assertThat(RoutingChatModel.isRateLimited(new TransientAiException("529 - overloaded"))).isTrue();
+        assertThat(RoutingChatModel.isRateLimited(
+                new RuntimeException("500 - {\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\"}}"))).isTrue();
+        assertThat(RoutingChatModel.isRateLimited(WebClientResponseException.create(429, "Too Many Requests",
+                null, null, null))).isTrue();
+
+        assertThat(RoutingChatModel.isRateLimited(new RuntimeException("Prompt has 4291 tokens"))).isFalse();
+        assertThat(RoutingChatModel.isRateLimited(new NonTransientAiException("400 - request id 529abc"))).isFalse();
+        assertThat(RoutingChatModel.isRateLimited(new RuntimeException("rate limit of the tool was hit"))).isFalse();
+    }
+
+    private RoutingChatModel router(ChatModel... providers) {
+        return router(new LlmRoutingProperties(), providers);
+    }
+
+    private RoutingChatModel router(LlmRoutingProperties properties, ChatModel... providers) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        for (ChatModel provider : providers) {
+            beanFactory.addBean(provider.getClass().getSimpleName(), provider);
+        }
+        return new RoutingChatModel(beanFactory, properties);
+    }
+
+    private static LlmRoutingProperties.Route route(String provider, String model, boolean explicitOnly) {
+        LlmRoutingProperties.Route route = new LlmRoutingProperties.Route();
+        route.setProvider(provider);
+        route.setModel(model);
+        route.setExplicitOnly(explicitOnly);
+        return route;
+    }
+
+    /**
+     * 第一次被调用时失败（可先调用工具），之后成功
+     */
+    private abstract class FakeChatModel implements ChatModel {
+
+        private final boolean invokeTool;
+
+        FakeChatModel(boolean invokeTool) {
+            this.invokeTool = invokeTool;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            lastPrompt.set(prompt);
+            if (calls.getAndIncrement() == 0) {
+                if (invokeTool) {
+                    RoutingChatModel.markToolInvoked();
+                }
+                throw new TransientAiException("500 - upstream error");
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        }
+    }
+
+    private class FirstChatModel extends FakeChatModel {
+        FirstChatModel(boolean invokeTool) {
+            super(invokeTool);
+        }
+    }
+
+    private class SecondChatModel extends FakeChatModel {
+        SecondChatModel(boolean invokeTool) {
+            super(invokeTool);
+        }
+    }
+}
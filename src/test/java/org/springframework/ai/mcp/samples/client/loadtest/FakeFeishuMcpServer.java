@@ -0,0 +1,268 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 本地飞书MCP桩服务（stdio），用于压测，不访问真实飞书
+ * 提供 driveV1FileCommentList / driveV1FileCommentReplyCreate / driveV1FileCommentPatch 三个工具，
+ * 以 "feishu" 作为连接名接入后工具名与真实服务一致。合成文档的评论数、变更速率、响应延迟和错误率
+ * 通过系统属性配置，统计报告定期写入 stub.report-file。由 load-test.sh 作为 Feicur 的子进程启动
+ *
+ * <pre>
+ * -Dstub.comments=20            每个文档的初始评论数
+ * -Dstub.users=50               合成评论作者数
+ * -Dstub.churn-per-second=10    所有文档合计每秒变更数
+ * -Dstub.latency-ms=50          工具调用平均延迟
+ * -Dstub.latency-jitter-ms=20   延迟抖动（均匀分布 ±jitter）
+ * -Dstub.error-rate=0.0         返回工具错误的比例
+ * -Dstub.rate-limit-rate=0.0    返回飞书频率限制错误(99991400)的比例
+ * -Dstub.report-file=...        统计报告路径（JSON）
+ * </pre>
+ */
+@Slf4j
+public class FakeFeishuMcpServer {
+
+    private static final String INPUT_SCHEMA = """
+            {"type":"object","properties":{
+              "path":{"type":"object"},
+              "params":{"type":"object"},
+              "data":{"type":"object"},
+              "useUAT":{"type":"boolean"}}}
+            """;
+
+    private static final String RATE_LIMIT_RESPONSE =
+            "Error: {\"code\":99991400,\"msg\":\"request trigger frequency limit\"}";
+
+    private final SyntheticDocStore store;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final double churnPerSecond;
+    private final Path reportFile;
+    private final long startedAt = System.currentTimeMillis();
+    private double churnCarry = 0;
+
+    FakeFeishuMcpServer() {
+        this.store = new SyntheticDocStore(Integer.getInteger("stub.comments", 20), Integer.getInteger("stub.users", 50));
+        this.latencyMillis = Long.getLong("stub.latency-ms", 50);
+        this.latencyJitterMillis = Long.getLong("stub.latency-jitter-ms", 20);
+        this.errorRate = Double.parseDouble(System.getProperty("stub.error-rate", "0"));
+        this.rateLimitRate = Double.parseDouble(System.getProperty("stub.rate-limit-rate", "0"));
+        this.churnPerSecond = Double.parseDouble(System.getProperty("stub.churn-per-second", "10"));
+        String report = System.getProperty("stub.report-file");
+        this.reportFile = report != null ? Path.of(report) : null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // stdout 专用于MCP协议消息，其他输出（包括日志）一律转到 stderr
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);
+
+        FakeFeishuMcpServer stub = new FakeFeishuMcpServer();
+        StdioServerTransportProvider transport =
+                new StdioServerTransportProvider(new ObjectMapper(), System.in, protocolOut);
+        McpSyncServer server = McpServer.sync(transport)
+                .serverInfo("feishu-stub", "0.1.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build())
+                .tools(stub.tool("driveV1FileCommentList", "列出文档评论（合成数据）", stub::handleList),
+                       stub.tool("driveV1FileCommentReplyCreate", "回复评论（记录端到端延迟）", stub::handleReply),
+                       stub.tool("driveV1FileCommentPatch", "修改评论解决状态", stub::handlePatch))
+                .build();
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, r -> {
+            Thread thread = new Thread(r, "stub-churn");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(stub::churn, 10, 10, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(stub::writeReport, 5, 5, TimeUnit.SECONDS);
+        // Feicur 被强制结束时不会关闭子进程，父进程消失后自行退出
+        ProcessHandle parent = ProcessHandle.current().parent().orElse(null);
+        if (parent != null) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                if (!parent.isAlive()) {
+                    System.exit(0);
+                }
+            }, 1, 1, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stub.writeReport();
+            server.closeGracefully();
+            stopped.countDown();
+        }));
+
+        log.info("Feishu MCP stub started: {}", stub.describe());
+        stopped.await();
+    }
+
+    private McpServerFeatures.SyncToolSpecification tool(String name, String description,
+            BiFunction<String, Map<String, Object>, String> handler) {
+        return new McpServerFeatures.SyncToolSpecification(
+                new McpSchema.Tool(name, description, INPUT_SCHEMA),
+                (exchange, arguments) -> call(name, arguments, handler));
+    }
+
+    /**
+     * 统一处理：模拟延迟，按比例注入错误和频率限制，再交给具体工具
+     */
+    private McpSchema.CallToolResult call(String name, Map<String, Object> arguments,
+            BiFunction<String, Map<String, Object>, String> handler) {
+        sleepLatency();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < rateLimitRate) {
+            store.injectedRateLimits.incrementAndGet();
+            return result(RATE_LIMIT_RESPONSE, false);
+        }
+        if (random.nextDouble() < errorRate) {
+            store.injectedErrors.incrementAndGet();
+            return result("Error: stub injected failure in " + name, true);
+        }
+        try {
+            String docToken = (String) path(arguments).get("file_token");
+            return result(handler.apply(docToken, arguments), false);
+        } catch (Exception e) {
+            log.warn("Stub tool {} failed: {}", name, e.getMessage());
+            return result("Error: " + e.getMessage(), true);
+        }
+    }
+
+    private String handleList(String docToken, Map<String, Object> arguments) {
+        try {
+            return store.list(docToken);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String handleReply(String docToken, Map<String, Object> arguments) {
+        store.reply(docToken, (String) path(arguments).get("comment_id"));
+        return "Success: {\"reply_id\":\"stub-reply\"}";
+    }
+
+    private String handlePatch(String docToken, Map<String, Object> arguments) {
+        Object data = arguments.get("data");
+        boolean solved = data instanceof Map<?, ?> map && Boolean.TRUE.equals(map.get("is_solved"));
+        store.patch(docToken, (String) path(arguments).get("comment_id"), solved);
+        return "Success: {}";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> path(Map<String, Object> arguments) {
+        Object path = arguments.get("path");
+        return path instanceof Map ? (Map<String, Object>) path : Map.of();
+    }
+
+    private static McpSchema.CallToolResult result(String text, boolean isError) {
+        return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(text)), isError);
+    }
+
+    private void sleepLatency() {
+        long jitter = latencyJitterMillis > 0 ?
+                ThreadLocalRandom.current().nextLong(-latencyJitterMillis, latencyJitterMillis + 1) : 0;
+        long delay = Math.max(0, latencyMillis + jitter);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 每10ms执行一次，按配置速率生成变更（小数部分累积到下一次）
+     */
+    private void churn() {
+        churnCarry += churnPerSecond / 100.0;
+        while (churnCarry >= 1) {
+            store.mutateRandom();
+            churnCarry -= 1;
+        }
+    }
+
+    private synchronized void writeReport() {
+        if (reportFile == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long firstMutationAt = store.getFirstMutationAt();
+        double churnSeconds = firstMutationAt > 0 ? Math.max(1, now - firstMutationAt) / 1000.0 : 0;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", describe());
+        report.put("uptimeSeconds", (now - startedAt) / 1000);
+        report.put("docs", store.getDocCount());
+        report.put("listCalls", store.listCalls.get());
+        report.put("listCallsPerSecond", round(store.listCalls.get() * 1000.0 / Math.max(1, now - startedAt)));
+        report.put("replyCalls", store.replyCalls.get());
+        report.put("patchCalls", store.patchCalls.get());
+        report.put("mutations", store.mutations.get());
+        report.put("observed", store.observed.get());
+        report.put("injectedErrors", store.injectedErrors.get());
+        report.put("injectedRateLimits", store.injectedRateLimits.get());
+        report.put("observedPerSecond", churnSeconds > 0 ? round(store.observed.get() / churnSeconds) : 0);
+        report.put("repliesPerSecond", churnSeconds > 0 ? round(store.replyCalls.get() / churnSeconds) : 0);
+        report.put("observeLatencyMillis", store.observeLatency.summary());
+        report.put("endToEndLatencyMillis", store.endToEndLatency.summary());
+
+        try {
+            Path tmp = reportFile.resolveSibling(reportFile.getFileName() + ".tmp");
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(tmp.toFile(), report);
+            Files.move(tmp, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to write stub report to {}: {}", reportFile, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> describe() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("churnPerSecond", churnPerSecond);
+        config.put("latencyMillis", latencyMillis);
+        config.put("latencyJitterMillis", latencyJitterMillis);
+        config.put("errorRate", errorRate);
+        config.put("rateLimitRate", rateLimitRate);
+        return config;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
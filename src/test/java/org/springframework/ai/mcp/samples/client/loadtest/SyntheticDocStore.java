@@ -0,0 +1,291 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测桩的合成文档存储
+ * 文档在首次被列出时按配置的评论数生成；变更只作用于已被列出过的文档（首次列出即Feicur的基线快照）。
+ * 每次变更记录发生时间，桩在之后首次返回该评论时记录“观测延迟”，收到对应回复时记录“端到端延迟”
+ */
+class SyntheticDocStore {
+
+    /**
+     * Feicur变更检测允许1秒误差，同一评论的相邻修订至少间隔2秒
+     */
+    private static final long MIN_REVISION_STEP = 2;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, SyntheticDoc> docs = new ConcurrentHashMap<>();
+    private final List<SyntheticDoc> listedDocs = Collections.synchronizedList(new ArrayList<>());
+    private final int commentsPerDoc;
+    private final int users;
+
+    final AtomicLong listCalls = new AtomicLong();
+    final AtomicLong replyCalls = new AtomicLong();
+    final AtomicLong patchCalls = new AtomicLong();
+    final AtomicLong mutations = new AtomicLong();
+    final AtomicLong observed = new AtomicLong();
+    final AtomicLong injectedErrors = new AtomicLong();
+    final AtomicLong injectedRateLimits = new AtomicLong();
+    final LatencySamples observeLatency = new LatencySamples();
+    final LatencySamples endToEndLatency = new LatencySamples();
+
+    private volatile long firstMutationAt = 0;
+
+    SyntheticDocStore(int commentsPerDoc, int users) {
+        this.commentsPerDoc = commentsPerDoc;
+        this.users = Math.max(1, users);
+    }
+
+    /**
+     * 生成评论列表响应（与飞书 drive.v1.fileComment.list 的结构一致）
+     */
+    String list(String docToken) throws Exception {
+        listCalls.incrementAndGet();
+        SyntheticDoc doc = docs.computeIfAbsent(docToken, this::createDoc);
+        long now = System.currentTimeMillis();
+        ObjectNode data = objectMapper.createObjectNode();
+        ArrayNode items = data.putArray("items");
+        synchronized (doc) {
+            if (!doc.listed) {
+                doc.listed = true;
+                listedDocs.add(doc);
+            }
+            for (SyntheticComment comment : doc.comments.values()) {
+                if (comment.mutatedAt > 0) {
+                    observeLatency.add(now - comment.mutatedAt);
+                    observed.incrementAndGet();
+                    comment.mutatedAt = 0;
+                }
+                items.add(toJson(comment));
+            }
+        }
+        data.put("has_more", false);
+        return "Success: " + objectMapper.writeValueAsString(data);
+    }
+
+    /**
+     * 收到回复：对应变更的端到端延迟到此结束
+     */
+    void reply(String docToken, String commentId) {
+        replyCalls.incrementAndGet();
+        SyntheticDoc doc = docs.get(docToken);
+        if (doc == null) {
+            return;
+        }
+        synchronized (doc) {
+            SyntheticComment comment = doc.comments.get(commentId);
+            if (comment != null && comment.awaitingReplySince > 0) {
+                endToEndLatency.add(System.currentTimeMillis() - comment.awaitingReplySince);
+                comment.awaitingReplySince = 0;
+            }
+        }
+    }
+
+    /**
+     * 修改解决状态（Feicur回写时标记已解决）
+     */
+    void patch(String docToken, String commentId, boolean solved) {
+        patchCalls.incrementAndGet();
+        SyntheticDoc doc = docs.get(docToken);
+        if (doc == null) {
+            return;
+        }
+        synchronized (doc) {
+            SyntheticComment comment = doc.comments.get(commentId);
+            if (comment != null && comment.solved != solved) {
+                comment.solved = solved;
+                comment.updateTime = nextRevision(comment.updateTime);
+            }
+        }
+    }
+
+    /**
+     * 对随机一个已列出的文档做一次变更：新增、编辑或切换解决状态
+     */
+    void mutateRandom() {
+        SyntheticDoc doc;
+        synchronized (listedDocs) {
+            if (listedDocs.isEmpty()) {
+                return;
+            }
+            doc = listedDocs.get(ThreadLocalRandom.current().nextInt(listedDocs.size()));
+        }
+        long now = System.currentTimeMillis();
+        if (firstMutationAt == 0) {
+            firstMutationAt = now;
+        }
+        int op = ThreadLocalRandom.current().nextInt(10);
+        synchronized (doc) {
+            SyntheticComment comment;
+            if (op < 3 || doc.comments.isEmpty()) {
+                // 新增 -> ADD_REQUIREMENT，需要回复
+                comment = newComment(doc);
+                doc.comments.put(comment.id, comment);
+                comment.awaitingReplySince = now;
+            } else {
+                comment = randomComment(doc);
+                comment.updateTime = nextRevision(comment.updateTime);
+                if (op < 9) {
+                    // 编辑 -> UPDATE_REQUIREMENT，需要回复
+                    comment.content = "需求 " + comment.id + " 修订于 " + comment.updateTime;
+                    comment.awaitingReplySince = now;
+                } else {
+                    // 切换解决状态 -> RESOLVE / REOPEN
+                    comment.solved = !comment.solved;
+                    comment.awaitingReplySince = comment.solved ? 0 : now;
+                }
+            }
+            comment.mutatedAt = now;
+        }
+        mutations.incrementAndGet();
+    }
+
+    long getFirstMutationAt() {
+        return firstMutationAt;
+    }
+
+    int getDocCount() {
+        return docs.size();
+    }
+
+    private SyntheticDoc createDoc(String docToken) {
+        SyntheticDoc doc = new SyntheticDoc(docToken);
+        for (int i = 0; i < commentsPerDoc; i++) {
+            SyntheticComment comment = newComment(doc);
+            doc.comments.put(comment.id, comment);
+        }
+        return doc;
+    }
+
+    private SyntheticComment newComment(SyntheticDoc doc) {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        SyntheticComment comment = new SyntheticComment();
+        comment.id = doc.token + "-c" + doc.nextCommentId++;
+        comment.userId = "ou_stub_" + ThreadLocalRandom.current().nextInt(users);
+        comment.quote = "段落 " + ThreadLocalRandom.current().nextInt(1000);
+        comment.content = "需求 " + comment.id;
+        comment.createTime = nowSeconds;
+        comment.updateTime = nowSeconds;
+        return comment;
+    }
+
+    private SyntheticComment randomComment(SyntheticDoc doc) {
+        int index = ThreadLocalRandom.current().nextInt(doc.comments.size());
+        Iterator<SyntheticComment> it = doc.comments.values().iterator();
+        for (int i = 0; i < index; i++) {
+            it.next();
+        }
+        return it.next();
+    }
+
+    private long nextRevision(long previous) {
+        return Math.max(System.currentTimeMillis() / 1000, previous + MIN_REVISION_STEP);
+    }
+
+    private ObjectNode toJson(SyntheticComment comment) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("comment_id", comment.id);
+        node.put("user_id", comment.userId);
+        node.put("quote", comment.quote);
+        node.put("create_time", comment.createTime);
+        node.put("update_time", comment.updateTime);
+        node.put("is_solved", comment.solved);
+        node.put("is_whole", false);
+        ObjectNode reply = node.putObject("reply_list").putArray("replies").addObject();
+        reply.put("reply_id", comment.id + "-r0");
+        reply.put("user_id", comment.userId);
+        ObjectNode element = reply.putObject("content").putArray("elements").addObject();
+        element.put("type", "text_run");
+        element.putObject("text_run").put("text", comment.content);
+        return node;
+    }
+
+    private static class SyntheticDoc {
+        final String token;
+        final Map<String, SyntheticComment> comments = new LinkedHashMap<>();
+        int nextCommentId = 0;
+        boolean listed = false;
+
+        SyntheticDoc(String token) {
+            this.token = token;
+        }
+    }
+
+    private static class SyntheticComment {
+        String id;
+        String userId;
+        String quote;
+        String content;
+        long createTime;
+        long updateTime;
+        boolean solved;
+        long mutatedAt;
+        long awaitingReplySince;
+    }
+
+    /**
+     * 延迟样本（毫秒），超过上限后按蓄水池抽样保留
+     */
+    static class LatencySamples {
+
+        private static final int MAX_SAMPLES = 1_000_000;
+
+        private final long[] samples = new long[MAX_SAMPLES];
+        private long count = 0;
+
+        synchronized void add(long millis) {
+            if (count < MAX_SAMPLES) {
+                samples[(int) count] = millis;
+            } else {
+                long slot = ThreadLocalRandom.current().nextLong(count + 1);
+                if (slot < MAX_SAMPLES) {
+                    samples[(int) slot] = millis;
+                }
+            }
+            count++;
+        }
+
+        synchronized Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            int size = (int) Math.min(count, MAX_SAMPLES);
+            if (size == 0) {
+                return summary;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            summary.put("p50", percentile(sorted, 0.50));
+            summary.put("p90", percentile(sorted, 0.90));
+            summary.put("p99", percentile(sorted, 0.99));
+            summary.put("max", sorted[size - 1]);
+            return summary;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+    }
+}
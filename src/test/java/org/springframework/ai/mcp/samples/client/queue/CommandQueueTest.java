@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.queue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.samples.client.model.UserCommand;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandQueueTest {
+
+    private TenantProperties tenantProperties;
+    private CommandQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        tenantProperties = new TenantProperties();
+        tenantProperties.getTenants().put("a", tenant(2, 10, 3));
+        tenantProperties.getTenants().put("b", tenant(1, 10, 3));
+        queue = new CommandQueue(tenantProperties);
+        ReflectionTestUtils.setField(queue, "commandPoolSize", 1);
+    }
+
+    @Test
+    void interleavesTenantsByWeight() throws Exception {
+        // a权重2、b权重1：平滑轮转为a、b、a，而不是先把a的指令全部取完
+        for (int i = 0; i < 3; i++) {
+            queue.offer(command("a", "a" + i));
+            queue.offer(command("b", "b" + i));
+        }
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UserCommand command = queue.poll(0, TimeUnit.MILLISECONDS);
+            order.add(command.getContent());
+            queue.complete(command);
+        }
+
+        assertThat(order).containsExactly("a0", "b0", "a1");
+    }
+
+    @Test
+    void busyTenantDoesNotBlockOthers() throws Exception {
+        // default租户未限制并发，按feicur.executor.command.pool-size=1计：执行中时它的其余指令不再出队
+        queue.offer(command(null, "d0"));
+        queue.offer(command(null, "d1"));
+        queue.offer(command("b", "b0"));
+
+        UserCommand first = queue.poll(0, TimeUnit.MILLISECONDS);
+        UserCommand second = queue.poll(0, TimeUnit.MILLISECONDS);
+
+        assertThat(first.getContent()).isEqualTo("d0");
+        assertThat(second.getContent()).isEqualTo("b0");
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS)).isNull();
+
+        queue.complete(first);
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS).getContent()).isEqualTo("d1");
+    }
+
+    @Test
+    void requeuedCommandKeepsItsPlace() throws Exception {
+        queue.offer(command("a", "a0"));
+        queue.offer(command("a", "a1"));
+
+        UserCommand command = queue.poll(0, TimeUnit.MILLISECONDS);
+        queue.requeue(command);
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS).getContent()).isEqualTo("a0");
+    }
+
+    @Test
+    void fullPartitionOnlyRejectsItsOwnTenant() {
+        tenantProperties.getTenants().put("small", tenant(1, 1, 1));
+
+        assertThat(queue.offer(command("small", "s0"))).isTrue();
+        assertThat(queue.offer(command("small", "s1"))).isFalse();
+        assertThat(queue.offer(command("a", "a0"))).isTrue();
+    }
+
+    @Test
+    void workerPoolCoversEveryTenantsLimit() {
+        // default按1计，a和b各3
+        assertThat(tenantProperties.totalConcurrentCommands(1)).isEqualTo(7);
+    }
+
+    private static TenantProperties.Tenant tenant(int weight, int queueCapacity, int maxConcurrentCommands) {
+        TenantProperties.Tenant tenant = new TenantProperties.Tenant();
+        tenant.setWeight(weight);
+        tenant.setQueueCapacity(queueCapacity);
+        tenant.setMaxConcurrentCommands(maxConcurrentCommands);
+        return tenant;
+    }
+
+    private static UserCommand command(String tenantId, String content) {
+        UserCommand command = new UserCommand();
+        command.setTenantId(tenantId);
+        command.setContent(content);
+        command.setCommandType("ADD_REQUIREMENT");
+        command.setDocToken("doc-" + content);
+        return command;
+    }
+}
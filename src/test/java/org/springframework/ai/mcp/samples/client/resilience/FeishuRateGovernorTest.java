@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.samples.client.tenant.TenantProperties;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeishuRateGovernorTest {
+
+    private static final double SLOW_RATE = 0.001;
+
+    private RateGovernorProperties properties;
+    private FeishuRateGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateGovernorProperties();
+        properties.setAppPermitsPerSecond(SLOW_RATE);
+        properties.setAppBurst(5);
+        properties.setForegroundReserve(0);
+        properties.setForegroundMaxWait(0);
+        properties.setMaxPollSlowdown(8);
+        properties.getEndpoints().put("narrow", budget(1));
+        properties.getEndpoints().put("wide", budget(100));
+        governor = new FeishuRateGovernor(properties, new TenantProperties());
+    }
+
+    @Test
+    void endpointDenialDoesNotSpendAppTokens() {
+        governor.acquire("narrow", FeishuRateGovernor.Priority.BACKGROUND);
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> governor.acquire("narrow", FeishuRateGovernor.Priority.FOREGROUND))
+                    .isInstanceOf(RateLimitedException.class);
+        }
+
+        // 应用级5个令牌只用掉了1个
+        for (int i = 0; i < 4; i++) {
+            governor.acquire("wide", FeishuRateGovernor.Priority.FOREGROUND);
+        }
+        assertThatThrownBy(() -> governor.acquire("wide", FeishuRateGovernor.Priority.FOREGROUND))
+                .isInstanceOf(RateLimitedException.class);
+    }
+
+    @Test
+    void appDenialReturnsEndpointToken() {
+        properties.setAppBurst(1);
+        properties.getEndpoints().put("pair", budget(2));
+        governor = new FeishuRateGovernor(properties, new TenantProperties());
+
+        governor.acquire("wide", FeishuRateGovernor.Priority.BACKGROUND);
+        assertThatThrownBy(() -> governor.acquire("pair", FeishuRateGovernor.Priority.BACKGROUND))
+                .isInstanceOf(RateLimitedException.class);
+
+        // 接口级令牌被归还，仍然是满的
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> endpoints = (Map<String, Map<String, Object>>) governor.getStatus().get("endpoints");
+        assertThat((double) endpoints.get("pair").get("fillRatio")).isGreaterThan(0.99);
+    }
+
+    @Test
+    void slowdownDoublesAtMostOncePerAdjustInterval() {
+        exhaust("narrow");
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> governor.acquire("narrow", FeishuRateGovernor.Priority.BACKGROUND))
+                    .isInstanceOf(RateLimitedException.class);
+        }
+        governor.onRateLimited("narrow");
+        assertThat(governor.getPollSlowdown()).isEqualTo(2.0);
+
+        // 上个周期有拒绝，不回落；新周期里再被拒绝时再加倍一次
+        governor.adjustSlowdown();
+        assertThat(governor.getPollSlowdown()).isEqualTo(2.0);
+        assertThatThrownBy(() -> governor.acquire("narrow", FeishuRateGovernor.Priority.BACKGROUND))
+                .isInstanceOf(RateLimitedException.class);
+        assertThat(governor.getPollSlowdown()).isEqualTo(4.0);
+    }
+
+    @Test
+    void tenantsHaveIndependentBudgets() {
+        for (int i = 0; i < 5; i++) {
+            governor.acquire("bu-a", "wide", FeishuRateGovernor.Priority.BACKGROUND);
+        }
+        assertThatThrownBy(() -> governor.acquire("bu-a", "wide", FeishuRateGovernor.Priority.BACKGROUND))
+                .isInstanceOf(RateLimitedException.class);
+
+        governor.acquire("wide", FeishuRateGovernor.Priority.BACKGROUND);
+        assertThat(governor.getPollSlowdown("bu-a")).isEqualTo(2.0);
+        assertThat(governor.getPollSlowdown()).isEqualTo(1.0);
+    }
+
+    private void exhaust(String endpoint) {
+        governor.acquire(endpoint, FeishuRateGovernor.Priority.BACKGROUND);
+    }
+
+    @Test
+    void classifiesOnlyFailuresAsRateLimited() {
+        // 成功响应的正文（评论内容）提到限流不算限流
+        assertThat(FeishuRateGovernor.isRateLimitError(
+                "[{\"text\":\"Success: {\\\"items\\\":[{\\\"content\\\":\\\"429 too many requests, code 99991400 frequency limit\\\"}]}\"}]"))
+                .isFalse();
+        assertThat(FeishuRateGovernor.isRateLimitError(
+                "[{\"text\":\"Error: {\\\"code\\\":99991400,\\\"msg\\\":\\\"request trigger frequency limit\\\"}\"}]"))
+                .isTrue();
+        // 工具异常信息
+        assertThat(FeishuRateGovernor.isRateLimitError(
+                "Error calling tool: [TextContent[text=Error: {\"code\":99991400,\"msg\":\"frequency limit\"}]]")).isTrue();
+        assertThat(FeishuRateGovernor.isRateLimitError("Request failed with status code 429")).isTrue();
+        assertThat(FeishuRateGovernor.isRateLimitError("Error: {\"code\":1770002,\"msg\":\"not found\"}")).isFalse();
+    }
+
+    private static RateGovernorProperties.Budget budget(double burst) {
+        RateGovernorProperties.Budget budget = new RateGovernorProperties.Budget();
+        budget.setPermitsPerSecond(SLOW_RATE);
+        budget.setBurst(burst);
+        return budget;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgedCallExecutorTest {
+
+    private ThreadPoolTaskExecutor toolCallExecutor;
+    private ThreadPoolTaskScheduler scheduler;
+    private HedgedCallExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        toolCallExecutor = new ThreadPoolTaskExecutor();
+        toolCallExecutor.setCorePoolSize(2);
+        toolCallExecutor.initialize();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        executor = new HedgedCallExecutor(toolCallExecutor, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        toolCallExecutor.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void timedOutWriteKeepsRunning() throws Exception {
+        SlowCall call = new SlowCall();
+
+        assertThatThrownBy(() -> executor.call("write", call, 50, null)).isInstanceOf(TimeoutException.class);
+
+        // 写调用不被中断，继续执行完
+        assertThat(call.finished.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(call.interrupted).isFalse();
+    }
+
+    @Test
+    void timedOutAsyncWriteKeepsRunning() throws Exception {
+        SlowCall call = new SlowCall();
+
+        CompletableFuture<String> future = executor.callAsync("write", call, 50, null);
+
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(call.finished.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(call.interrupted).isFalse();
+    }
+
+    @Test
+    void timedOutReadIsInterrupted() throws Exception {
+        SlowCall call = new SlowCall();
+
+        assertThatThrownBy(() -> executor.call("read", call, 50, () -> false)).isInstanceOf(TimeoutException.class);
+
+        assertThat(call.finished.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(call.interrupted).isTrue();
+    }
+
+    /**
+     * 耗时300ms的调用，记录是否被中断
+     */
+    private static class SlowCall implements Supplier<String> {
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile boolean interrupted;
+
+        @Override
+        public String get() {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                finished.countDown();
+            }
+            return "done";
+        }
+    }
+}
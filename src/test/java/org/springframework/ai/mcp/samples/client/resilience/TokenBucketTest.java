@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025-2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.ai.mcp.samples.client.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    /**
+     * 补充速率足够低，测试期间可以忽略补充的令牌
+     */
+    private static final double SLOW_RATE = 0.001;
+
+    @Test
+    void grantsUpToCapacityThenDenies() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 3);
+
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isFalse();
+    }
+
+    @Test
+    void keepsReserveForOtherCallers() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 10);
+
+        int granted = 0;
+        while (bucket.tryAcquire(3)) {
+            granted++;
+        }
+
+        assertThat(granted).isEqualTo(7);
+        assertThat(bucket.tryAcquire(0)).isTrue();
+    }
+
+    @Test
+    void releaseReturnsTokenWithoutExceedingCapacity() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 2);
+
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        bucket.release();
+        bucket.release();
+
+        assertThat(bucket.fillRatio()).isLessThanOrEqualTo(1.0);
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isFalse();
+    }
+
+    @Test
+    void drainEmptiesBucketAndPausesRefill() {
+        TokenBucket bucket = new TokenBucket(1000, 5);
+
+        bucket.drain(60000);
+
+        assertThat(bucket.tryAcquire(0)).isFalse();
+        assertThat(bucket.nanosUntilAvailable(0)).isGreaterThan(TimeUnit.SECONDS.toNanos(50));
+    }
+}
@@ -0,0 +1,94 @@
+#!/bin/bash
+
+# Feicur 启动基准测试脚本
+# 对比 JVM / JVM+AOT / JVM+AOT+CDS / Native 各模式的 time-to-first-poll
+#
+# 用法: ./startup-bench.sh <文档token> [模式: jvm|aot|cds|native|all] [运行次数]
+# 前置: 已通过 ./mvnw -Paot package 构建 jar（native 模式需先 ./mvnw -Pnative native:compile）
+
+DOC_TOKEN=$1
+MODE=${2:-all}
+RUNS=${3:-5}
+
+JAR=target/mcp-starter-default-client-0.0.1-SNAPSHOT.jar
+EXTRACT_DIR=target/extracted
+NATIVE_BIN=target/mcp-starter-default-client
+CDS_ARCHIVE=$EXTRACT_DIR/application.jsa
+
+if [ -z "$DOC_TOKEN" ]; then
+    echo "❌ 用法: $0 <文档token> [jvm|aot|cds|native|all] [运行次数]"
+    exit 1
+fi
+
+APP_ARGS="--token=$DOC_TOKEN --feicur.startup.exit-after-first-poll=true --server.port=0"
+
+# 执行一次启动并提取 time-to-first-poll
+run_once() {
+    local output
+    output=$("$@" $APP_ARGS 2>&1)
+    echo "$output" | grep -oP 'STARTUP time-to-first-poll=\K\d+' | head -1
+}
+
+# 多次运行并打印 最小/平均/最大 耗时
+bench() {
+    local name=$1
+    shift
+    local total=0 min=0 max=0 count=0
+    for ((i = 1; i <= RUNS; i++)); do
+        local ms
+        ms=$(run_once "$@")
+        if [ -z "$ms" ]; then
+            echo "⚠️  [$name] 第 $i 次运行未输出 time-to-first-poll"
+            continue
+        fi
+        total=$((total + ms))
+        count=$((count + 1))
+        if [ $min -eq 0 ] || [ "$ms" -lt $min ]; then min=$ms; fi
+        if [ "$ms" -gt $max ]; then max=$ms; fi
+    done
+    if [ $count -gt 0 ]; then
+        echo "📊 [$name] runs=$count min=${min}ms avg=$((total / count))ms max=${max}ms"
+    else
+        echo "❌ [$name] 没有成功的运行"
+    fi
+}
+
+# 解压 jar 并生成 CDS 归档（训练运行在上下文刷新后即退出）
+prepare_cds() {
+    if [ ! -f "$CDS_ARCHIVE" ]; then
+        echo "🧹 解压 jar 并生成 CDS 归档..."
+        rm -rf $EXTRACT_DIR
+        java -Djarmode=tools -jar $JAR extract --destination $EXTRACT_DIR > /dev/null
+        java -XX:ArchiveClassesAtExit=$CDS_ARCHIVE -Dspring.aot.enabled=true \
+            -Dspring.context.exit=onRefresh -jar $EXTRACT_DIR/$(basename $JAR) > /dev/null 2>&1
+    fi
+}
+
+if [ ! -f "$JAR" ]; then
+    echo "❌ 未找到 $JAR，请先执行 ./mvnw -Paot package -DskipTests"
+    exit 1
+fi
+
+echo "🚀 启动基准测试: doc=$DOC_TOKEN mode=$MODE runs=$RUNS"
+
+if [ "$MODE" = "jvm" ] || [ "$MODE" = "all" ]; then
+    bench "jvm" java -jar $JAR
+fi
+
+if [ "$MODE" = "aot" ] || [ "$MODE" = "all" ]; then
+    bench "jvm+aot" java -Dspring.aot.enabled=true -jar $JAR
+fi
+
+if [ "$MODE" = "cds" ] || [ "$MODE" = "all" ]; then
+    prepare_cds
+    bench "jvm+aot+cds" java -XX:SharedArchiveFile=$CDS_ARCHIVE -Dspring.aot.enabled=true \
+        -jar $EXTRACT_DIR/$(basename $JAR)
+fi
+
+if [ "$MODE" = "native" ] || [ "$MODE" = "all" ]; then
+    if [ -x "$NATIVE_BIN" ]; then
+        bench "native" $NATIVE_BIN
+    else
+        echo "⚠️  未找到 Native 可执行文件 $NATIVE_BIN，跳过 native 模式"
+    fi
+fi